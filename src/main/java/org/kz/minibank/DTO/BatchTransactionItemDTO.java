@@ -0,0 +1,17 @@
+package org.kz.minibank.DTO;
+
+import org.kz.minibank.model.TransactionStatus;
+
+import java.math.BigDecimal;
+
+public record BatchTransactionItemDTO(
+        int index,
+        BigDecimal amount,
+        String currencyCode,
+        String sourceAccountNumber,
+        String targetAccountNumber,
+        String title,
+        TransactionStatus status,
+        String failureReason
+) {
+}
@@ -0,0 +1,10 @@
+package org.kz.minibank.DTO;
+
+import java.util.List;
+
+public record BatchTransactionResponseDTO(
+        int succeeded,
+        int failed,
+        List<BatchTransactionItemDTO> results
+) {
+}
@@ -0,0 +1,15 @@
+package org.kz.minibank.DTO;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CreateBatchTransactionRequest(
+        @NotEmpty(message = "transfers must not be empty!")
+        @Size(max = 10000, message = "batch can contain at most 10000 transfers!")
+        List<@Valid @NotNull CreateTransactionRequest> transfers
+) {
+}
@@ -0,0 +1,11 @@
+package org.kz.minibank.DTO;
+
+import jakarta.validation.constraints.NotNull;
+
+public record CreateFxQuoteRequest(
+        @NotNull
+        String sourceCurrency,
+        @NotNull
+        String targetCurrency
+) {
+}
@@ -0,0 +1,31 @@
+package org.kz.minibank.DTO;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import org.kz.minibank.model.TransferFrequency;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record CreateScheduledTransferRequest(
+        @NotNull
+        String sourceAccountNumber,
+        @NotNull
+        String targetAccountNumber,
+
+        @NotNull
+        @DecimalMin(value = "0.01", message = "amount must be grater than 0!")
+        @Digits(integer = 10, fraction = 2, message = "amount must be valid decimal number!")
+        BigDecimal amount,
+
+        @NotNull
+        String title,
+
+        @NotNull
+        TransferFrequency frequency,
+
+        @NotNull
+        LocalDateTime firstExecution
+) {
+}
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 public record CreateTransactionRequest(
         @NotNull
@@ -19,6 +20,11 @@ public record CreateTransactionRequest(
         BigDecimal amount,
 
         @NotNull
-        String title
+        String title,
+
+        UUID quoteId
 ) {
+    public CreateTransactionRequest(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount, String title) {
+        this(sourceAccountNumber, targetAccountNumber, amount, title, null);
+    }
 }
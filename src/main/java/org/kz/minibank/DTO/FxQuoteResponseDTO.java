@@ -0,0 +1,14 @@
+package org.kz.minibank.DTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record FxQuoteResponseDTO(
+        UUID quoteId,
+        String sourceCurrency,
+        String targetCurrency,
+        BigDecimal rate,
+        LocalDateTime expiresAt
+) {
+}
@@ -0,0 +1,12 @@
+package org.kz.minibank.DTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record FxRateUpdateDTO(
+        String sourceCurrency,
+        String targetCurrency,
+        BigDecimal rate,
+        LocalDateTime timestamp
+) {
+}
@@ -0,0 +1,10 @@
+package org.kz.minibank.DTO;
+
+import java.util.List;
+
+public record NbpTable(
+        String table,
+        String no,
+        String effectiveDate,
+        List<NbpTableRate> rates
+) {}
@@ -0,0 +1,9 @@
+package org.kz.minibank.DTO;
+
+import java.math.BigDecimal;
+
+public record NbpTableRate(
+        String currency,
+        String code,
+        BigDecimal mid
+) {}
@@ -0,0 +1,22 @@
+package org.kz.minibank.DTO;
+
+import org.kz.minibank.model.TransferFrequency;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record ScheduledTransferResponseDTO(
+        Long id,
+        String sourceAccountNumber,
+        String targetAccountNumber,
+        BigDecimal amount,
+        String title,
+        TransferFrequency frequency,
+        LocalDateTime nextExecution,
+        int executions,
+        boolean active,
+        UUID lastTransactionId,
+        String lastFailureReason
+) {
+}
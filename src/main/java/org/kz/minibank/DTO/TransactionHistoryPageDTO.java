@@ -0,0 +1,9 @@
+package org.kz.minibank.DTO;
+
+import java.util.List;
+
+public record TransactionHistoryPageDTO(
+        List<TransactionStatusDTO> transactions,
+        String nextCursor
+) {
+}
@@ -0,0 +1,28 @@
+package org.kz.minibank.DTO;
+
+import org.kz.minibank.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.UUID;
+
+public record TransactionStatusDTO(
+        UUID id,
+        BigDecimal amount,
+        String currencyCode,
+        String sourceAccountNumber,
+        String targetAccountNumber,
+        String title,
+        TransactionStatus status,
+        String failureReason,
+        LocalDateTime timestamp
+) {
+    /** Target of the listing projections in {@code TransactionRepository}, which select the account's {@link Currency}. */
+    public TransactionStatusDTO(UUID id, BigDecimal amount, Currency currency, String sourceAccountNumber,
+                                String targetAccountNumber, String title, TransactionStatus status, String failureReason,
+                                LocalDateTime timestamp) {
+        this(id, amount, currency.getCurrencyCode(), sourceAccountNumber, targetAccountNumber, title, status,
+                failureReason, timestamp);
+    }
+}
@@ -0,0 +1,14 @@
+package org.kz.minibank.DTO;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.kz.minibank.service.BalanceStripeService;
+
+public record UpdateBalanceStripingRequest(
+        @NotNull
+        @Min(0)
+        @Max(BalanceStripeService.MAX_STRIPES)
+        Integer stripes
+) {
+}
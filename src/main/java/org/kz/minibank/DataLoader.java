@@ -1,5 +1,6 @@
 package org.kz.minibank;
 
+import org.kz.minibank.config.ReadWriteRoutingDataSource;
 import org.kz.minibank.model.Transaction;
 import org.kz.minibank.model.User;
 import org.kz.minibank.model.Account; // Importy Twoich klas
@@ -34,35 +35,41 @@ public class DataLoader implements CommandLineRunner {
 
     @Override
     public void run(String... args) throws Exception {
-        User user = new User("Jan", "Kowalski", "jan@test.com", passwordEncoder.encode("haslo123"));
-        userRepository.save(user);
+        // reads back what it has just written, which a lagging replica may not have yet
+        ReadWriteRoutingDataSource.pinToPrimary();
+        try {
+            User user = new User("Jan", "Kowalski", "jan@test.com", passwordEncoder.encode("haslo123"));
+            userRepository.save(user);
 
-        Account account = accountService.createAccount(user.getEmail(), "PLN");
-        Account account2 = accountService.createAccount(user.getEmail(), "Eur");
-        accountRepository.save(account);
-        accountRepository.save(account2);
+            Account account = accountService.createAccount(user.getEmail(), "PLN");
+            Account account2 = accountService.createAccount(user.getEmail(), "Eur");
+            accountRepository.save(account);
+            accountRepository.save(account2);
 
-        System.out.println("--- BAZA DANYCH ZAŁADOWANA POPRAWNIE ---");
-        System.out.println("User ID: " + user.getId());
-        System.out.println("Account ID: " + account.getId());
-        System.out.println("Account Balance: " + account.getBalance() + " " + account.getCurrency() + "");
+            System.out.println("--- BAZA DANYCH ZAŁADOWANA POPRAWNIE ---");
+            System.out.println("User ID: " + user.getId());
+            System.out.println("Account ID: " + account.getId());
+            System.out.println("Account Balance: " + account.getBalance() + " " + account.getCurrency() + "");
 
-        transactionService.deposit(account.getAccountNumber(), BigDecimal.valueOf(1000));
-        account = accountRepository.findById(account.getId()).orElseThrow();
-        System.out.println("Deposited 1000 PLN to account " + account.getId());
-        System.out.println("Account Balance: " + account.getBalance() + " " + account.getCurrency() + "");
+            transactionService.deposit(account.getAccountNumber(), BigDecimal.valueOf(1000));
+            account = accountRepository.findById(account.getId()).orElseThrow();
+            System.out.println("Deposited 1000 PLN to account " + account.getId());
+            System.out.println("Account Balance: " + account.getBalance() + " " + account.getCurrency() + "");
 
-        transactionService.withdraw(account.getAccountNumber(), BigDecimal.valueOf(500));
-        account = accountRepository.findById(account.getId()).orElseThrow();
-        System.out.println("Withdrawn 500 PLN from account " + account.getId());
-        System.out.println("Account Balance: " + account.getBalance() + " " + account.getCurrency() + "");
+            transactionService.withdraw(account.getAccountNumber(), BigDecimal.valueOf(500));
+            account = accountRepository.findById(account.getId()).orElseThrow();
+            System.out.println("Withdrawn 500 PLN from account " + account.getId());
+            System.out.println("Account Balance: " + account.getBalance() + " " + account.getCurrency() + "");
 
-        transactionService.createTransactionBetweenAccounts(account.getAccountNumber(), account2.getAccountNumber(), BigDecimal.valueOf(100), "Test transaction from pln to eur");
-        System.out.println("Created transaction between accounts");
-        account = accountRepository.findById(account.getId()).orElseThrow();
-        account2 = accountRepository.findById(account2.getId()).orElseThrow();
-        System.out.println("Account1 Balance: " + account.getBalance() + " " + account.getCurrency() + "");
-        System.out.println("Account2 Balance: " + account2.getBalance() + " " + account2.getCurrency() + "");
+            transactionService.createTransactionBetweenAccounts(account.getAccountNumber(), account2.getAccountNumber(), BigDecimal.valueOf(100), "Test transaction from pln to eur");
+            System.out.println("Created transaction between accounts");
+            account = accountRepository.findById(account.getId()).orElseThrow();
+            account2 = accountRepository.findById(account2.getId()).orElseThrow();
+            System.out.println("Account1 Balance: " + account.getBalance() + " " + account.getCurrency() + "");
+            System.out.println("Account2 Balance: " + account2.getBalance() + " " + account2.getCurrency() + "");
 
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+        }
     }
 }
\ No newline at end of file
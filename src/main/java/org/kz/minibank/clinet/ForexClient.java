@@ -1,29 +1,57 @@
 package org.kz.minibank.clinet;
 
 import org.kz.minibank.DTO.NbpResponse;
+import org.kz.minibank.DTO.NbpTable;
+import org.kz.minibank.DTO.NbpTableRate;
+import org.kz.minibank.exception.ForexUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
 
 import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * NBP client with connect and read timeouts. Every call goes through a {@link CircuitBreaker}: once
+ * NBP keeps failing, calls fail fast with {@link ForexUnavailableException} instead of tying up
+ * request threads until it recovers. A 404 for an unknown currency is an answer, not a failure.
+ */
 @Component
 public class ForexClient {
     private final RestClient restClient;
+    private final CircuitBreaker circuitBreaker;
 
-    private static final String NBP_API_URL = "http://api.nbp.pl/api/exchangerates/rates/a/{code}/?format=json";
+    private static final String NBP_RATE_PATH = "/api/exchangerates/rates/a/{code}/?format=json";
+    private static final String NBP_TABLE_PATH = "/api/exchangerates/tables/a/?format=json";
+    private static final Currency PLN = Currency.getInstance("PLN");
 
-    public ForexClient() {
-        this.restClient = RestClient.create();
+    public ForexClient(@Value("${minibank.nbp.base-url:http://api.nbp.pl}") String baseUrl,
+                       @Value("${minibank.nbp.connect-timeout:PT2S}") Duration connectTimeout,
+                       @Value("${minibank.nbp.read-timeout:PT3S}") Duration readTimeout,
+                       @Value("${minibank.nbp.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                       @Value("${minibank.nbp.circuit-breaker.open-duration:PT30S}") Duration openDuration) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().connectTimeout(connectTimeout).build());
+        requestFactory.setReadTimeout(readTimeout);
+        this.restClient = RestClient.builder().baseUrl(baseUrl).requestFactory(requestFactory).build();
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
     }
 
     public BigDecimal getExchangeRate(Currency currency){
         if (currency.getCurrencyCode().equals("PLN")) return BigDecimal.ONE;
 
-        NbpResponse response = restClient.get()
-                .uri(NBP_API_URL, currency.getCurrencyCode())
+        NbpResponse response = call(() -> restClient.get()
+                .uri(NBP_RATE_PATH, currency.getCurrencyCode())
                 .retrieve()
-                .body(NbpResponse.class);
+                .body(NbpResponse.class));
 
         if (response != null && !response.rates().isEmpty()){
             return response.rates().getFirst().mid();
@@ -31,4 +59,49 @@ public class ForexClient {
         throw new IllegalArgumentException("Exchange rate not found!");
     }
 
+    /** Mid rates of the whole NBP table A in PLN, PLN itself included. Codes unknown to the JDK are skipped. */
+    public Map<Currency, BigDecimal> getRateTable() {
+        NbpTable[] tables = call(() -> restClient.get()
+                .uri(NBP_TABLE_PATH)
+                .retrieve()
+                .body(NbpTable[].class));
+
+        if (tables == null || tables.length == 0 || tables[0].rates() == null || tables[0].rates().isEmpty()) {
+            throw new IllegalArgumentException("Exchange rate table not found!");
+        }
+        Map<Currency, BigDecimal> rates = new HashMap<>();
+        for (NbpTableRate rate : tables[0].rates()) {
+            try {
+                rates.put(Currency.getInstance(rate.code()), rate.mid());
+            } catch (IllegalArgumentException e) {
+                // not an ISO 4217 code the JDK knows, cannot be an account currency either
+            }
+        }
+        rates.put(PLN, BigDecimal.ONE);
+        return rates;
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    private <T> T call(Supplier<T> request) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new ForexUnavailableException("Exchange rate provider is unavailable!");
+        }
+        try {
+            T body = request.get();
+            circuitBreaker.onSuccess();
+            return body;
+        } catch (HttpClientErrorException.NotFound e) {
+            circuitBreaker.onSuccess();
+            throw new IllegalArgumentException("Exchange rate not found!");
+        } catch (RestClientException e) {
+            circuitBreaker.onFailure();
+            throw new ForexUnavailableException("Exchange rate provider is unavailable!", e);
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+    }
 }
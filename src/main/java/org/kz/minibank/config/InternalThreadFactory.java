@@ -0,0 +1,29 @@
+package org.kz.minibank.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads of MiniBank's internal executors. Follows {@code spring.threads.virtual.enabled},
+ * so the same switch that moves servlet handling and scheduling to virtual threads moves these too.
+ */
+@Component
+public class InternalThreadFactory {
+    private final boolean virtual;
+
+    public InternalThreadFactory(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public ThreadFactory named(String name) {
+        return virtual
+                ? Thread.ofVirtual().name(name).factory()
+                : Thread.ofPlatform().name(name).daemon().factory();
+    }
+
+    public Thread newThread(String name, Runnable task) {
+        return named(name).newThread(task);
+    }
+}
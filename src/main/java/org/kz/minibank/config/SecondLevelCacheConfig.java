@@ -0,0 +1,82 @@
+package org.kz.minibank.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Opt-in Hibernate second-level and query cache on bounded in-process Caffeine caches. Only
+ * {@code User} and the read-only {@code AccountInfo} are cached, plus the {@code findByEmail}
+ * query; balances are never cached.
+ * <p>
+ * Every region is created here with a size bound, expiry and statistics (published to Micrometer
+ * as {@code cache.*} meters tagged with the region). A region missing from this list fails
+ * startup instead of being created unbounded. The update-timestamps region has neither bound
+ * nor expiry: it holds one entry per table, and losing one would let the query cache serve
+ * results older than a write.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minibank.second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+    static final List<String> BOUNDED_REGIONS = List.of("users", "account-info", "account-info-by-number",
+            RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(MeterRegistry meterRegistry,
+                                                @Value("${minibank.second-level-cache.max-size:100000}") long maxSize,
+                                                @Value("${minibank.second-level-cache.ttl:PT1H}") Duration ttl) {
+        // a manager per context, so test contexts in one JVM do not share regions
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("minibank-second-level-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : BOUNDED_REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = regionConfiguration();
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+            monitor(cacheManager.createCache(region, configuration), meterRegistry);
+        }
+        monitor(cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, regionConfiguration()),
+                meterRegistry);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> regionConfiguration() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate already stores disassembled copies; no need for JCache to copy them again
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+    private static void monitor(Cache<Object, Object> cache, MeterRegistry meterRegistry) {
+        JCacheMetrics.monitor(meterRegistry, cache);
+    }
+}
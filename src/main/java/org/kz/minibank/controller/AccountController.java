@@ -4,31 +4,46 @@ package org.kz.minibank.controller;
 import jakarta.validation.Valid;
 import org.kz.minibank.DTO.AccountResponseDTO;
 import org.kz.minibank.DTO.CreateAccountRequest;
-import org.kz.minibank.DTO.TransactionResponseDTO;
+import org.kz.minibank.DTO.TransactionHistoryPageDTO;
+import org.kz.minibank.DTO.TransactionStatusDTO;
+import org.kz.minibank.DTO.UpdateBalanceStripingRequest;
 import org.kz.minibank.model.Account;
-import org.kz.minibank.model.Transaction;
 import org.kz.minibank.service.AccountService;
+import org.kz.minibank.service.TransactionExportFormat;
+import org.kz.minibank.service.TransactionExportService;
+import org.kz.minibank.service.TransactionHistorySlice;
+import org.kz.minibank.service.TransferProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.Currency;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/accounts")
 public class AccountController {
 
     private final AccountService accountService;
+    private final TransactionExportService transactionExportService;
+    private final TransferProcessor transferProcessor;
 
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, TransactionExportService transactionExportService,
+                             TransferProcessor transferProcessor) {
         this.accountService = accountService;
+        this.transactionExportService = transactionExportService;
+        this.transferProcessor = transferProcessor;
     }
 
     @PostMapping
@@ -48,52 +63,89 @@ public class AccountController {
         return ResponseEntity.ok(accountService.getBalance(id));
     }
 
+    @GetMapping("/{id}/journalBalance")
+    public ResponseEntity<BigDecimal> getJournalBalance(@PathVariable Long id, Principal principal){
+        validateOwnership(id, principal.getName());
+        return ResponseEntity.ok(accountService.getJournalBalance(id));
+    }
+
     @GetMapping("/{id}/transactionHistory")
-    public ResponseEntity<Page<Transaction>> getTransactionHistory(@PathVariable Long id, Pageable pageable, Principal principal){
+    public ResponseEntity<Page<TransactionStatusDTO>> getTransactionHistory(@PathVariable Long id, Pageable pageable, Principal principal){
         validateOwnership(id, principal.getName());
         return ResponseEntity.ok(accountService.getTransactionsByAccountId(id, pageable));
     }
 
+    /** Cursor-paginated history; pass the returned {@code nextCursor} back as {@code cursor} for the next page. */
+    @GetMapping("/{id}/transactions")
+    public ResponseEntity<TransactionHistoryPageDTO> getTransactions(@PathVariable Long id,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "50") int limit,
+                                                                     Principal principal){
+        validateOwnership(id, principal.getName());
+        return ResponseEntity.ok(toPage(accountService.getTransactionHistory(id, cursor, limit)));
+    }
+
+    /** The whole history, optionally within {@code [from, to)}, newest first, streamed as {@code csv} or {@code ndjson}. */
+    @GetMapping("/{id}/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@PathVariable Long id,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+                                                                    @RequestParam(defaultValue = "csv") String format,
+                                                                    Principal principal){
+        validateOwnership(id, principal.getName());
+        TransactionExportFormat exportFormat = TransactionExportFormat.of(format);
+        transactionExportService.validateRange(from, to);
+        ContentDisposition attachment = ContentDisposition.attachment()
+                .filename("transactions-" + id + "." + exportFormat.extension())
+                .build();
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment.toString())
+                .body(out -> transactionExportService.export(id, from, to, exportFormat, out));
+    }
+
+    /** Newest first, optionally within {@code [from, to)}; paged with {@code cursor} like {@code /transactions}. */
     @GetMapping("/{id}/incomingTransactions")
-    public ResponseEntity<List<TransactionResponseDTO>> getIncomingTransactions(@PathVariable Long id, Principal principal){
+    public ResponseEntity<TransactionHistoryPageDTO> getIncomingTransactions(@PathVariable Long id,
+                                                                             @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+                                                                             @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+                                                                             @RequestParam(required = false) String cursor,
+                                                                             @RequestParam(defaultValue = "50") int limit,
+                                                                             Principal principal){
         validateOwnership(id, principal.getName());
-        List<Transaction> transactions = accountService.getIncomingTransactionsByAccountId(id);
-        List<TransactionResponseDTO> response = transactions.stream().map(transaction -> new TransactionResponseDTO(
-                transaction.getAmount(),
-                transaction.getSourceAccount().getCurrency().getCurrencyCode(),
-                transaction.getSourceAccount().getAccountNumber(),
-                transaction.getTargetAccount().getAccountNumber(),
-                transaction.getTitle(),
-                transaction.getStatus()
-
-        )).toList();
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(toPage(accountService.getIncomingTransactions(id, from, to, cursor, limit)));
     }
 
     @GetMapping("/{id}/outgoingTransactions")
-    public ResponseEntity<List<TransactionResponseDTO>> getOutgoingTransactions(@PathVariable Long id, Principal principal){
+    public ResponseEntity<TransactionHistoryPageDTO> getOutgoingTransactions(@PathVariable Long id,
+                                                                             @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+                                                                             @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+                                                                             @RequestParam(required = false) String cursor,
+                                                                             @RequestParam(defaultValue = "50") int limit,
+                                                                             Principal principal){
         validateOwnership(id, principal.getName());
+        return ResponseEntity.ok(toPage(accountService.getOutgoingTransactions(id, from, to, cursor, limit)));
+    }
 
-        List<Transaction> transactions = accountService.getOutcomingTransactionsByAccountId(id);
-        List<TransactionResponseDTO> response = transactions.stream().map(transaction -> new TransactionResponseDTO(
-                transaction.getAmount(),
-                transaction.getTargetAccount().getCurrency().getCurrencyCode(),
-                transaction.getSourceAccount().getAccountNumber(),
-                transaction.getTargetAccount().getAccountNumber(),
-                transaction.getTitle(),
-                transaction.getStatus()
-
-        )).toList();
-        return ResponseEntity.ok(response);
+    @PutMapping("/{id}/striping")
+    public ResponseEntity<Void> updateBalanceStriping(@PathVariable Long id, @Valid @RequestBody UpdateBalanceStripingRequest request,
+                                                      Principal principal) {
+        validateOwnership(id, principal.getName());
+        accountService.setBalanceStripes(id, request.stripes());
+        return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAccount(@PathVariable Long id, Principal principal) {
         validateOwnership(id, principal.getName());
-        accountService.deleteAccount(id);
+        transferProcessor.deleteAccount(id);
         return ResponseEntity.noContent().build();
     }
 
+    private static TransactionHistoryPageDTO toPage(TransactionHistorySlice slice) {
+        return new TransactionHistoryPageDTO(slice.transactions(), slice.nextCursor());
+    }
+
     private void validateOwnership(Long accountId, String email){
         boolean isOwner = accountService.isAccountOwner(accountId, email);
         if (!isOwner) { throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not the owner of this account!");
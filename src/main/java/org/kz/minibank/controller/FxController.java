@@ -0,0 +1,53 @@
+package org.kz.minibank.controller;
+
+import jakarta.validation.Valid;
+import org.kz.minibank.DTO.CreateFxQuoteRequest;
+import org.kz.minibank.DTO.FxQuoteResponseDTO;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.FxQuote;
+import org.kz.minibank.service.ExchangeRateService;
+import org.kz.minibank.service.FxQuoteService;
+import org.kz.minibank.service.FxRateStreamService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/fx")
+public class FxController {
+    private final FxQuoteService fxQuoteService;
+    private final ExchangeRateService exchangeRateService;
+    private final FxRateStreamService fxRateStreamService;
+
+    public FxController(FxQuoteService fxQuoteService, ExchangeRateService exchangeRateService,
+                        FxRateStreamService fxRateStreamService) {
+        this.fxQuoteService = fxQuoteService;
+        this.exchangeRateService = exchangeRateService;
+        this.fxRateStreamService = fxRateStreamService;
+    }
+
+    @PostMapping("/quotes")
+    public ResponseEntity<FxQuoteResponseDTO> createQuote(@Valid @RequestBody CreateFxQuoteRequest request) {
+        FxQuote quote = fxQuoteService.createQuote(request.sourceCurrency(), request.targetCurrency());
+        return ResponseEntity.status(201).body(new FxQuoteResponseDTO(
+                quote.id(),
+                quote.pair().base().getCurrencyCode(),
+                quote.pair().counter().getCurrencyCode(),
+                quote.rate().directRate(),
+                quote.expiresAt()
+        ));
+    }
+
+    /** Server-Sent Events: the current rate of the pair, then every refreshed rate as a {@code rate} event. */
+    @GetMapping(path = "/rates/{sourceCurrency}/{targetCurrency}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRate(@PathVariable String sourceCurrency, @PathVariable String targetCurrency) {
+        CurrencyPair pair = CurrencyPair.of(sourceCurrency, targetCurrency);
+        return fxRateStreamService.subscribe(pair, exchangeRateService.rate(pair));
+    }
+}
@@ -0,0 +1,74 @@
+package org.kz.minibank.controller;
+
+import jakarta.validation.Valid;
+import org.kz.minibank.DTO.CreateScheduledTransferRequest;
+import org.kz.minibank.DTO.ScheduledTransferResponseDTO;
+import org.kz.minibank.model.ScheduledTransfer;
+import org.kz.minibank.scheduling.ScheduledTransferEngine;
+import org.kz.minibank.service.AccountService;
+import org.kz.minibank.service.ScheduledTransferService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.Principal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/scheduled-transfers")
+public class ScheduledTransferController {
+
+    private final ScheduledTransferService scheduledTransferService;
+    private final ScheduledTransferEngine scheduledTransferEngine;
+    private final AccountService accountService;
+
+    public ScheduledTransferController(ScheduledTransferService scheduledTransferService,
+                                       ScheduledTransferEngine scheduledTransferEngine, AccountService accountService) {
+        this.scheduledTransferService = scheduledTransferService;
+        this.scheduledTransferEngine = scheduledTransferEngine;
+        this.accountService = accountService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ScheduledTransferResponseDTO> createScheduledTransfer(@Valid @RequestBody CreateScheduledTransferRequest request,
+                                                                                Principal principal) {
+        if (!accountService.isAccountOwner(request.sourceAccountNumber(), principal.getName())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not the owner of this account!");
+        }
+        ScheduledTransfer schedule = scheduledTransferService.createSchedule(principal.getName(),
+                request.sourceAccountNumber(), request.targetAccountNumber(), request.amount(), request.title(),
+                request.frequency(), request.firstExecution());
+        scheduledTransferEngine.track(schedule);
+        return ResponseEntity.status(201).body(toResponse(schedule));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ScheduledTransferResponseDTO>> getScheduledTransfers(Principal principal) {
+        return ResponseEntity.ok(scheduledTransferService.getSchedules(principal.getName()).stream()
+                .map(this::toResponse)
+                .toList());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelScheduledTransfer(@PathVariable Long id, Principal principal) {
+        scheduledTransferService.cancelSchedule(id, principal.getName());
+        return ResponseEntity.noContent().build();
+    }
+
+    private ScheduledTransferResponseDTO toResponse(ScheduledTransfer schedule) {
+        return new ScheduledTransferResponseDTO(
+                schedule.getId(),
+                schedule.getSourceAccountNumber(),
+                schedule.getTargetAccountNumber(),
+                schedule.getAmount(),
+                schedule.getTitle(),
+                schedule.getFrequency(),
+                schedule.getNextExecution(),
+                schedule.getExecutions(),
+                schedule.isActive(),
+                schedule.getLastTransactionId(),
+                schedule.getLastFailureReason()
+        );
+    }
+}
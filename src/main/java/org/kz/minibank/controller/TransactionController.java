@@ -1,78 +1,163 @@
 package org.kz.minibank.controller;
 
 import jakarta.validation.Valid;
+import org.kz.minibank.DTO.BatchTransactionItemDTO;
+import org.kz.minibank.DTO.BatchTransactionResponseDTO;
+import org.kz.minibank.DTO.CreateBatchTransactionRequest;
 import org.kz.minibank.DTO.CreateDepositDTO;
 import org.kz.minibank.DTO.CreateTransactionRequest;
 import org.kz.minibank.DTO.TransactionResponseDTO;
+import org.kz.minibank.DTO.TransactionStatusDTO;
+import org.kz.minibank.model.Account;
 import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
 import org.kz.minibank.service.AccountService;
-import org.kz.minibank.service.TransactionService;
+import org.kz.minibank.service.AsyncTransferService;
+import org.kz.minibank.service.IdempotencyService;
+import org.kz.minibank.service.TransferProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.net.URI;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/transactions")
 public class TransactionController {
 
-    private final TransactionService transactionService;
     private final AccountService accountService;
+    private final TransferProcessor transferProcessor;
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferService asyncTransferService;
 
-    public TransactionController(TransactionService transactionService, AccountService accountService) {
-        this.transactionService = transactionService;
+    public TransactionController(AccountService accountService, TransferProcessor transferProcessor,
+                                 IdempotencyService idempotencyService, AsyncTransferService asyncTransferService) {
         this.accountService = accountService;
+        this.transferProcessor = transferProcessor;
+        this.idempotencyService = idempotencyService;
+        this.asyncTransferService = asyncTransferService;
     }
 
     @PostMapping
-    public ResponseEntity<TransactionResponseDTO> createTransaction(@Valid @RequestBody CreateTransactionRequest request, Principal principal) {
+    public ResponseEntity<TransactionResponseDTO> createTransaction(@Valid @RequestBody CreateTransactionRequest request, Principal principal,
+                                                                    @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         validateOwnership(request.sourceAccountNumber(), principal.getName());
-        Transaction transaction = transactionService.createTransactionBetweenAccounts(
-                request.sourceAccountNumber(), request.targetAccountNumber(), request.amount(), request.title()
-        );
-        return ResponseEntity.status(201).body(new TransactionResponseDTO(
-                transaction.getAmount(),
-                transaction.getTargetAccount().getCurrency().getCurrencyCode(),
-                transaction.getSourceAccount().getAccountNumber(),
-                transaction.getTargetAccount().getAccountNumber(),
-                transaction.getTitle(),
-                transaction.getStatus()
-        ));
+        TransactionResponseDTO response = idempotencyService.execute(idempotencyKey, principal.getName(), "transfer", request,
+                () -> toResponse(transferProcessor.transfer(
+                        request.sourceAccountNumber(), request.targetAccountNumber(), request.amount(), request.title(),
+                        request.quoteId()
+                )));
+        return ResponseEntity.status(201).body(response);
+    }
+
+    @PostMapping("/async")
+    public ResponseEntity<TransactionStatusDTO> createTransactionAsync(@Valid @RequestBody CreateTransactionRequest request, Principal principal) {
+        validateOwnership(request.sourceAccountNumber(), principal.getName());
+        Transaction pending = asyncTransferService.submit(
+                request.sourceAccountNumber(), request.targetAccountNumber(), request.amount(), request.title(),
+                request.quoteId());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/" + pending.getId()))
+                .body(toStatus(pending));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<TransactionStatusDTO> getTransaction(@PathVariable UUID id, Principal principal) {
+        Transaction transaction = asyncTransferService.getTransaction(id);
+        if (!ownsAccount(transaction.getSourceAccount(), principal.getName())
+                && !ownsAccount(transaction.getTargetAccount(), principal.getName())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not the owner of this account!");
+        }
+        return ResponseEntity.ok(toStatus(transaction));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransactionResponseDTO> createTransactionsBatch(@Valid @RequestBody CreateBatchTransactionRequest request, Principal principal) {
+        List<CreateTransactionRequest> transfers = request.transfers();
+        if (!accountService.isAccountOwner(transfers.stream().map(CreateTransactionRequest::sourceAccountNumber).toList(), principal.getName())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not the owner of this account!");
+        }
+        List<Transaction> transactions = transferProcessor.transferBatch(transfers);
+
+        List<BatchTransactionItemDTO> results = new ArrayList<>(transactions.size());
+        int succeeded = 0;
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            CreateTransactionRequest transfer = transfers.get(i);
+            if (transaction.getStatus() == TransactionStatus.SUCCESS) succeeded++;
+            results.add(new BatchTransactionItemDTO(
+                    i,
+                    transaction.getAmount(),
+                    transaction.getTargetAccount() != null ? transaction.getTargetAccount().getCurrency().getCurrencyCode() : null,
+                    transfer.sourceAccountNumber(),
+                    transfer.targetAccountNumber(),
+                    transaction.getTitle(),
+                    transaction.getStatus(),
+                    transaction.getFailureReason()
+            ));
+        }
+        return ResponseEntity.status(201).body(new BatchTransactionResponseDTO(succeeded, results.size() - succeeded, results));
     }
+
     @PostMapping("/deposit")
-    public ResponseEntity<TransactionResponseDTO> createDeposit(@Valid @RequestBody CreateDepositDTO request, Principal principal) {
+    public ResponseEntity<TransactionResponseDTO> createDeposit(@Valid @RequestBody CreateDepositDTO request, Principal principal,
+                                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         validateOwnership(request.targetAccountNumber(), principal.getName());
-        Transaction transaction = transactionService.deposit(request.targetAccountNumber(), request.amount());
+        TransactionResponseDTO response = idempotencyService.execute(idempotencyKey, principal.getName(), "deposit", request,
+                () -> toResponse(transferProcessor.deposit(request.targetAccountNumber(), request.amount())));
 
-        return ResponseEntity.status(201).body(new TransactionResponseDTO(
-                transaction.getAmount(),
-                transaction.getTargetAccount().getCurrency().getCurrencyCode(),
-                transaction.getSourceAccount().getAccountNumber(),
-                transaction.getTargetAccount().getAccountNumber(),
-                transaction.getTitle(),
-                transaction.getStatus()
-        ));
+        return ResponseEntity.status(201).body(response);
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<TransactionResponseDTO> createWithdraw(@Valid @RequestBody CreateDepositDTO request, Principal principal) {
+    public ResponseEntity<TransactionResponseDTO> createWithdraw(@Valid @RequestBody CreateDepositDTO request, Principal principal,
+                                                                 @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         validateOwnership(request.targetAccountNumber(), principal.getName());
-        Transaction transaction = transactionService.withdraw(request.targetAccountNumber(), request.amount());
+        TransactionResponseDTO response = idempotencyService.execute(idempotencyKey, principal.getName(), "withdraw", request,
+                () -> toResponse(transferProcessor.withdraw(request.targetAccountNumber(), request.amount())));
+
+        return ResponseEntity.status(201).body(response);
+    }
 
-        return ResponseEntity.status(201).body(new TransactionResponseDTO(
+    private TransactionResponseDTO toResponse(Transaction transaction) {
+        return new TransactionResponseDTO(
                 transaction.getAmount(),
                 transaction.getTargetAccount().getCurrency().getCurrencyCode(),
                 transaction.getSourceAccount().getAccountNumber(),
                 transaction.getTargetAccount().getAccountNumber(),
                 transaction.getTitle(),
                 transaction.getStatus()
-        ));
+        );
+    }
+
+    private TransactionStatusDTO toStatus(Transaction transaction) {
+        return new TransactionStatusDTO(
+                transaction.getId(),
+                transaction.getAmount(),
+                transaction.getSourceAccount() != null ? transaction.getSourceAccount().getCurrency().getCurrencyCode() : null,
+                transaction.getSourceAccount() != null ? transaction.getSourceAccount().getAccountNumber() : null,
+                transaction.getTargetAccount() != null ? transaction.getTargetAccount().getAccountNumber() : null,
+                transaction.getTitle(),
+                transaction.getStatus(),
+                transaction.getFailureReason(),
+                transaction.getTimestamp()
+        );
+    }
+
+    private boolean ownsAccount(Account account, String email) {
+        return account != null && accountService.isAccountOwner(account.getAccountNumber(), email);
     }
 
     private void validateOwnership(String accountNumber, String email){
@@ -0,0 +1,12 @@
+package org.kz.minibank.exception;
+
+/** NBP could not be reached (timeout, error response or open circuit) and no usable rate was at hand. */
+public class ForexUnavailableException extends RuntimeException {
+    public ForexUnavailableException(String message) {
+        super(message);
+    }
+
+    public ForexUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,6 @@
+package org.kz.minibank.ledger;
+
+import java.util.Currency;
+
+record AccountInfo(Long id, String accountNumber, Currency currency) {
+}
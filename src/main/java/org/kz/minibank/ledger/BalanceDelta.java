@@ -0,0 +1,6 @@
+package org.kz.minibank.ledger;
+
+import java.math.BigDecimal;
+
+record BalanceDelta(Long accountId, BigDecimal amount) {
+}
@@ -0,0 +1,397 @@
+package org.kz.minibank.ledger;
+
+import jakarta.annotation.PreDestroy;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.DTO.CreateTransactionRequest;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.repository.AccountBalanceStripeRepository;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.TransactionRepository;
+import org.kz.minibank.service.AccountService;
+import org.kz.minibank.service.ExchangeRateService;
+import org.kz.minibank.service.FxQuoteService;
+import org.kz.minibank.service.JournalService;
+import org.kz.minibank.service.TransferProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional transfer engine that keeps balances in memory. Accounts are partitioned by account
+ * number hash into shards, each owned by a single writer thread that applies operations in order
+ * without locks. Cross-shard transfers are a two-phase handoff: the source shard debits and then
+ * hands the credit over to the target shard (or refunds the source if the target vanished).
+ * Outcomes are persisted asynchronously in batches and callers are released only after their
+ * outcome is committed.
+ * <p>
+ * While enabled the engine owns account balances, so every balance change has to go through it,
+ * and so do account deletions: the database balance lags the shard's until outcomes are persisted.
+ * Striped accounts are loaded with their pending stripe credits; the engine itself always writes
+ * to the main balance.
+ * <p>
+ * A PENDING transfer is claimed (moved to PROCESSING, with the claim time) before the engine
+ * executes it, so a second dispatch, from the recovery sweep or another node, cannot debit it again.
+ * A claim still open after {@code claim-timeout} belongs to a run whose in-memory outcome was lost,
+ * and is released for the sweep; the timeout must therefore be longer than any node can take to
+ * persist a transfer it executed. Younger claims, possibly live on another node, are left alone.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "minibank.ledger.enabled", havingValue = "true")
+public class LedgerEngine implements TransferProcessor {
+    private final AccountRepository accountRepository;
+    private final AccountBalanceStripeRepository stripeRepository;
+    private final TransactionRepository transactionRepository;
+    private final ExchangeRateService exchangeRateService;
+    private final FxQuoteService fxQuoteService;
+    private final AccountService accountService;
+    private final LedgerShard[] shards;
+    private final LedgerPersister persister;
+    private final ConcurrentMap<String, AccountInfo> accountInfos = new ConcurrentHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+    private final long ackTimeoutMs;
+    private final Duration claimTimeout;
+
+    public LedgerEngine(AccountRepository accountRepository, AccountBalanceStripeRepository stripeRepository,
+                        TransactionRepository transactionRepository, ExchangeRateService exchangeRateService,
+                        FxQuoteService fxQuoteService, AccountService accountService, JournalService journalService, TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate,
+                        InternalThreadFactory threadFactory,
+                        @Value("${minibank.ledger.shards:8}") int shardCount,
+                        @Value("${minibank.ledger.shard-queue-capacity:10000}") int shardQueueCapacity,
+                        @Value("${minibank.ledger.persist-batch-size:500}") int persistBatchSize,
+                        @Value("${minibank.ledger.persist-interval-ms:2}") long persistIntervalMs,
+                        @Value("${minibank.ledger.ack-timeout-ms:10000}") long ackTimeoutMs,
+                        @Value("${minibank.ledger.claim-timeout:PT5M}") Duration claimTimeout) {
+        if (shardCount < 1) { throw new IllegalArgumentException("minibank.ledger.shards must be at least 1!"); }
+        this.accountRepository = accountRepository;
+        this.stripeRepository = stripeRepository;
+        this.transactionRepository = transactionRepository;
+        this.exchangeRateService = exchangeRateService;
+        this.fxQuoteService = fxQuoteService;
+        this.accountService = accountService;
+        this.transactionTemplate = transactionTemplate;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.claimTimeout = claimTimeout;
+        this.shards = new LedgerShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LedgerShard(i, shardQueueCapacity, this::loadBalance, threadFactory);
+        }
+        this.persister = new LedgerPersister(transactionTemplate, jdbcTemplate, accountRepository, transactionRepository,
+                journalService, persistBatchSize, persistIntervalMs, threadFactory);
+        this.persister.start();
+    }
+
+    /** Releases claims older than {@code claim-timeout}, left behind by a node that stopped or crashed. */
+    @Scheduled(fixedDelayString = "${minibank.ledger.claim-release-interval:PT1M}")
+    public void releaseExpiredClaims() {
+        LocalDateTime claimedBefore = LocalDateTime.now().minus(claimTimeout);
+        transactionTemplate.executeWithoutResult(status -> transactionRepository.releaseClaimsBefore(claimedBefore));
+    }
+
+    @Override
+    public Transaction transfer(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount, String title,
+                                UUID quoteId) {
+        return await(submitTransfer(null, sourceAccountNumber, targetAccountNumber, amount, title, quoteId, null));
+    }
+
+    @Override
+    public Transaction completeTransfer(UUID transactionId) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new IllegalArgumentException("Transaction not found!"));
+        if (transaction.getStatus() != TransactionStatus.PENDING) return transaction;
+        if (!claim(transactionId)) {
+            return transactionRepository.findById(transactionId).orElse(transaction);
+        }
+        try {
+            return await(submitTransfer(transactionId, transaction.getSourceAccount().getAccountNumber(),
+                    transaction.getTargetAccount().getAccountNumber(), transaction.getAmount(), transaction.getTitle(),
+                    null, transaction.getLockedRate()));
+        } catch (IllegalArgumentException e) {
+            // rejected before any balance changed, so the transfer can be failed as PENDING
+            changeStatus(transactionId, TransactionStatus.PROCESSING, TransactionStatus.PENDING);
+            throw e;
+        }
+    }
+
+    private boolean claim(UUID transactionId) {
+        Integer claimed = transactionTemplate.execute(status -> transactionRepository.claim(transactionId, LocalDateTime.now()));
+        return claimed != null && claimed > 0;
+    }
+
+    private boolean changeStatus(UUID transactionId, TransactionStatus from, TransactionStatus to) {
+        Integer changed = transactionTemplate.execute(status -> transactionRepository.changeStatus(transactionId, from, to));
+        return changed != null && changed > 0;
+    }
+
+    @Override
+    public List<Transaction> transferBatch(List<CreateTransactionRequest> requests) {
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>(requests.size());
+        for (CreateTransactionRequest request : requests) {
+            try {
+                futures.add(submitTransfer(null, request.sourceAccountNumber(), request.targetAccountNumber(),
+                        request.amount(), request.title(), request.quoteId(), null));
+            } catch (IllegalArgumentException e) {
+                futures.add(CompletableFuture.completedFuture(rejected(request, e.getMessage())));
+            }
+        }
+        List<Transaction> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(await(futures.get(i)));
+            } catch (IllegalArgumentException e) {
+                results.add(rejected(requests.get(i), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public Transaction deposit(String accountNumber, BigDecimal amount) {
+        AccountInfo account = requireAccount(accountNumber);
+        requirePositive(amount);
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        LedgerShard shard = shardFor(accountNumber);
+        shard.execute(() -> {
+            if (shard.balance(account.id()) == null) {
+                result.completeExceptionally(new IllegalArgumentException("Account not found!"));
+                return;
+            }
+            shard.apply(account.id(), amount);
+            persister.submit(new LedgerOutcome(null, account.id(), account.id(), amount, "Deposit", null, TransactionStatus.SUCCESS,
+                    null, List.of(new BalanceDelta(account.id(), amount)), result));
+        });
+        return await(result);
+    }
+
+    @Override
+    public Transaction withdraw(String accountNumber, BigDecimal amount) {
+        AccountInfo account = requireAccount(accountNumber);
+        requirePositive(amount);
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        LedgerShard shard = shardFor(accountNumber);
+        shard.execute(() -> {
+            BigDecimal balance = shard.balance(account.id());
+            if (balance == null) {
+                result.completeExceptionally(new IllegalArgumentException("Account not found!"));
+            } else if (balance.compareTo(amount) < 0) {
+                persister.submit(failed(null, account, account, amount, "Withdraw", null, "Insufficient funds!", result));
+            } else {
+                shard.apply(account.id(), amount.negate());
+                persister.submit(new LedgerOutcome(null, account.id(), account.id(), amount, "Withdraw", null, TransactionStatus.SUCCESS,
+                        null, List.of(new BalanceDelta(account.id(), amount.negate())), result));
+            }
+        });
+        return await(result);
+    }
+
+    /**
+     * The account's shard checks its in-memory balance and closes the account, so no later
+     * operation, nor a credit handed over by another shard, reaches it. Its rows are deleted once
+     * all of its earlier outcomes are persisted; the account is reopened if that fails.
+     */
+    @Override
+    public void deleteAccount(Long accountId) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException("Account not found!"));
+        LedgerShard shard = shardFor(account.getAccountNumber());
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        shard.execute(() -> {
+            BigDecimal balance = shard.balance(accountId);
+            if (balance == null) {
+                closed.completeExceptionally(new IllegalArgumentException("Account not found!"));
+            } else if (balance.signum() != 0) {
+                closed.completeExceptionally(new IllegalArgumentException("Account balance must be zero to delete it!"));
+            } else {
+                shard.close(accountId);
+                closed.complete(null);
+            }
+        });
+        await(closed);
+        try {
+            if (!persister.awaitPersisted(accountId, ackTimeoutMs)) {
+                throw new IllegalStateException("Ledger did not persist the account's operations in time");
+            }
+            accountService.deleteAccount(accountId);
+        } catch (RuntimeException e) {
+            shard.handOff(() -> shard.reopen(accountId));
+            throw e;
+        }
+        accountInfos.remove(account.getAccountNumber());
+        shard.handOff(() -> shard.forget(accountId));
+    }
+
+    /** {@code fxRate} is a rate already locked into a PENDING transfer, {@code quoteId} a quote to lock one from. */
+    private CompletableFuture<Transaction> submitTransfer(UUID transactionId, String sourceAccountNumber,
+                                                          String targetAccountNumber, BigDecimal amount, String title,
+                                                          UUID quoteId, FxRate fxRate) {
+        requirePositive(amount);
+        AccountInfo source = accountInfo(sourceAccountNumber);
+        AccountInfo target = accountInfo(targetAccountNumber);
+        if (source == null || target == null) { throw new IllegalArgumentException("Account not found!"); }
+        if (title == null) { throw new IllegalArgumentException("Title is required!"); }
+
+        CurrencyPair pair = new CurrencyPair(source.currency(), target.currency());
+        FxRate lockedRate = quoteId != null ? fxQuoteService.getQuote(quoteId, pair).rate() : fxRate;
+        BigDecimal targetAmount = amount;
+        String finalTitle = title;
+        if (!source.id().equals(target.id()) && !source.currency().equals(target.currency())) {
+            targetAmount = lockedRate != null
+                    ? exchangeRateService.convert(amount, pair, lockedRate)
+                    : exchangeRateService.convert(amount, pair);
+            finalTitle = title + String.format(" [FX: %s %s -> %s %s]",
+                    amount, source.currency(), targetAmount, target.currency());
+        }
+
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        LedgerShard sourceShard = shardFor(sourceAccountNumber);
+        LedgerShard targetShard = shardFor(targetAccountNumber);
+        BigDecimal credit = targetAmount;
+        String transferTitle = finalTitle;
+        sourceShard.execute(() -> debitPhase(sourceShard, targetShard, transactionId, source, target, amount, credit,
+                transferTitle, lockedRate, result));
+        return result;
+    }
+
+    private void debitPhase(LedgerShard sourceShard, LedgerShard targetShard, UUID transactionId, AccountInfo source,
+                            AccountInfo target, BigDecimal amount, BigDecimal credit, String title, FxRate fxRate,
+                            CompletableFuture<Transaction> result) {
+        BigDecimal balance = sourceShard.balance(source.id());
+        if (balance == null) {
+            result.completeExceptionally(new IllegalArgumentException("Account not found!"));
+            return;
+        }
+        if (balance.compareTo(amount) < 0) {
+            persister.submit(failed(transactionId, source, target, amount, title, fxRate, "Insufficient funds!", result));
+            return;
+        }
+        if (source.id().equals(target.id())) {
+            persister.submit(failed(transactionId, source, target, amount, title, fxRate,
+                    "Source and target accounts must be different!", result));
+            return;
+        }
+
+        sourceShard.apply(source.id(), amount.negate());
+        if (sourceShard == targetShard) {
+            creditPhase(sourceShard, targetShard, transactionId, source, target, amount, credit, title, fxRate, result);
+        } else {
+            try {
+                targetShard.execute(() -> creditPhase(sourceShard, targetShard, transactionId, source, target, amount,
+                        credit, title, fxRate, result));
+            } catch (RuntimeException e) {
+                sourceShard.apply(source.id(), amount);
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void creditPhase(LedgerShard sourceShard, LedgerShard targetShard, UUID transactionId, AccountInfo source,
+                             AccountInfo target, BigDecimal amount, BigDecimal credit, String title, FxRate fxRate,
+                             CompletableFuture<Transaction> result) {
+        if (targetShard.balance(target.id()) == null) {
+            accountInfos.remove(target.accountNumber());
+            Runnable refund = () -> {
+                sourceShard.apply(source.id(), amount);
+                result.completeExceptionally(new IllegalArgumentException("Account not found!"));
+            };
+            if (sourceShard == targetShard) refund.run(); else sourceShard.handOff(refund);
+            return;
+        }
+        targetShard.apply(target.id(), credit);
+        persister.submit(new LedgerOutcome(transactionId, source.id(), target.id(), amount, title, fxRate, TransactionStatus.SUCCESS, null,
+                List.of(new BalanceDelta(source.id(), amount.negate()), new BalanceDelta(target.id(), credit)), result));
+    }
+
+    private LedgerOutcome failed(UUID transactionId, AccountInfo source, AccountInfo target, BigDecimal amount, String title,
+                                 FxRate fxRate, String reason, CompletableFuture<Transaction> result) {
+        return new LedgerOutcome(transactionId, source.id(), target.id(), amount, title, fxRate, TransactionStatus.FAILED, reason,
+                List.of(), result);
+    }
+
+    private Transaction rejected(CreateTransactionRequest request, String reason) {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(request.amount());
+        transaction.setTitle(request.title());
+        transaction.setStatus(TransactionStatus.FAILED);
+        transaction.setFailureReason(reason);
+        return transaction;
+    }
+
+    private AccountInfo requireAccount(String accountNumber) {
+        AccountInfo account = accountInfo(accountNumber);
+        if (account == null) { throw new IllegalArgumentException("Account not found!"); }
+        return account;
+    }
+
+    private void requirePositive(BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive!");
+        }
+    }
+
+    private AccountInfo accountInfo(String accountNumber) {
+        if (accountNumber == null) return null;
+        AccountInfo info = accountInfos.get(accountNumber);
+        if (info == null) {
+            Account account = accountRepository.findByAccountNumber(accountNumber);
+            if (account == null) return null;
+            info = new AccountInfo(account.getId(), account.getAccountNumber(), account.getCurrency());
+            accountInfos.putIfAbsent(accountNumber, info);
+        }
+        return info;
+    }
+
+    private BigDecimal loadBalance(Long accountId) {
+        Account account = accountRepository.findById(accountId).orElse(null);
+        if (account == null) return null;
+        if (account.getBalanceStripes() <= 0) return account.getBalance();
+        return account.getBalance().add(stripeRepository.sumByAccountId(accountId));
+    }
+
+    private LedgerShard shardFor(String accountNumber) {
+        return shards[Math.floorMod(accountNumber.hashCode(), shards.length)];
+    }
+
+    private <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Ledger did not acknowledge the operation in time", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (LedgerShard shard : shards) {
+            shard.shutdown();
+        }
+        persister.shutdown();
+    }
+}
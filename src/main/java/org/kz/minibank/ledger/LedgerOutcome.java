@@ -0,0 +1,30 @@
+package org.kz.minibank.ledger;
+
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Everything the persister has to write for one ledger operation: the transaction row
+ * and the balance deltas it applied in memory. {@code result} is completed once both are committed.
+ * {@code transactionId} is set when the operation completes an already stored PENDING transaction,
+ * which is then updated instead of inserting a new row.
+ */
+record LedgerOutcome(
+        UUID transactionId,
+        Long sourceAccountId,
+        Long targetAccountId,
+        BigDecimal amount,
+        String title,
+        FxRate fxRate,
+        TransactionStatus status,
+        String failureReason,
+        List<BalanceDelta> deltas,
+        CompletableFuture<Transaction> result
+) {
+}
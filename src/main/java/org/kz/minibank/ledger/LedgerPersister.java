@@ -0,0 +1,227 @@
+package org.kz.minibank.ledger;
+
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.LedgerEntry;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.TransactionRepository;
+import org.kz.minibank.service.JournalService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes ledger outcomes in batches: one database transaction per batch containing all transaction
+ * rows, their journal entries and one {@code balance = balance + delta} update per touched account.
+ * Deltas commute, so the order in which shards hand over their outcomes does not matter for the
+ * persisted balances.
+ * <p>
+ * The shards' in-memory balances stay authoritative when a write fails: a failing batch is split
+ * up, and an outcome that still cannot be written is parked and retried until it goes through.
+ * Its caller may time out in the meantime, so an unacknowledged operation is in doubt, not failed.
+ */
+class LedgerPersister implements Runnable {
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE id = ?";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long PARKED_RETRY_INTERVAL_MS = 1000;
+
+    private final BlockingQueue<LedgerOutcome> queue = new LinkedBlockingQueue<>();
+    /** Submitted outcomes not persisted yet, counted per account they touch. */
+    private final ConcurrentHashMap<Long, Integer> unpersisted = new ConcurrentHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final JournalService journalService;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final Thread thread;
+    /** Outcomes that failed on their own; touched by the persister thread only. */
+    private final List<LedgerOutcome> parked = new ArrayList<>();
+    private long nextParkedRetry;
+    private volatile boolean running = true;
+
+    LedgerPersister(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate,
+                    AccountRepository accountRepository, TransactionRepository transactionRepository,
+                    JournalService journalService, int batchSize, long pollIntervalMs,
+                    InternalThreadFactory threadFactory) {
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.journalService = journalService;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.thread = threadFactory.newThread("ledger-persister", this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void submit(LedgerOutcome outcome) {
+        track(outcome, 1);
+        queue.add(outcome);
+    }
+
+    /**
+     * Waits until no submitted outcome touching {@code accountId} is left unpersisted; returns false
+     * on timeout. Only meaningful once nothing submits outcomes for the account anymore.
+     */
+    boolean awaitPersisted(Long accountId, long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (unpersisted.containsKey(accountId)) {
+            if (System.nanoTime() - deadline > 0) return false;
+            try {
+                Thread.sleep(Math.max(1, pollIntervalMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void track(LedgerOutcome outcome, int delta) {
+        unpersisted.merge(outcome.sourceAccountId(), delta, LedgerPersister::addOrRemove);
+        if (!outcome.targetAccountId().equals(outcome.sourceAccountId())) {
+            unpersisted.merge(outcome.targetAccountId(), delta, LedgerPersister::addOrRemove);
+        }
+    }
+
+    private static Integer addOrRemove(Integer count, Integer delta) {
+        int sum = count + delta;
+        return sum == 0 ? null : sum;
+    }
+
+    @Override
+    public void run() {
+        List<LedgerOutcome> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                LedgerOutcome first = queue.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    persistBatch(batch);
+                }
+                retryParked();
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+        IllegalStateException stopped = new IllegalStateException("Ledger stopped before the operation was persisted");
+        for (LedgerOutcome outcome : parked) {
+            outcome.result().completeExceptionally(stopped);
+        }
+    }
+
+    void shutdown() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /** One bad outcome must not hold back the rest of its batch, so a failing batch is retried one by one. */
+    private void persistBatch(List<LedgerOutcome> batch) {
+        if (batch.size() > 1 && persistWithRetry(batch)) return;
+        for (LedgerOutcome outcome : batch) {
+            if (!persistWithRetry(List.of(outcome))) parked.add(outcome);
+        }
+    }
+
+    private void retryParked() {
+        if (parked.isEmpty() || System.currentTimeMillis() < nextParkedRetry) return;
+        for (Iterator<LedgerOutcome> it = parked.iterator(); it.hasNext(); ) {
+            if (persistWithRetry(List.of(it.next()))) it.remove();
+        }
+        nextParkedRetry = System.currentTimeMillis() + PARKED_RETRY_INTERVAL_MS;
+    }
+
+    private boolean persistWithRetry(List<LedgerOutcome> batch) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try {
+                List<Transaction> saved = transactionTemplate.execute(status -> persist(batch));
+                int next = 0;
+                for (LedgerOutcome outcome : batch) {
+                    track(outcome, -1);
+                    outcome.result().complete(saved.get(next++));
+                }
+                return true;
+            } catch (RuntimeException e) {
+                // retried; the deltas are already applied in memory and must reach the database
+            }
+        }
+        return false;
+    }
+
+    private List<Transaction> persist(List<LedgerOutcome> batch) {
+        Set<Long> accountIds = new HashSet<>();
+        Set<UUID> pendingIds = new HashSet<>();
+        Map<Long, BigDecimal> netDeltas = new HashMap<>();
+        for (LedgerOutcome outcome : batch) {
+            accountIds.add(outcome.sourceAccountId());
+            accountIds.add(outcome.targetAccountId());
+            if (outcome.transactionId() != null) pendingIds.add(outcome.transactionId());
+            outcome.deltas().forEach(delta -> netDeltas.merge(delta.accountId(), delta.amount(), BigDecimal::add));
+        }
+
+        Map<Long, Account> accounts = new HashMap<>();
+        accountRepository.findAllById(accountIds).forEach(account -> accounts.put(account.getId(), account));
+        Map<UUID, Transaction> pending = new HashMap<>();
+        transactionRepository.findAllById(pendingIds).forEach(transaction -> pending.put(transaction.getId(), transaction));
+
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        for (LedgerOutcome outcome : batch) {
+            Transaction transaction = outcome.transactionId() != null
+                    ? pending.getOrDefault(outcome.transactionId(), new Transaction())
+                    : new Transaction();
+            transaction.setSourceAccount(accounts.get(outcome.sourceAccountId()));
+            transaction.setTargetAccount(accounts.get(outcome.targetAccountId()));
+            transaction.setAmount(outcome.amount());
+            transaction.setTitle(outcome.title());
+            transaction.setLockedRate(outcome.fxRate());
+            transaction.setStatus(outcome.status());
+            transaction.setFailureReason(outcome.failureReason());
+            transactions.add(transaction);
+        }
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+
+        List<LedgerEntry> entries = new ArrayList<>();
+        int next = 0;
+        for (LedgerOutcome outcome : batch) {
+            Transaction transaction = saved.get(next++);
+            for (BalanceDelta delta : outcome.deltas()) {
+                Account account = accounts.get(delta.accountId());
+                entries.add(delta.amount().signum() < 0
+                        ? LedgerEntry.debit(account, transaction, delta.amount().negate())
+                        : LedgerEntry.credit(account, transaction, delta.amount()));
+            }
+        }
+        journalService.append(entries);
+        transactionRepository.flush();
+
+        List<Object[]> updates = new ArrayList<>(netDeltas.size());
+        netDeltas.forEach((accountId, delta) -> {
+            if (delta.signum() != 0) updates.add(new Object[]{delta, accountId});
+        });
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, updates);
+        return saved;
+    }
+}
@@ -0,0 +1,101 @@
+package org.kz.minibank.ledger;
+
+import org.kz.minibank.config.InternalThreadFactory;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * One partition of the in-memory ledger. All balances of the shard are read and written only by
+ * the shard's single writer thread, so no locking is needed around them.
+ */
+class LedgerShard {
+    private final Map<Long, BigDecimal> balances = new HashMap<>();
+    /** Accounts being deleted or deleted; they are unknown to every operation. */
+    private final Set<Long> closed = new HashSet<>();
+    private final Queue<Runnable> handoffs = new ConcurrentLinkedQueue<>();
+    private final Function<Long, BigDecimal> balanceLoader;
+    private final ThreadPoolExecutor writer;
+
+    LedgerShard(int index, int queueCapacity, Function<Long, BigDecimal> balanceLoader, InternalThreadFactory threadFactory) {
+        this.balanceLoader = balanceLoader;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory.named("ledger-shard-" + index),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    void execute(Runnable task) {
+        writer.execute(() -> {
+            runHandoffs();
+            task.run();
+        });
+    }
+
+    /**
+     * Runs work another shard has already committed to, such as a refund, which must not be lost
+     * to a full queue. Handoffs bypass the bounded queue and run ahead of the next queued task;
+     * when the queue is full there always is one.
+     */
+    void handOff(Runnable task) {
+        handoffs.add(task);
+        try {
+            writer.execute(this::runHandoffs);
+        } catch (RejectedExecutionException e) {
+            // picked up by the tasks already queued
+        }
+    }
+
+    private void runHandoffs() {
+        Runnable handoff;
+        while ((handoff = handoffs.poll()) != null) {
+            handoff.run();
+        }
+    }
+
+    /** Must only be called from the shard's writer thread. Returns null for unknown and closed accounts. */
+    BigDecimal balance(Long accountId) {
+        if (closed.contains(accountId)) return null;
+        BigDecimal balance = balances.get(accountId);
+        if (balance == null) {
+            balance = balanceLoader.apply(accountId);
+            if (balance != null) balances.put(accountId, balance);
+        }
+        return balance;
+    }
+
+    /** Must only be called from the shard's writer thread. */
+    void apply(Long accountId, BigDecimal delta) {
+        balances.merge(accountId, delta, BigDecimal::add);
+    }
+
+    /** Must only be called from the shard's writer thread. */
+    void close(Long accountId) {
+        closed.add(accountId);
+    }
+
+    /** Must only be called from the shard's writer thread. */
+    void reopen(Long accountId) {
+        closed.remove(accountId);
+    }
+
+    /** Drops the balance of a deleted account, which stays closed. Must only be called from the shard's writer thread. */
+    void forget(Long accountId) {
+        balances.remove(accountId);
+    }
+
+    void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -4,7 +4,6 @@ package org.kz.minibank.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
-import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.kz.minibank.converter.CurrencyConverter;
@@ -15,9 +14,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Currency;
-import java.util.List;
 import java.util.Random;
 
 @Entity
@@ -41,6 +38,10 @@ public class Account {
     @Min(0)
     private BigDecimal balance = BigDecimal.ZERO;
 
+    /** Number of {@link AccountBalanceStripe} rows that take this account's credits; 0 disables striping. */
+    @Min(0)
+    private int balanceStripes;
+
     @NotNull
     @Convert(converter = CurrencyConverter.class)
     private Currency currency;
@@ -49,14 +50,6 @@ public class Account {
     @ManyToOne
     private User user;
 
-    @Setter(AccessLevel.NONE)
-    @OneToMany(mappedBy = "sourceAccount", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Transaction> outGoingTransactions = new ArrayList<>();
-
-    @Setter(AccessLevel.NONE)
-    @OneToMany(mappedBy = "targetAccount", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Transaction> incomingTransactions = new ArrayList<>();
-
     @CreatedDate
     private LocalDateTime createdDate;
 
@@ -73,6 +66,15 @@ public class Account {
         this.accountNumber = generateAccountNumber();
     }
 
+    /** The main balance as {@link Money}; the column stays a decimal. */
+    public Money moneyBalance() {
+        return Money.of(balance, currency);
+    }
+
+    public void setMoneyBalance(Money balance) {
+        this.balance = balance.toBigDecimal();
+    }
+
     private String generateAccountNumber() {
         String timestamp = String.valueOf(System.currentTimeMillis());
         Random random = new Random();
@@ -84,19 +86,4 @@ public class Account {
         }
         return timestamp + randomPart.toString();
     }
-
-    public void addOutGoingTransaction(Transaction transaction) {
-        this.outGoingTransactions.add(transaction);
-        transaction.setSourceAccount(this);
-    }
-
-    public void addIncomingTransaction(Transaction transaction) {
-        this.incomingTransactions.add(transaction);
-        transaction.setTargetAccount(this);
-    }
-
-    public void removeTransaction(Transaction transaction) {
-        this.outGoingTransactions.remove(transaction);
-        transaction.setTargetAccount(null);
-    }
 }
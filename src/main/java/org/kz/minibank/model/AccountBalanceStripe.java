@@ -0,0 +1,40 @@
+package org.kz.minibank.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * One of the sub-balances of a striped account. Credits are added here instead of to
+ * {@link Account#getBalance()}, so concurrent incoming transfers do not contend on the account row.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "account_balance_stripes",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "stripe"}))
+public class AccountBalanceStripe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id")
+    private Account account;
+
+    private int stripe;
+
+    @NotNull
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    public AccountBalanceStripe(Account account, int stripe) {
+        this.account = account;
+        this.stripe = stripe;
+    }
+}
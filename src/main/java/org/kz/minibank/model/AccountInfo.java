@@ -0,0 +1,44 @@
+package org.kz.minibank.model;
+
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.kz.minibank.converter.CurrencyConverter;
+
+import java.util.Currency;
+
+/**
+ * Read-only view of the {@code accounts} columns that never change after an account is created:
+ * number, currency and owner. Ownership checks load this instead of {@link Account}, so it can be
+ * kept in the second-level cache. Balances are only ever read through {@link Account}, which is not
+ * cached because the ledger persister updates balances with plain JDBC.
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor
+@Table(name = "accounts")
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "account-info")
+@NaturalIdCache(region = "account-info-by-number")
+public class AccountInfo {
+    @Id
+    private Long id;
+
+    @NaturalId
+    private String accountNumber;
+
+    @Convert(converter = CurrencyConverter.class)
+    private Currency currency;
+
+    @ManyToOne
+    private User user;
+}
@@ -0,0 +1,41 @@
+package org.kz.minibank.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Balance of an account made of all ledger entries created before {@code asOf}.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "balance_snapshots")
+public class BalanceSnapshot {
+    public static final LocalDateTime ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Id
+    private Long accountId;
+
+    @Version
+    private Long version;
+
+    @NotNull
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    @NotNull
+    private LocalDateTime asOf = ORIGIN;
+
+    public BalanceSnapshot(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public void rollForward(BigDecimal delta, LocalDateTime asOf) {
+        this.balance = this.balance.add(delta);
+        this.asOf = asOf;
+    }
+}
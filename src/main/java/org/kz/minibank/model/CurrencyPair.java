@@ -3,4 +3,14 @@ package org.kz.minibank.model;
 import java.util.Currency;
 
 public record CurrencyPair(Currency base, Currency counter) {
+
+    /** Parses a pair of ISO 4217 codes given by a client; the two currencies must differ. */
+    public static CurrencyPair of(String baseCode, String counterCode) {
+        Currency base = Currency.getInstance(baseCode.toUpperCase());
+        Currency counter = Currency.getInstance(counterCode.toUpperCase());
+        if (base.equals(counter)) {
+            throw new IllegalArgumentException("Currencies must be different!");
+        }
+        return new CurrencyPair(base, counter);
+    }
 }
@@ -0,0 +1,5 @@
+package org.kz.minibank.model;
+
+public enum EntryDirection {
+    DEBIT, CREDIT
+}
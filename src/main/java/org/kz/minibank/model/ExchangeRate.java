@@ -15,7 +15,8 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "exchange_rates")
+@Table(name = "exchange_rates",
+        indexes = @Index(name = "idx_exchange_rates_pair_timestamp", columnList = "pair, timestamp"))
 @NoArgsConstructor
 @Getter
 @Setter
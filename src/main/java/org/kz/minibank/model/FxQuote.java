@@ -0,0 +1,14 @@
+package org.kz.minibank.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A rate locked for converting from {@code pair.base()} to {@code pair.counter()} until {@code expiresAt}.
+ * The rate is kept as cached, inverse or not, so quoted conversions round like unquoted ones.
+ */
+public record FxQuote(UUID id, CurrencyPair pair, FxRate rate, LocalDateTime expiresAt) {
+    public boolean isExpired(LocalDateTime now) {
+        return !now.isBefore(expiresAt);
+    }
+}
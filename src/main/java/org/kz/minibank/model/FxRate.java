@@ -0,0 +1,27 @@
+package org.kz.minibank.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * A rate as stored: either base-to-counter (multiplied) or counter-to-base (divided by), so
+ * conversions round exactly like the stored row dictates.
+ */
+public record FxRate(long scaledRate, boolean inverse) {
+    public static FxRate of(BigDecimal rate, boolean inverse) {
+        return new FxRate(Money.scaledRate(rate), inverse);
+    }
+
+    public Money convert(Money amount, Currency target, RoundingMode rounding) {
+        return inverse
+                ? amount.convertInverse(scaledRate, target, rounding)
+                : amount.convert(scaledRate, target, rounding);
+    }
+
+    /** Base-to-counter, for display; an inverse rate is rounded here, so never convert with it. */
+    public BigDecimal directRate() {
+        BigDecimal rate = BigDecimal.valueOf(scaledRate, Money.RATE_SCALE);
+        return inverse ? BigDecimal.ONE.divide(rate, Money.RATE_SCALE, RoundingMode.HALF_UP) : rate;
+    }
+}
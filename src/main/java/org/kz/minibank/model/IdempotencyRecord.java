@@ -0,0 +1,53 @@
+package org.kz.minibank.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "idempotency_records",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"owner_email", "idempotency_key"}))
+public class IdempotencyRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "owner_email")
+    private String ownerEmail;
+
+    @NotNull
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @NotNull
+    @Column(length = 64)
+    private String requestHash;
+
+    @Column(length = 4000)
+    private String responseBody;
+
+    private boolean completed;
+
+    @NotNull
+    private LocalDateTime createdDate;
+
+    public IdempotencyRecord(String ownerEmail, String idempotencyKey, String requestHash) {
+        this.ownerEmail = ownerEmail;
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.createdDate = LocalDateTime.now();
+    }
+
+    public void complete(String responseBody) {
+        this.responseBody = responseBody;
+        this.completed = true;
+    }
+}
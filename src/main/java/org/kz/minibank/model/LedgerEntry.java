@@ -0,0 +1,84 @@
+package org.kz.minibank.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.kz.minibank.converter.CurrencyConverter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.UUID;
+
+/**
+ * One leg of a balance change in the append-only journal. Entries are never updated; a transfer
+ * writes a debit on the source account and a credit on the target account, each in the
+ * account's own currency. Accounts and transactions are referenced by id only, so the journal
+ * outlives deleted accounts and their transaction history.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "ledger_entries",
+        indexes = @Index(name = "idx_ledger_entries_account_created", columnList = "account_id, created_date"))
+public class LedgerEntry {
+    /** Transaction id of opening entries, which carry the balance an account had before it was journaled. */
+    public static final UUID OPENING_TRANSACTION_ID = new UUID(0, 0);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entry_seq")
+    @SequenceGenerator(name = "ledger_entry_seq", sequenceName = "ledger_entry_seq", allocationSize = 50)
+    private Long id;
+
+    @NotNull
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @NotNull
+    private UUID transactionId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private EntryDirection direction;
+
+    @NotNull
+    @Min(0)
+    private BigDecimal amount;
+
+    @NotNull
+    @Convert(converter = CurrencyConverter.class)
+    private Currency currency;
+
+    @NotNull
+    @Column(name = "created_date")
+    private LocalDateTime createdDate;
+
+    private LedgerEntry(Account account, UUID transactionId, EntryDirection direction, BigDecimal amount) {
+        this.accountId = account.getId();
+        this.transactionId = transactionId;
+        this.direction = direction;
+        this.amount = amount;
+        this.currency = account.getCurrency();
+        this.createdDate = LocalDateTime.now();
+    }
+
+    public static LedgerEntry debit(Account account, Transaction transaction, BigDecimal amount) {
+        return new LedgerEntry(account, transaction.getId(), EntryDirection.DEBIT, amount);
+    }
+
+    public static LedgerEntry credit(Account account, Transaction transaction, BigDecimal amount) {
+        return new LedgerEntry(account, transaction.getId(), EntryDirection.CREDIT, amount);
+    }
+
+    /** The first entry of an account; {@code balance} is what the journal has to add to match the account. */
+    public static LedgerEntry opening(Account account, BigDecimal balance) {
+        return new LedgerEntry(account, OPENING_TRANSACTION_ID,
+                balance.signum() < 0 ? EntryDirection.DEBIT : EntryDirection.CREDIT, balance.abs());
+    }
+
+    public BigDecimal signedAmount() {
+        return direction == EntryDirection.DEBIT ? amount.negate() : amount;
+    }
+}
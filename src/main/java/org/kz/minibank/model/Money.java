@@ -0,0 +1,134 @@
+package org.kz.minibank.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount as a whole number of minor units (cents, groszy, yen) of its currency, scaled by
+ * {@link Currency#getDefaultFractionDigits()}. Arithmetic is plain {@code long} math, checked for
+ * overflow, so it allocates nothing beyond the result. FX conversion takes a rate as a {@code long}
+ * scaled by {@link #RATE_SCALE} and rounds once, to the target currency's minor unit.
+ */
+public record Money(long minorUnits, Currency currency) implements Comparable<Money> {
+    public static final int RATE_SCALE = 4;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+        if (currency.getDefaultFractionDigits() < 0) {
+            throw new IllegalArgumentException("Currency " + currency + " has no minor unit!");
+        }
+    }
+
+    /** Exact conversion from a decimal amount; fails if it has more decimal places than the currency. */
+    public static Money of(BigDecimal amount, Currency currency) {
+        try {
+            return new Money(amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.UNNECESSARY)
+                    .unscaledValue().longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " is not a valid " + currency + " amount!");
+        }
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    /** A decimal FX rate as a long scaled by {@link #RATE_SCALE}. */
+    public static long scaledRate(BigDecimal rate) {
+        return rate.setScale(RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    /** {@code this * rate} in {@code target}, the rate being a {@link #scaledRate(BigDecimal)}. */
+    public Money convert(long scaledRate, Currency target, RoundingMode rounding) {
+        int exponent = fractionDigits(target) - fractionDigits(currency) - RATE_SCALE;
+        long product = Math.multiplyExact(minorUnits, scaledRate);
+        return new Money(exponent >= 0
+                ? Math.multiplyExact(product, powerOfTen(exponent))
+                : divide(product, powerOfTen(-exponent), rounding), target);
+    }
+
+    /** {@code this / rate} in {@code target}, the rate being a {@link #scaledRate(BigDecimal)}. */
+    public Money convertInverse(long scaledRate, Currency target, RoundingMode rounding) {
+        if (scaledRate <= 0) { throw new IllegalArgumentException("Exchange rate must be positive!"); }
+        int exponent = fractionDigits(target) - fractionDigits(currency) + RATE_SCALE;
+        long dividend = minorUnits;
+        long divisor = scaledRate;
+        if (exponent >= 0) {
+            dividend = Math.multiplyExact(dividend, powerOfTen(exponent));
+        } else {
+            divisor = Math.multiplyExact(divisor, powerOfTen(-exponent));
+        }
+        return new Money(divide(dividend, divisor, rounding), target);
+    }
+
+    /** JSON and persistence boundary. */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency + "!");
+        }
+    }
+
+    private static int fractionDigits(Currency currency) {
+        return currency.getDefaultFractionDigits();
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) throw new ArithmeticException("long overflow");
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /** {@code dividend / divisor} for a positive divisor, rounded with HALF_UP or HALF_EVEN. */
+    private static long divide(long dividend, long divisor, RoundingMode rounding) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        int half = Long.compare(remainder, divisor - remainder);
+        boolean awayFromZero = switch (rounding) {
+            case HALF_UP -> half >= 0;
+            case HALF_EVEN -> half > 0 || (half == 0 && (quotient & 1) != 0);
+            default -> throw new IllegalArgumentException("Unsupported FX rounding mode " + rounding + "!");
+        };
+        if (!awayFromZero || remainder == 0) return quotient;
+        return dividend < 0 ? quotient - 1 : quotient + 1;
+    }
+}
@@ -0,0 +1,95 @@
+package org.kz.minibank.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A future-dated or recurring transfer. Accounts are referenced by number, so a schedule outlives
+ * the accounts it points at and simply fails once one of them is gone.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "scheduled_transfers",
+        indexes = @Index(name = "idx_scheduled_transfers_due", columnList = "active, next_execution, id"))
+public class ScheduledTransfer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Version
+    private Long version;
+
+    @NotBlank
+    private String ownerEmail;
+
+    @NotBlank
+    private String sourceAccountNumber;
+
+    @NotBlank
+    private String targetAccountNumber;
+
+    @NotNull
+    @Min(0)
+    private BigDecimal amount;
+
+    @NotBlank
+    private String title;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private TransferFrequency frequency;
+
+    @NotNull
+    private LocalDateTime firstExecution;
+
+    /** Due time of the next execution; null once the schedule is finished. */
+    @Column(name = "next_execution")
+    private LocalDateTime nextExecution;
+
+    private int executions;
+
+    private boolean active = true;
+
+    private UUID lastTransactionId;
+
+    private String lastFailureReason;
+
+    public ScheduledTransfer(String ownerEmail, String sourceAccountNumber, String targetAccountNumber, BigDecimal amount,
+                             String title, TransferFrequency frequency, LocalDateTime firstExecution) {
+        this.ownerEmail = ownerEmail;
+        this.sourceAccountNumber = sourceAccountNumber;
+        this.targetAccountNumber = targetAccountNumber;
+        this.amount = amount;
+        this.title = title;
+        this.frequency = frequency;
+        this.firstExecution = firstExecution;
+        this.nextExecution = firstExecution;
+    }
+
+    public boolean isDue(LocalDateTime now) {
+        return active && nextExecution != null && !nextExecution.isAfter(now);
+    }
+
+    /** Moves to the next occurrence, one at a time, so every missed occurrence is executed once. */
+    public void advance() {
+        executions++;
+        nextExecution = frequency.occurrence(firstExecution, executions);
+        if (nextExecution == null) active = false;
+    }
+
+    public void cancel() {
+        active = false;
+        nextExecution = null;
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 @Entity
@@ -22,6 +23,10 @@ import java.util.UUID;
 @Setter
 @NoArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
+@Table(indexes = {
+        @Index(name = "idx_transaction_source_timestamp", columnList = "source_account_id, timestamp, id"),
+        @Index(name = "idx_transaction_target_timestamp", columnList = "target_account_id, timestamp, id")
+})
 public class Transaction {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -45,6 +50,16 @@ public class Transaction {
 
     private String failureReason;
 
+    /** Rate locked by an FX quote; when set, the transfer converts at it instead of a live rate. */
+    @Column(precision = 10, scale = 4)
+    private BigDecimal fxRate;
+
+    /** Whether {@link #fxRate} is counter-to-base, so amounts are divided by it rather than multiplied. */
+    private boolean fxRateInverse;
+
+    /** When the transfer was last claimed (moved to PROCESSING) for execution. */
+    private LocalDateTime claimedAt;
+
     @NotNull
     @ManyToOne
     @JoinColumn(name = "source_account_id")
@@ -64,7 +79,22 @@ public class Transaction {
     }
 
 
+    public FxRate getLockedRate() {
+        return fxRate != null ? FxRate.of(fxRate, fxRateInverse) : null;
+    }
+
+    public void setLockedRate(FxRate rate) {
+        this.fxRate = rate != null ? BigDecimal.valueOf(rate.scaledRate(), Money.RATE_SCALE) : null;
+        this.fxRateInverse = rate != null && rate.inverse();
+    }
+
     public void setTimeStamp(){
         this.timestamp = LocalDateTime.now();
     }
+
+    /** Truncated to what the column stores, so a history cursor taken from a fresh entity matches the row. */
+    @PrePersist
+    void initTimestamp() {
+        this.timestamp = (timestamp != null ? timestamp : LocalDateTime.now()).truncatedTo(ChronoUnit.MICROS);
+    }
 }
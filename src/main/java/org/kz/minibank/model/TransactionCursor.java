@@ -0,0 +1,50 @@
+package org.kz.minibank.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Position in an account's transaction history, which is ordered newest first by
+ * {@code (timestamp, id)}. Clients only see it as an opaque token.
+ */
+public record TransactionCursor(LocalDateTime timestamp, UUID id) {
+    /**
+     * UUIDs are compared as unsigned 128-bit numbers like the database does, not
+     * with {@link UUID#compareTo}, so merging rows in Java keeps the order the queries seek on.
+     */
+    public static final Comparator<UUID> UUID_ORDER = TransactionCursor::compareUnsigned;
+
+    private static final UUID LOWEST_ID = new UUID(0, 0);
+
+    /** Before the newest possible transaction, i.e. the start of the history. */
+    public static final TransactionCursor START = before(LocalDateTime.of(9999, 12, 31, 0, 0));
+
+    /** Positioned so that what follows it is exactly the transactions older than {@code timestamp}. */
+    public static TransactionCursor before(LocalDateTime timestamp) {
+        return new TransactionCursor(timestamp, LOWEST_ID);
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestamp + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 2) throw new IllegalArgumentException("Invalid cursor!");
+            return new TransactionCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
@@ -1,5 +1,7 @@
 package org.kz.minibank.model;
 
 public enum TransactionStatus {
-    PENDING, SUCCESS, FAILED
+    PENDING, SUCCESS, FAILED,
+    /** A PENDING transfer claimed by the in-memory ledger, which has yet to persist its outcome. */
+    PROCESSING
 }
@@ -0,0 +1,21 @@
+package org.kz.minibank.model;
+
+import java.time.LocalDateTime;
+
+public enum TransferFrequency {
+    ONCE, DAILY, WEEKLY, MONTHLY;
+
+    /**
+     * The n-th execution time (0-based) of a schedule starting at {@code first}, or null if there is
+     * none. Always computed from the first execution, so monthly orders on the 31st stay on the
+     * last day of shorter months instead of drifting.
+     */
+    public LocalDateTime occurrence(LocalDateTime first, int n) {
+        return switch (this) {
+            case ONCE -> n == 0 ? first : null;
+            case DAILY -> first.plusDays(n);
+            case WEEKLY -> first.plusWeeks(n);
+            case MONTHLY -> first.plusMonths(n);
+        };
+    }
+}
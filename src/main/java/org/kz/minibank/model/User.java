@@ -7,6 +7,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -14,7 +16,6 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -24,6 +25,7 @@ import java.util.List;
 @Setter
 @NoArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -49,10 +51,6 @@ public class User implements UserDetails {
     @LastModifiedDate
     private LocalDateTime lastModifiedDate;
 
-    @Setter(AccessLevel.NONE)
-    @OneToMany(mappedBy = "user")
-    private List<Account> accounts = new ArrayList<>();
-
     public User(String name, String surname, String email, String password) {
         this.name = name;
         this.surname = surname;
@@ -60,16 +58,6 @@ public class User implements UserDetails {
         this.password = password;
     }
 
-    public void addAccount(Account account) {
-        this.accounts.add(account);
-        account.setUser(this);
-    }
-
-    public void removeAccount(Account account) {
-        this.accounts.remove(account);
-        account.setUser(null);
-    }
-
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of();
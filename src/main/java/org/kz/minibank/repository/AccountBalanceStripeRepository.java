@@ -0,0 +1,37 @@
+package org.kz.minibank.repository;
+
+import jakarta.persistence.LockModeType;
+import org.kz.minibank.model.AccountBalanceStripe;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface AccountBalanceStripeRepository extends JpaRepository<AccountBalanceStripe, Long> {
+
+    @Modifying
+    @Query("UPDATE AccountBalanceStripe s SET s.amount = s.amount + :amount WHERE s.account.id = :accountId AND s.stripe = :stripe")
+    int addToStripe(@Param("accountId") Long accountId, @Param("stripe") int stripe, @Param("amount") BigDecimal amount);
+
+    @Query("SELECT COALESCE(SUM(s.amount), 0) FROM AccountBalanceStripe s WHERE s.account.id = :accountId")
+    BigDecimal sumByAccountId(@Param("accountId") Long accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceStripe s WHERE s.account.id = :accountId ORDER BY s.stripe")
+    List<AccountBalanceStripe> findAllByAccountIdForUpdate(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query("UPDATE AccountBalanceStripe s SET s.amount = 0 WHERE s.account.id = :accountId")
+    int resetByAccountId(@Param("accountId") Long accountId);
+
+    @Query("SELECT DISTINCT s.account.id FROM AccountBalanceStripe s WHERE s.amount <> 0")
+    List<Long> findAccountIdsWithPendingCredits();
+
+    @Modifying
+    @Query("DELETE FROM AccountBalanceStripe s WHERE s.account.id = :accountId")
+    int deleteAllByAccountId(@Param("accountId") Long accountId);
+}
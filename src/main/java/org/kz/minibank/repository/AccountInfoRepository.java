@@ -0,0 +1,10 @@
+package org.kz.minibank.repository;
+
+import org.kz.minibank.model.AccountInfo;
+import org.springframework.data.repository.Repository;
+
+import java.util.Optional;
+
+public interface AccountInfoRepository extends Repository<AccountInfo, Long>, AccountInfoRepositoryCustom {
+    Optional<AccountInfo> findById(Long id);
+}
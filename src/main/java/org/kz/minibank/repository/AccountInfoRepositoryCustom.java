@@ -0,0 +1,16 @@
+package org.kz.minibank.repository;
+
+import org.kz.minibank.model.AccountInfo;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface AccountInfoRepositoryCustom {
+    /** Natural-id lookup, answered from the second-level cache when it is enabled; null if there is no such account. */
+    @Transactional(readOnly = true)
+    AccountInfo findByAccountNumber(String accountNumber);
+
+    /**
+     * Drops a deleted account from the second-level cache, where read-only entries are never
+     * invalidated otherwise. Inside a transaction this happens once it commits.
+     */
+    void evict(Long id);
+}
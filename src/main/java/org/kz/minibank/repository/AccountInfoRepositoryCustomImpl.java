@@ -0,0 +1,40 @@
+package org.kz.minibank.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.kz.minibank.model.AccountInfo;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class AccountInfoRepositoryCustomImpl implements AccountInfoRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public AccountInfo findByAccountNumber(String accountNumber) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(AccountInfo.class).load(accountNumber);
+    }
+
+    @Override
+    public void evict(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictNow(id);
+            return;
+        }
+        // before commit another request could still load the row and cache it again
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictNow(id);
+            }
+        });
+    }
+
+    private void evictNow(Long id) {
+        org.hibernate.Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(AccountInfo.class, id);
+        cache.evictNaturalIdData(AccountInfo.class);
+    }
+}
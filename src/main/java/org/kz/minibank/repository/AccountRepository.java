@@ -1,11 +1,29 @@
 package org.kz.minibank.repository;
 
+import jakarta.persistence.LockModeType;
 import org.kz.minibank.model.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     List<Account> findAllByUserEmail(String email);
     Account findByAccountNumber(String number);
+    List<Account> findAllByAccountNumberIn(Collection<String> numbers);
+    long countByAccountNumberInAndUserEmail(Collection<String> numbers, String email);
+    boolean existsByUserId(Long userId);
+
+    @Query("SELECT a.id FROM Account a WHERE a.accountNumber = :accountNumber")
+    Long findIdByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    @Query("SELECT a.balanceStripes FROM Account a WHERE a.id = :id")
+    int findBalanceStripesById(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Account findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,14 @@
+package org.kz.minibank.repository;
+
+import org.kz.minibank.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    /** The cutoff of the most recent snapshot roll; null when nothing was rolled yet. */
+    @Query("SELECT MAX(s.asOf) FROM BalanceSnapshot s")
+    LocalDateTime findLatestAsOf();
+}
@@ -3,7 +3,25 @@ package org.kz.minibank.repository;
 import org.kz.minibank.model.CurrencyPair;
 import org.kz.minibank.model.ExchangeRate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
     ExchangeRate findTopByPairOrderByTimestampDesc(CurrencyPair pair);
+
+    List<ExchangeRate> findByPairOrderByTimestampAsc(CurrencyPair pair);
+
+    /** Keeps only the last row per pair per day among the rows stored in {@code [from, to)}. */
+    @Transactional
+    @Modifying
+    @Query("""
+            DELETE FROM ExchangeRate r WHERE r.timestamp >= :from AND r.timestamp < :to AND r.id NOT IN (
+                SELECT MAX(k.id) FROM ExchangeRate k WHERE k.timestamp >= :from AND k.timestamp < :to
+                GROUP BY k.pair, CAST(k.timestamp AS LocalDate))""")
+    int compactToDailyBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,43 @@
+package org.kz.minibank.repository;
+
+import org.kz.minibank.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    @Query("""
+            SELECT COALESCE(SUM(CASE WHEN e.direction = org.kz.minibank.model.EntryDirection.DEBIT
+                                     THEN -e.amount ELSE e.amount END), 0)
+            FROM LedgerEntry e
+            WHERE e.accountId = :accountId AND e.createdDate >= :from AND e.createdDate < :to
+            """)
+    BigDecimal sumBetween(@Param("accountId") Long accountId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("""
+            SELECT COALESCE(SUM(CASE WHEN e.direction = org.kz.minibank.model.EntryDirection.DEBIT
+                                     THEN -e.amount ELSE e.amount END), 0)
+            FROM LedgerEntry e
+            WHERE e.accountId = :accountId AND e.createdDate >= :from
+            """)
+    BigDecimal sumSince(@Param("accountId") Long accountId, @Param("from") LocalDateTime from);
+
+    @Query("SELECT DISTINCT e.accountId FROM LedgerEntry e WHERE e.createdDate >= :from AND e.createdDate < :to")
+    List<Long> findAccountIdsWithEntriesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    List<LedgerEntry> findAllByTransactionId(UUID transactionId);
+
+    boolean existsByAccountIdAndTransactionId(Long accountId, UUID transactionId);
+
+    @Query("""
+            SELECT a.id FROM Account a
+            WHERE NOT EXISTS (SELECT e.id FROM LedgerEntry e WHERE e.accountId = a.id AND e.transactionId = :openingId)
+            """)
+    List<Long> findAccountIdsWithoutOpening(@Param("openingId") UUID openingId);
+}
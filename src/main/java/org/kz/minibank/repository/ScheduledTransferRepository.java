@@ -0,0 +1,30 @@
+package org.kz.minibank.repository;
+
+import jakarta.persistence.LockModeType;
+import org.kz.minibank.model.ScheduledTransfer;
+import org.kz.minibank.scheduling.DueTransfer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ScheduledTransferRepository extends JpaRepository<ScheduledTransfer, Long> {
+    List<ScheduledTransfer> findAllByOwnerEmailOrderByIdDesc(String ownerEmail);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ScheduledTransfer s WHERE s.id IN :ids ORDER BY s.id")
+    List<ScheduledTransfer> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    /** Active schedules due in {@code (after, until]}, resuming after the {@code (afterTime, afterId)} keyset cursor. */
+    @Query("SELECT new org.kz.minibank.scheduling.DueTransfer(s.id, s.nextExecution) FROM ScheduledTransfer s " +
+            "WHERE s.active = true AND s.nextExecution <= :until " +
+            "AND (s.nextExecution > :afterTime OR (s.nextExecution = :afterTime AND s.id > :afterId)) " +
+            "ORDER BY s.nextExecution, s.id")
+    List<DueTransfer> findDueAfter(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") long afterId,
+                                   @Param("until") LocalDateTime until, Pageable pageable);
+}
@@ -1,23 +1,138 @@
 package org.kz.minibank.repository;
 
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.kz.minibank.DTO.TransactionStatusDTO;
 import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
     /*@Query("SELECT t FROM Transaction t WHERE t.sourceAccount.id = :id OR t.targetAccount.id = :id ORDER BY t.timestamp DESC")
     List<Transaction> findAllByAccountId(Long id);*/
 
-    List<Transaction> findByTargetAccountIdOrderByTimestampDesc(Long accountId);
-    List<Transaction> findBySourceAccountIdOrderByTimestampDesc(Long accountId);
+    /**
+     * Listings select only the {@link TransactionStatusDTO} columns, joining both accounts in the same
+     * statement, instead of loading each transaction with its accounts and their owners.
+     */
+    String STATUS_PROJECTION = """
+            SELECT new org.kz.minibank.DTO.TransactionStatusDTO(t.id, t.amount, s.currency, s.accountNumber,
+                    tg.accountNumber, t.title, t.status, t.failureReason, t.timestamp)
+            FROM Transaction t JOIN t.sourceAccount s JOIN t.targetAccount tg
+            """;
 
-    @Query("SELECT t FROM Transaction t WHERE t.sourceAccount.id = :accountId OR t.targetAccount.id = :accountId")
-    Page<Transaction> findAllByAccountId(@Param("accountId") Long accountId, Pageable pageable);
+    @Query(value = STATUS_PROJECTION + "WHERE t.sourceAccount.id = :accountId OR t.targetAccount.id = :accountId",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.sourceAccount.id = :accountId OR t.targetAccount.id = :accountId")
+    Page<TransactionStatusDTO> findAllByAccountId(@Param("accountId") Long accountId, Pageable pageable);
+
+    /**
+     * Keyset seek over {@code (source_account_id, timestamp, id)}: the outgoing transactions from
+     * {@code from} on that come strictly after {@code before} in newest-first order. The redundant
+     * {@code timestamp <= :beforeTimestamp} keeps the scan a single index range.
+     */
+    @Query(STATUS_PROJECTION + OUTGOING_PAGE)
+    List<TransactionStatusDTO> findOutgoingPage(@Param("accountId") Long accountId, @Param("from") LocalDateTime from,
+                                       @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                       @Param("beforeId") UUID beforeId, Limit limit);
+
+    String OUTGOING_PAGE = """
+            WHERE t.sourceAccount.id = :accountId
+            AND t.timestamp >= :from AND t.timestamp <= :beforeTimestamp
+            AND (t.timestamp < :beforeTimestamp OR t.id < :beforeId)
+            ORDER BY t.timestamp DESC, t.id DESC""";
+
+    /**
+     * {@link #findOutgoingPage} for the outgoing listing, which shows each transfer in the currency
+     * it was credited in: the target account's, not the source's.
+     */
+    @Query("""
+            SELECT new org.kz.minibank.DTO.TransactionStatusDTO(t.id, t.amount, tg.currency, s.accountNumber,
+                    tg.accountNumber, t.title, t.status, t.failureReason, t.timestamp)
+            FROM Transaction t JOIN t.sourceAccount s JOIN t.targetAccount tg
+            """ + OUTGOING_PAGE)
+    List<TransactionStatusDTO> findOutgoingPageInTargetCurrency(@Param("accountId") Long accountId, @Param("from") LocalDateTime from,
+                                                                @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                                                @Param("beforeId") UUID beforeId, Limit limit);
+
+    @Query(STATUS_PROJECTION + """
+            WHERE t.targetAccount.id = :accountId
+            AND t.timestamp >= :from AND t.timestamp <= :beforeTimestamp
+            AND (t.timestamp < :beforeTimestamp OR t.id < :beforeId)
+            ORDER BY t.timestamp DESC, t.id DESC""")
+    List<TransactionStatusDTO> findIncomingPage(@Param("accountId") Long accountId, @Param("from") LocalDateTime from,
+                                       @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                       @Param("beforeId") UUID beforeId, Limit limit);
+
+    /** Rows the driver fetches per round trip while an export stream is read. */
+    String EXPORT_FETCH_SIZE = "1000";
+
+    /**
+     * The outgoing transactions in {@code [from, to)} newest first, as one scan of the
+     * {@code (source_account_id, timestamp, id)} index read through a cursor. Must be read and closed
+     * inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(STATUS_PROJECTION + """
+            WHERE t.sourceAccount.id = :accountId AND t.timestamp >= :from AND t.timestamp < :to
+            ORDER BY t.timestamp DESC, t.id DESC""")
+    Stream<TransactionStatusDTO> streamOutgoing(@Param("accountId") Long accountId, @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(STATUS_PROJECTION + """
+            WHERE t.targetAccount.id = :accountId AND t.timestamp >= :from AND t.timestamp < :to
+            ORDER BY t.timestamp DESC, t.id DESC""")
+    Stream<TransactionStatusDTO> streamIncoming(@Param("accountId") Long accountId, @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    /**
+     * Bulk delete of both sides of an account's history, without loading it. The persistence context
+     * is cleared so that no managed transaction outlives its row.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Transaction t WHERE t.sourceAccount.id = :accountId OR t.targetAccount.id = :accountId")
+    int deleteAllByAccountId(@Param("accountId") Long accountId);
+
+    /** Compare-and-set on the status; 0 when the transaction is no longer in status {@code from}. */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :to WHERE t.id = :id AND t.status = :from")
+    int changeStatus(@Param("id") UUID id, @Param("from") TransactionStatus from, @Param("to") TransactionStatus to);
+
+    /** Moves a PENDING transaction to PROCESSING, stamped with {@code now}; 0 when it is no longer PENDING. */
+    @Modifying
+    @Query("""
+            UPDATE Transaction t SET t.status = org.kz.minibank.model.TransactionStatus.PROCESSING, t.claimedAt = :now
+            WHERE t.id = :id AND t.status = org.kz.minibank.model.TransactionStatus.PENDING""")
+    int claim(@Param("id") UUID id, @Param("now") LocalDateTime now);
+
+    /** Hands PROCESSING claims taken before {@code claimedBefore} back to PENDING. */
+    @Modifying
+    @Query("""
+            UPDATE Transaction t SET t.status = org.kz.minibank.model.TransactionStatus.PENDING
+            WHERE t.status = org.kz.minibank.model.TransactionStatus.PROCESSING
+            AND (t.claimedAt IS NULL OR t.claimedAt < :claimedBefore)""")
+    int releaseClaimsBefore(@Param("claimedBefore") LocalDateTime claimedBefore);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id = :id")
+    Transaction findByIdForUpdate(@Param("id") UUID id);
+
+    @Query("SELECT t.id FROM Transaction t WHERE t.status = :status AND t.timestamp < :before ORDER BY t.timestamp")
+    List<UUID> findIdsByStatusBefore(@Param("status") TransactionStatus status, @Param("before") LocalDateTime before,
+                                     Pageable pageable);
 }
@@ -1,13 +1,18 @@
 package org.kz.minibank.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.hibernate.type.descriptor.converter.spi.JpaAttributeConverter;
 import org.kz.minibank.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
+    /** Runs on every authenticated request (JWT filter); cached in the query cache when the second-level cache is on. */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
 }
@@ -0,0 +1,7 @@
+package org.kz.minibank.scheduling;
+
+import java.time.LocalDateTime;
+
+/** A scheduled transfer occurrence as tracked by the timer wheel. */
+public record DueTransfer(Long scheduleId, LocalDateTime dueAt) {
+}
@@ -0,0 +1,109 @@
+package org.kz.minibank.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has one slot per tick, every higher level has slots that span
+ * a whole revolution of the level below. An item sits in the lowest level whose current revolution
+ * contains its due tick and is cascaded one level down when the clock enters its slot, so adding
+ * an item and expiring one are O(1) no matter how many items are waiting. Items further out than
+ * the top level can hold are parked in its last slot and re-placed when it comes round.
+ * <p>
+ * Not thread-safe; meant to be owned by a single timer thread.
+ */
+public class HierarchicalTimerWheel<T> {
+    private final long tickMs;
+    private final int slotsPerLevel;
+    private final ArrayDeque<Entry<T>>[][] levels;
+    private final long[] ticksPerSlot;
+    private final List<Entry<T>> overdue = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(long tickMs, int slotsPerLevel, int levelCount, long startMs) {
+        if (tickMs < 1 || slotsPerLevel < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timer wheel dimensions!");
+        }
+        this.tickMs = tickMs;
+        this.slotsPerLevel = slotsPerLevel;
+        this.levels = new ArrayDeque[levelCount][slotsPerLevel];
+        this.ticksPerSlot = new long[levelCount];
+        long span = 1;
+        for (int level = 0; level < levelCount; level++) {
+            ticksPerSlot[level] = span;
+            span = Math.multiplyExact(span, slotsPerLevel);
+            for (int slot = 0; slot < slotsPerLevel; slot++) {
+                levels[level][slot] = new ArrayDeque<>();
+            }
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    public void add(T item, long dueMs) {
+        place(new Entry<>(item, dueMs / tickMs));
+        size++;
+    }
+
+    /** Moves the clock forward and returns every item due up to {@code nowMs}, in due order per tick. */
+    public List<T> advanceTo(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        drainOverdue(expired);
+
+        long targetTick = nowMs / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levels.length - 1; level > 0; level--) {
+                if (currentTick % ticksPerSlot[level] == 0) cascade(level);
+            }
+            drainOverdue(expired);
+            ArrayDeque<Entry<T>> slot = levels[0][slotIndex(currentTick, 0)];
+            while (!slot.isEmpty()) {
+                expired.add(slot.poll().item());
+            }
+        }
+        size -= expired.size();
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        if (entry.dueTick() <= currentTick) {
+            overdue.add(entry);
+            return;
+        }
+        for (int level = 0; level < levels.length; level++) {
+            long span = ticksPerSlot[level];
+            if (entry.dueTick() / span - currentTick / span < slotsPerLevel) {
+                levels[level][slotIndex(entry.dueTick(), level)].add(entry);
+                return;
+            }
+        }
+        int top = levels.length - 1;
+        levels[top][slotIndex(currentTick + ticksPerSlot[top] * (slotsPerLevel - 1), top)].add(entry);
+    }
+
+    private void cascade(int level) {
+        ArrayDeque<Entry<T>> slot = levels[level][slotIndex(currentTick, level)];
+        List<Entry<T>> entries = new ArrayList<>(slot);
+        slot.clear();
+        entries.forEach(this::place);
+    }
+
+    private void drainOverdue(List<T> expired) {
+        overdue.forEach(entry -> expired.add(entry.item()));
+        overdue.clear();
+    }
+
+    private int slotIndex(long tick, int level) {
+        return (int) ((tick / ticksPerSlot[level]) % slotsPerLevel);
+    }
+
+    private record Entry<T>(T item, long dueTick) {
+    }
+}
@@ -0,0 +1,8 @@
+package org.kz.minibank.scheduling;
+
+import java.util.List;
+import java.util.UUID;
+
+/** Result of executing a batch of due schedules: the PENDING transfers created and the next occurrences. */
+public record ScheduledExecution(List<UUID> transactionIds, List<DueTransfer> rescheduled) {
+}
@@ -0,0 +1,198 @@
+package org.kz.minibank.scheduling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.model.ScheduledTransfer;
+import org.kz.minibank.repository.ScheduledTransferRepository;
+import org.kz.minibank.service.AsyncTransferService;
+import org.kz.minibank.service.ScheduledTransferService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires scheduled transfers. Only the occurrences due within {@code horizon} are kept in memory,
+ * in a {@link HierarchicalTimerWheel}; the window is extended incrementally with keyset-paged
+ * queries, so millions of schedules cost one index range scan per extension instead of a full
+ * poll per tick. Due occurrences are executed in batches of {@code batch-size} schedules per
+ * database transaction and completed through {@link AsyncTransferService}.
+ * <p>
+ * The first load starts at the beginning of time, so occurrences missed while the application
+ * was down are fired right after startup. A periodic reconcile pass re-fires anything overdue
+ * that the wheel lost (a failed batch, a schedule created on another node). Firing an occurrence
+ * twice is harmless: {@link ScheduledTransferService#executeDue} executes each one exactly once.
+ */
+@Service
+public class ScheduledTransferEngine implements Runnable {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final ScheduledTransferService scheduledTransferService;
+    private final AsyncTransferService asyncTransferService;
+    private final boolean enabled;
+    private final long tickMs;
+    private final Duration horizon;
+    private final int loadPageSize;
+    private final int batchSize;
+    private final long reconcileIntervalMs;
+    private final HierarchicalTimerWheel<DueTransfer> wheel;
+    private final Queue<DueTransfer> inbox = new ConcurrentLinkedQueue<>();
+    private final Counter executions;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private LocalDateTime loadedUntil;
+    private long nextReconcileMs;
+
+    public ScheduledTransferEngine(ScheduledTransferRepository scheduledTransferRepository,
+                                   ScheduledTransferService scheduledTransferService,
+                                   AsyncTransferService asyncTransferService, InternalThreadFactory threadFactory,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${minibank.scheduled-transfers.enabled:true}") boolean enabled,
+                                   @Value("${minibank.scheduled-transfers.tick:PT1S}") Duration tick,
+                                   @Value("${minibank.scheduled-transfers.horizon:PT1H}") Duration horizon,
+                                   @Value("${minibank.scheduled-transfers.load-page-size:1000}") int loadPageSize,
+                                   @Value("${minibank.scheduled-transfers.batch-size:100}") int batchSize,
+                                   @Value("${minibank.scheduled-transfers.reconcile-interval:PT5M}") Duration reconcileInterval) {
+        if (batchSize < 1 || loadPageSize < 1) {
+            throw new IllegalArgumentException("Scheduled transfer batch and page sizes must be at least 1!");
+        }
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.scheduledTransferService = scheduledTransferService;
+        this.asyncTransferService = asyncTransferService;
+        this.enabled = enabled;
+        this.tickMs = tick.toMillis();
+        this.horizon = horizon;
+        this.loadPageSize = loadPageSize;
+        this.batchSize = batchSize;
+        this.reconcileIntervalMs = reconcileInterval.toMillis();
+        this.wheel = new HierarchicalTimerWheel<>(tickMs, 64, 4, System.currentTimeMillis());
+        this.executions = Counter.builder("minibank.scheduled-transfers.executions")
+                .description("Scheduled transfer occurrences turned into transfers")
+                .register(meterRegistry);
+        Gauge.builder("minibank.scheduled-transfers.wheel-size", wheel, HierarchicalTimerWheel::size)
+                .description("Scheduled transfer occurrences held in the timer wheel")
+                .register(meterRegistry);
+        this.thread = threadFactory.newThread("scheduled-transfers", this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled && !thread.isAlive()) thread.start();
+    }
+
+    /** Makes a new or changed schedule known without waiting for the next window extension. */
+    public void track(ScheduledTransfer schedule) {
+        if (schedule.isActive() && schedule.getNextExecution() != null) {
+            inbox.add(new DueTransfer(schedule.getId(), schedule.getNextExecution()));
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // database unavailable; retried on the next tick, lost occurrences are re-fired by the reconcile pass
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(tickMs);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+    }
+
+    void tick() {
+        LocalDateTime now = LocalDateTime.now();
+        long nowMs = toMillis(now);
+        LocalDateTime windowEnd = now.plus(horizon);
+        if (loadedUntil == null) {
+            load(ORIGIN, windowEnd);
+            loadedUntil = windowEnd;
+            nextReconcileMs = nowMs + reconcileIntervalMs;
+        } else if (Duration.between(now, loadedUntil).compareTo(horizon.dividedBy(2)) < 0) {
+            load(loadedUntil, windowEnd);
+            loadedUntil = windowEnd;
+        }
+        if (nowMs >= nextReconcileMs) {
+            load(ORIGIN, now.minus(Duration.ofMillis(tickMs)));
+            nextReconcileMs = nowMs + reconcileIntervalMs;
+        }
+
+        DueTransfer tracked;
+        while ((tracked = inbox.poll()) != null) {
+            if (!tracked.dueAt().isAfter(loadedUntil)) wheel.add(tracked, toMillis(tracked.dueAt()));
+        }
+        execute(wheel.advanceTo(nowMs), now);
+    }
+
+    private void load(LocalDateTime after, LocalDateTime until) {
+        LocalDateTime cursorTime = after;
+        long cursorId = Long.MAX_VALUE;
+        while (true) {
+            List<DueTransfer> page = scheduledTransferRepository.findDueAfter(cursorTime, cursorId, until,
+                    PageRequest.of(0, loadPageSize));
+            for (DueTransfer due : page) {
+                wheel.add(due, toMillis(due.dueAt()));
+            }
+            if (page.size() < loadPageSize) return;
+            DueTransfer last = page.getLast();
+            cursorTime = last.dueAt();
+            cursorId = last.scheduleId();
+        }
+    }
+
+    private void execute(List<DueTransfer> due, LocalDateTime now) {
+        Set<Long> scheduleIds = new LinkedHashSet<>();
+        due.forEach(transfer -> scheduleIds.add(transfer.scheduleId()));
+        List<Long> batch = new ArrayList<>(batchSize);
+        for (Long scheduleId : scheduleIds) {
+            batch.add(scheduleId);
+            if (batch.size() == batchSize) executeBatch(batch, now);
+        }
+        executeBatch(batch, now);
+    }
+
+    private void executeBatch(List<Long> batch, LocalDateTime now) {
+        if (batch.isEmpty()) return;
+        try {
+            ScheduledExecution execution = scheduledTransferService.executeDue(batch, now);
+            executions.increment(execution.transactionIds().size());
+            execution.transactionIds().forEach(asyncTransferService::enqueue);
+            for (DueTransfer next : execution.rescheduled()) {
+                if (!next.dueAt().isAfter(loadedUntil)) wheel.add(next, toMillis(next.dueAt()));
+            }
+        } catch (RuntimeException e) {
+            // left due in the database; re-fired by the reconcile pass
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
@@ -1,33 +1,56 @@
 package org.kz.minibank.service;
 
 
+import org.kz.minibank.DTO.TransactionStatusDTO;
 import org.kz.minibank.model.Account;
-import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.AccountInfo;
+import org.kz.minibank.model.TransactionCursor;
 import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountInfoRepository;
 import org.kz.minibank.repository.AccountRepository;
 import org.kz.minibank.repository.TransactionRepository;
 import org.kz.minibank.repository.UserRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Currency;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class AccountService {
+    static final int MAX_HISTORY_PAGE_SIZE = 200;
+    static final LocalDateTime EARLIEST = LocalDate.EPOCH.atStartOfDay();
+    static final Comparator<TransactionStatusDTO> NEWEST_FIRST = Comparator
+            .comparing(TransactionStatusDTO::timestamp, Comparator.reverseOrder())
+            .thenComparing(TransactionStatusDTO::id, TransactionCursor.UUID_ORDER.reversed());
+
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
+    private final BalanceStripeService balanceStripeService;
+    private final JournalService journalService;
+    private final AccountInfoRepository accountInfoRepository;
 
-    public AccountService(AccountRepository accountRepository, TransactionRepository transactionRepository, UserRepository userRepository) {
+    public AccountService(AccountRepository accountRepository, TransactionRepository transactionRepository, UserRepository userRepository,
+                          BalanceStripeService balanceStripeService, JournalService journalService,
+                          AccountInfoRepository accountInfoRepository) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
         this.userRepository = userRepository;
+        this.balanceStripeService = balanceStripeService;
+        this.journalService = journalService;
+        this.accountInfoRepository = accountInfoRepository;
     }
 
 
@@ -38,46 +61,148 @@ public class AccountService {
 
         Currency currency = Currency.getInstance(currencyCode.toUpperCase());
 
-        return accountRepository.save(new Account(currency, user));
+        Account account = accountRepository.save(new Account(currency, user));
+        journalService.openAccount(account);
+        return account;
     }
 
+    @Transactional(readOnly = true)
     public BigDecimal getBalance(Long accountId) {
-        return accountRepository.findById(accountId).orElseThrow(() -> new IllegalArgumentException("Account not found!")).getBalance();
+        Account account = accountRepository.findById(accountId).orElseThrow(() -> new IllegalArgumentException("Account not found!"));
+        return totalBalance(account);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getJournalBalance(Long accountId) {
+        if (!accountRepository.existsById(accountId)) { throw new IllegalArgumentException("Account not found!"); }
+        return journalService.getBalance(accountId);
+    }
+
+    public void setBalanceStripes(Long accountId, int stripes) {
+        balanceStripeService.configure(accountId, stripes);
     }
 
+    @Transactional(readOnly = true)
     public List<Account> getAccountsByUserId(String email){
         return accountRepository.findAllByUserEmail(email);
     }
 
-    public Page<Transaction> getTransactionsByAccountId(Long accountId, Pageable pageable){
+    @Transactional(readOnly = true)
+    public Page<TransactionStatusDTO> getTransactionsByAccountId(Long accountId, Pageable pageable){
         return transactionRepository.findAllByAccountId(accountId, pageable);
     }
 
-    public List<Transaction> getIncomingTransactionsByAccountId(Long accountId){
-        return transactionRepository.findByTargetAccountIdOrderByTimestampDesc(accountId);
+    /**
+     * Keyset-paginated history: seeks past {@code cursor} on {@code (timestamp, id)} in the outgoing
+     * and incoming indexes separately and merges both runs in order, so a page costs the same at any
+     * depth and no total count is computed. Transfers from an account to itself appear once.
+     */
+    @Transactional(readOnly = true)
+    public TransactionHistorySlice getTransactionHistory(Long accountId, String cursor, int limit) {
+        validateLimit(limit);
+        TransactionCursor before = seekPosition(cursor, null);
+        Limit fetch = Limit.of(limit + 1);
+        List<TransactionStatusDTO> outgoing = transactionRepository.findOutgoingPage(accountId, EARLIEST, before.timestamp(), before.id(), fetch);
+        List<TransactionStatusDTO> incoming = transactionRepository.findIncomingPage(accountId, EARLIEST, before.timestamp(), before.id(), fetch);
+
+        List<TransactionStatusDTO> page = new ArrayList<>(limit + 1);
+        int out = 0;
+        int in = 0;
+        while (page.size() <= limit && (out < outgoing.size() || in < incoming.size())) {
+            TransactionStatusDTO next = in >= incoming.size()
+                    || (out < outgoing.size() && NEWEST_FIRST.compare(outgoing.get(out), incoming.get(in)) <= 0)
+                    ? outgoing.get(out++)
+                    : incoming.get(in++);
+            if (!page.isEmpty() && page.getLast().id().equals(next.id())) continue;
+            page.add(next);
+        }
+        return slice(page, limit);
+    }
+
+    /**
+     * Incoming transactions newest first, limited to {@code [from, to)} when given. Each page is one
+     * range scan of the {@code (target_account_id, timestamp, id)} index.
+     */
+    @Transactional(readOnly = true)
+    public TransactionHistorySlice getIncomingTransactions(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                           String cursor, int limit) {
+        validateLimit(limit);
+        validateRange(from, to);
+        TransactionCursor before = seekPosition(cursor, to);
+        return slice(transactionRepository.findIncomingPage(accountId, from != null ? from : EARLIEST,
+                before.timestamp(), before.id(), Limit.of(limit + 1)), limit);
     }
 
-    public List<Transaction> getOutcomingTransactionsByAccountId(Long accountId){
-        return transactionRepository.findBySourceAccountIdOrderByTimestampDesc(accountId);
+    /** Like {@link #getIncomingTransactions}, with amounts labelled in the target account's currency. */
+    @Transactional(readOnly = true)
+    public TransactionHistorySlice getOutgoingTransactions(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                           String cursor, int limit) {
+        validateLimit(limit);
+        validateRange(from, to);
+        TransactionCursor before = seekPosition(cursor, to);
+        return slice(transactionRepository.findOutgoingPageInTargetCurrency(accountId, from != null ? from : EARLIEST,
+                before.timestamp(), before.id(), Limit.of(limit + 1)), limit);
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE + "!");
+        }
+    }
+
+    static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) { throw new IllegalArgumentException("From must be before to!"); }
+    }
+
+    /** Where the page starts: after the cursor, but never at or past the exclusive {@code to}. */
+    private static TransactionCursor seekPosition(String cursor, LocalDateTime to) {
+        TransactionCursor end = to != null ? TransactionCursor.before(to) : TransactionCursor.START;
+        if (cursor == null || cursor.isEmpty()) return end;
+        TransactionCursor after = TransactionCursor.decode(cursor);
+        return after.timestamp().isBefore(end.timestamp()) ? after : end;
+    }
+
+    /** {@code rows} holds up to {@code limit + 1} rows; the extra one only tells that another page exists. */
+    private static TransactionHistorySlice slice(List<TransactionStatusDTO> rows, int limit) {
+        if (rows.size() <= limit) return new TransactionHistorySlice(rows, null);
+        List<TransactionStatusDTO> page = rows.subList(0, limit);
+        return new TransactionHistorySlice(page, new TransactionCursor(page.getLast().timestamp(), page.getLast().id()).encode());
     }
 
     @Transactional
     public void deleteAccount(Long accountId) {
         Account account = accountRepository.findById(accountId).orElseThrow(() -> new IllegalArgumentException("Account not found!"));
 
-        if (account.getBalance().compareTo(BigDecimal.ZERO) != 0) {
+        if (totalBalance(account).compareTo(BigDecimal.ZERO) != 0) {
             throw new IllegalArgumentException("Account balance must be zero to delete it!");
         }
+        balanceStripeService.deleteStripes(account);
+        transactionRepository.deleteAllByAccountId(accountId);
         accountRepository.deleteById(accountId);
+        accountInfoRepository.evict(accountId);
     }
+
+    private BigDecimal totalBalance(Account account) {
+        if (account.getBalanceStripes() <= 0) return account.getBalance();
+        return account.getBalance().add(balanceStripeService.pendingCredits(account));
+    }
+    /** Ownership checks read {@link AccountInfo}, which the second-level cache can answer without a query. */
+    @Transactional(readOnly = true)
     public boolean isAccountOwner(Long accountId, String email){
-        Account account = accountRepository.findById(accountId).orElseThrow(() -> new IllegalArgumentException("Account not found!"));
+        AccountInfo account = accountInfoRepository.findById(accountId).orElseThrow(() -> new IllegalArgumentException("Account not found!"));
         return account.getUser().getEmail().equals(email);
     }
 
+    @Transactional(readOnly = true)
     public boolean isAccountOwner(String accountNumber, String email){
-        Account account = accountRepository.findByAccountNumber(accountNumber);
+        AccountInfo account = accountInfoRepository.findByAccountNumber(accountNumber);
         if (account == null) { throw new IllegalArgumentException("Account not found!"); }
         return account.getUser().getEmail().equals(email);
     }
+
+    @Transactional(readOnly = true)
+    public boolean isAccountOwner(Collection<String> accountNumbers, String email){
+        Set<String> distinctNumbers = new HashSet<>(accountNumbers);
+        return accountRepository.countByAccountNumberInAndUserEmail(distinctNumbers, email) == distinctNumbers.size();
+    }
 }
@@ -0,0 +1,141 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts transfers without waiting for them. A submitted transfer is stored as PENDING and
+ * completed by a bounded worker pool through the active {@link TransferProcessor}, so ingest does
+ * not wait for FX lookups or commits. Transfers left PENDING for longer than {@code stale-after}
+ * (a full queue at recovery time, a restart, a transient failure) are picked up again by a
+ * periodic sweep.
+ */
+@Service
+public class AsyncTransferService {
+    private final TransactionService transactionService;
+    private final TransferProcessor transferProcessor;
+    private final TransactionRepository transactionRepository;
+    private final ThreadPoolExecutor workers;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final Duration staleAfter;
+
+    public AsyncTransferService(TransactionService transactionService, TransferProcessor transferProcessor,
+                                TransactionRepository transactionRepository, InternalThreadFactory threadFactory,
+                                MeterRegistry meterRegistry,
+                                @Value("${minibank.async-transfer.workers:4}") int workerCount,
+                                @Value("${minibank.async-transfer.queue-capacity:1000}") int queueCapacity,
+                                @Value("${minibank.async-transfer.stale-after:PT1M}") Duration staleAfter) {
+        if (workerCount < 1) { throw new IllegalArgumentException("minibank.async-transfer.workers must be at least 1!"); }
+        this.transactionService = transactionService;
+        this.transferProcessor = transferProcessor;
+        this.transactionRepository = transactionRepository;
+        this.staleAfter = staleAfter;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory.named("async-transfer"),
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("minibank.async-transfer.queue-depth", workers, executor -> executor.getQueue().size())
+                .description("Accepted transfers waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores the transfer as PENDING and queues it. Throws {@link RejectedExecutionException} when
+     * the queue is full; the stored transfer is then marked FAILED.
+     */
+    public Transaction submit(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount, String title) {
+        return submit(sourceAccountNumber, targetAccountNumber, amount, title, null);
+    }
+
+    /** Like {@link #submit(String, String, BigDecimal, String)}; the rate of FX quote {@code quoteId} is locked in at submission. */
+    public Transaction submit(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount, String title,
+                              UUID quoteId) {
+        Transaction pending = transactionService.createPendingTransfer(sourceAccountNumber, targetAccountNumber, amount,
+                title, quoteId);
+        try {
+            dispatch(pending.getId());
+        } catch (RejectedExecutionException e) {
+            transactionService.failPendingTransfer(pending.getId(), "Server is overloaded!");
+            throw e;
+        }
+        return pending;
+    }
+
+    /** Queues an already stored PENDING transfer; when the queue is full it is left for the recovery sweep. */
+    public void enqueue(UUID transactionId) {
+        try {
+            dispatch(transactionId);
+        } catch (RejectedExecutionException e) {
+            // picked up by recoverPendingTransfers once it is stale
+        }
+    }
+
+    public Transaction getTransaction(UUID transactionId) {
+        return transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new EntityNotFoundException("Transaction not found!"));
+    }
+
+    @Scheduled(fixedDelayString = "${minibank.async-transfer.recovery-interval:PT30S}")
+    public void recoverPendingTransfers() {
+        int capacity = workers.getQueue().remainingCapacity();
+        if (capacity == 0) return;
+        LocalDateTime before = LocalDateTime.now().minus(staleAfter);
+        for (UUID transactionId : transactionRepository.findIdsByStatusBefore(TransactionStatus.PENDING, before,
+                PageRequest.of(0, capacity))) {
+            try {
+                dispatch(transactionId);
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    void process(UUID transactionId) {
+        try {
+            transferProcessor.completeTransfer(transactionId);
+        } catch (IllegalArgumentException e) {
+            transactionService.failPendingTransfer(transactionId, e.getMessage());
+        } catch (RuntimeException e) {
+            // left PENDING, so the recovery sweep retries it
+        } finally {
+            inFlight.remove(transactionId);
+        }
+    }
+
+    private void dispatch(UUID transactionId) {
+        if (!inFlight.add(transactionId)) return;
+        try {
+            workers.execute(() -> process(transactionId));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(transactionId);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,126 @@
+package org.kz.minibank.service;
+
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.AccountBalanceStripe;
+import org.kz.minibank.model.Money;
+import org.kz.minibank.repository.AccountBalanceStripeRepository;
+import org.kz.minibank.repository.AccountRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opt-in balance striping for accounts with a high rate of incoming transfers. A striped account
+ * keeps its credits in K sub-balance rows picked at random, so concurrent credits only contend when
+ * they pick the same stripe. The authoritative balance is the main balance plus all stripes;
+ * stripes are folded back into the main balance when a debit needs them and periodically.
+ */
+@Service
+public class BalanceStripeService {
+    public static final int MAX_STRIPES = 64;
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceStripeRepository stripeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public BalanceStripeService(AccountRepository accountRepository, AccountBalanceStripeRepository stripeRepository,
+                                TransactionTemplate transactionTemplate) {
+        this.accountRepository = accountRepository;
+        this.stripeRepository = stripeRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Adds the amount to one of the account's stripes. Returns false when the account is not
+     * striped (or its stripes were just reconfigured), in which case the caller credits the main balance.
+     */
+    public boolean credit(Account account, Money amount) {
+        int stripes = account.getBalanceStripes();
+        if (stripes <= 0) return false;
+        return stripeRepository.addToStripe(account.getId(), stripeFor(stripes), amount.toBigDecimal()) > 0;
+    }
+
+    /** Credits not yet folded into the main balance. */
+    public BigDecimal pendingCredits(Account account) {
+        if (account.getBalanceStripes() <= 0) return BigDecimal.ZERO;
+        return stripeRepository.sumByAccountId(account.getId());
+    }
+
+    /**
+     * Moves all stripe amounts into the main balance of the given managed account. Stripe rows stay
+     * locked until the surrounding transaction ends, so no credit is lost or counted twice. Stripes
+     * are read and reset with queries rather than through entities, which may be stale after
+     * {@link #credit} updates in the same transaction.
+     */
+    public void fold(Account account) {
+        stripeRepository.findAllByAccountIdForUpdate(account.getId());
+        BigDecimal folded = stripeRepository.sumByAccountId(account.getId());
+        if (folded.signum() != 0) {
+            stripeRepository.resetByAccountId(account.getId());
+            account.setBalance(account.getBalance().add(folded));
+        }
+    }
+
+    /**
+     * Makes sure the account can cover the amount, folding its stripes first when the main
+     * balance alone is not enough.
+     */
+    public boolean hasFunds(Account account, Money amount) {
+        if (!account.moneyBalance().isLessThan(amount)) return true;
+        if (account.getBalanceStripes() <= 0) return false;
+        fold(account);
+        return !account.moneyBalance().isLessThan(amount);
+    }
+
+    @Transactional
+    public void configure(Long accountId, int stripes) {
+        if (stripes < 0 || stripes > MAX_STRIPES) {
+            throw new IllegalArgumentException("Stripes must be between 0 and " + MAX_STRIPES + "!");
+        }
+        Account account = accountRepository.findByIdForUpdate(accountId);
+        if (account == null) { throw new IllegalArgumentException("Account not found!"); }
+
+        fold(account);
+        stripeRepository.deleteAllByAccountId(accountId);
+        List<AccountBalanceStripe> rows = new ArrayList<>(stripes);
+        for (int i = 0; i < stripes; i++) {
+            rows.add(new AccountBalanceStripe(account, i));
+        }
+        stripeRepository.saveAll(rows);
+        account.setBalanceStripes(stripes);
+        accountRepository.save(account);
+    }
+
+    public void deleteStripes(Account account) {
+        if (account.getBalanceStripes() > 0) {
+            stripeRepository.deleteAllByAccountId(account.getId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${minibank.striping.fold-interval:PT5S}")
+    public void foldPendingCredits() {
+        for (Long accountId : stripeRepository.findAccountIdsWithPendingCredits()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Account account = accountRepository.findByIdForUpdate(accountId);
+                    if (account == null) return;
+                    fold(account);
+                    accountRepository.save(account);
+                });
+            } catch (ConcurrencyFailureException e) {
+                // the account is busy; its stripes are folded in the next round
+            }
+        }
+    }
+
+    private int stripeFor(int stripes) {
+        return ThreadLocalRandom.current().nextInt(stripes);
+    }
+}
@@ -0,0 +1,84 @@
+package org.kz.minibank.service;
+
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable cross rates between every pair of currencies of one NBP table, precomputed with the
+ * same scale and rounding as a per-pair cross rate and kept as {@link Money#scaledRate scaled longs}.
+ * Currencies are addressed by a dense ordinal looked up through their ISO 4217 numeric code, so a
+ * conversion is a few array reads and one {@code long} multiply, with no hashing or BigDecimal.
+ */
+public final class CrossRateMatrix {
+    private static final int NUMERIC_CODES = 1000;
+
+    private final short[] ordinals = new short[NUMERIC_CODES];
+    private final List<Currency> currencies;
+    private final long[] rates;
+    private final LocalDateTime fetchedAt;
+
+    public CrossRateMatrix(Map<Currency, BigDecimal> plnRates, LocalDateTime fetchedAt) {
+        this.currencies = plnRates.keySet().stream()
+                .filter(currency -> currency.getNumericCode() >= 0 && currency.getNumericCode() < NUMERIC_CODES)
+                .sorted(Comparator.comparing(Currency::getCurrencyCode))
+                .toList();
+        this.fetchedAt = fetchedAt;
+
+        int size = currencies.size();
+        Arrays.fill(ordinals, (short) -1);
+        BigDecimal[] mids = new BigDecimal[size];
+        for (int i = 0; i < size; i++) {
+            ordinals[currencies.get(i).getNumericCode()] = (short) i;
+            mids[i] = plnRates.get(currencies.get(i));
+        }
+        this.rates = new long[size * size];
+        for (int base = 0; base < size; base++) {
+            for (int counter = 0; counter < size; counter++) {
+                rates[base * size + counter] = Money.scaledRate(mids[base].divide(mids[counter], Money.RATE_SCALE, RoundingMode.HALF_UP));
+            }
+        }
+    }
+
+    public Money convert(Money amount, Currency target, RoundingMode rounding) {
+        return amount.convert(scaledRate(amount.currency(), target), target, rounding);
+    }
+
+    public BigDecimal rate(CurrencyPair pair) {
+        return BigDecimal.valueOf(scaledRate(pair.base(), pair.counter()), Money.RATE_SCALE);
+    }
+
+    long scaledRate(Currency baseCurrency, Currency counterCurrency) {
+        int base = ordinal(baseCurrency);
+        int counter = ordinal(counterCurrency);
+        if (base < 0 || counter < 0) {
+            throw new IllegalArgumentException("Exchange rate not found!");
+        }
+        return rates[base * currencies.size() + counter];
+    }
+
+    public boolean supports(Currency currency) {
+        return ordinal(currency) >= 0;
+    }
+
+    public List<Currency> currencies() {
+        return currencies;
+    }
+
+    public LocalDateTime fetchedAt() {
+        return fetchedAt;
+    }
+
+    private int ordinal(Currency currency) {
+        int numericCode = currency.getNumericCode();
+        return numericCode >= 0 && numericCode < NUMERIC_CODES ? ordinals[numericCode] : -1;
+    }
+}
@@ -0,0 +1,111 @@
+package org.kz.minibank.service;
+
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.ExchangeRate;
+import org.kz.minibank.model.Money;
+import org.kz.minibank.repository.ExchangeRateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Owns the {@code exchange_rates} history: every rate row is written through here, old rows are
+ * compacted and past rates can be looked up in memory.
+ * <p>
+ * Rows older than {@code retain-all} are compacted to the last row per pair per day. Each run only
+ * touches the whole days that became old since the previous run.
+ * <p>
+ * {@link #rateAsOf} answers from a per-pair {@link NavigableMap} keyed by timestamp. The map is
+ * loaded from the database on the pair's first lookup and then kept current by the writes that go
+ * through this service, so re-pricing past transactions does not scan the table.
+ */
+@Service
+public class ExchangeRateHistoryService {
+    private static final Currency PLN = Currency.getInstance("PLN");
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final Duration retainAll;
+    private final Map<CurrencyPair, NavigableMap<LocalDateTime, BigDecimal>> histories = new ConcurrentHashMap<>();
+    private volatile LocalDateTime compactedBefore = LocalDate.EPOCH.atStartOfDay();
+
+    public ExchangeRateHistoryService(ExchangeRateRepository exchangeRateRepository,
+                                      @Value("${minibank.fx.history.retain-all:P7D}") Duration retainAll) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.retainAll = retainAll;
+    }
+
+    public void save(ExchangeRate rate) {
+        exchangeRateRepository.save(rate);
+        remember(rate);
+    }
+
+    public void saveAll(List<ExchangeRate> rates) {
+        exchangeRateRepository.saveAll(rates);
+        rates.forEach(this::remember);
+    }
+
+    /**
+     * The base-to-counter rate in effect at {@code at}: the last stored rate of the pair, of its
+     * reverse, or of both PLN legs, in that order. Returns null if none was stored before {@code at}.
+     */
+    public BigDecimal rateAsOf(CurrencyPair pair, LocalDateTime at) {
+        BigDecimal direct = storedRateAsOf(pair, at);
+        if (direct != null) return direct;
+
+        BigDecimal reverse = storedRateAsOf(new CurrencyPair(pair.counter(), pair.base()), at);
+        if (reverse != null) return BigDecimal.ONE.divide(reverse, Money.RATE_SCALE, RoundingMode.HALF_UP);
+
+        BigDecimal basePln = plnRateAsOf(pair.base(), at);
+        BigDecimal counterPln = plnRateAsOf(pair.counter(), at);
+        if (basePln == null || counterPln == null) return null;
+        return basePln.divide(counterPln, Money.RATE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Scheduled(fixedDelayString = "${minibank.fx.history.compaction-interval:PT6H}")
+    public void compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retainAll).toLocalDate().atStartOfDay();
+        if (!cutoff.isAfter(compactedBefore)) return;
+        if (exchangeRateRepository.compactToDailyBetween(compactedBefore, cutoff) > 0) {
+            // reloaded, compacted, on the next lookup of each pair
+            histories.clear();
+        }
+        compactedBefore = cutoff;
+    }
+
+    private BigDecimal plnRateAsOf(Currency currency, LocalDateTime at) {
+        return currency.equals(PLN) ? BigDecimal.ONE : storedRateAsOf(new CurrencyPair(currency, PLN), at);
+    }
+
+    private BigDecimal storedRateAsOf(CurrencyPair pair, LocalDateTime at) {
+        Map.Entry<LocalDateTime, BigDecimal> entry = histories.computeIfAbsent(pair, this::load).floorEntry(at);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    private NavigableMap<LocalDateTime, BigDecimal> load(CurrencyPair pair) {
+        NavigableMap<LocalDateTime, BigDecimal> history = new ConcurrentSkipListMap<>();
+        for (ExchangeRate rate : exchangeRateRepository.findByPairOrderByTimestampAsc(pair)) {
+            history.put(rate.getTimestamp(), rate.getRate());
+        }
+        return history;
+    }
+
+    /** Only pairs that were already loaded are updated; the others pick the row up when they are loaded. */
+    private void remember(ExchangeRate rate) {
+        histories.computeIfPresent(rate.getPair(), (pair, history) -> {
+            history.put(rate.getTimestamp(), rate.getRate());
+            return history;
+        });
+    }
+}
@@ -1,59 +1,349 @@
 package org.kz.minibank.service;
 
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.kz.minibank.clinet.ForexClient;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.exception.ForexUnavailableException;
 import org.kz.minibank.model.CurrencyPair;
 import org.kz.minibank.model.ExchangeRate;
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.Money;
 import org.kz.minibank.repository.ExchangeRateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+/**
+ * Converts amounts with rates from a node-local cache. A rate is loaded on first use (from the
+ * database if a fresh one is stored there, otherwise from NBP) and refreshed from NBP in the
+ * background once it is older than {@code refresh-after}; readers keep getting the current rate
+ * meanwhile, so conversions make no database or HTTP calls in the steady state. Only a rate that
+ * was not read for a whole {@code cache-ttl} expires and is loaded synchronously again.
+ * <p>
+ * NBP lookups are coalesced per currency: concurrent loads that need the same currency (the same
+ * pair, or pairs sharing a leg) wait for a single in-flight fetch and share its result.
+ * <p>
+ * A miss is loaded by the caller that found it, after an incomplete future has been put in the
+ * cache for others to wait on; nothing blocks while a map lock is held, which would pin a virtual
+ * thread to its carrier for the whole NBP round trip.
+ * <p>
+ * With {@code rate-source=TABLE} the whole NBP table A is fetched in one request instead and turned
+ * into a {@link CrossRateMatrix} over all its currencies, which is swapped in atomically on every
+ * refresh with the same refresh-ahead and expiry timings. Each table's mid rates are stored as
+ * {@code XXX/PLN} rows. Rows are written through {@link ExchangeRateHistoryService}, which also
+ * compacts them.
+ * <p>
+ * When NBP is unavailable (see {@link ForexClient}) and nothing usable is cached, conversions fall
+ * back to the last persisted rate for the pair, its reverse or both PLN legs, as long as it is not
+ * older than {@code max-staleness}; beyond that they fail fast with {@link ForexUnavailableException}.
+ * <p>
+ * Rates are held as {@link Money#scaledRate scaled longs} and conversions are done on {@link Money},
+ * rounded once to the target currency's minor unit with {@code fx.rounding} (HALF_UP or HALF_EVEN).
+ * <p>
+ * Every rate loaded or refreshed is published to {@link FxRateStreamService} subscribers of its
+ * pair. Pairs with subscribers are read periodically, so they keep refreshing even when nothing
+ * converts with them.
+ */
 @Service
 public class ExchangeRateService {
+    private static final Currency PLN = Currency.getInstance("PLN");
+    private static final String NBP_TABLE = "A";
+
     private final ForexClient forexClient;
     private final ExchangeRateRepository exchangeRateRepository;
+    private final ExchangeRateHistoryService rateHistory;
+    private final FxRateStreamService rateStream;
+    private final Duration ttl;
+    private final Duration maxStaleness;
+    private final ExecutorService refreshExecutor;
+    private final AsyncLoadingCache<CurrencyPair, FxRate> rates;
+    private final RateLoader rateLoader = new RateLoader();
+    private final ConcurrentHashMap<Currency, Fetch<BigDecimal>> fetches = new ConcurrentHashMap<>();
+    private final DistributionSummary callersPerFetch;
+    private final FxRateSource rateSource;
+    private final Duration refreshAfter;
+    private final AtomicReference<CrossRateMatrix> matrix = new AtomicReference<>();
+    private final ConcurrentHashMap<String, Fetch<CrossRateMatrix>> tableFetches = new ConcurrentHashMap<>();
+    private final AtomicBoolean tableRefreshScheduled = new AtomicBoolean();
+    private final RoundingMode rounding;
 
-    public ExchangeRateService(ForexClient forexClient, ExchangeRateRepository exchangeRateRepository) {
+    public ExchangeRateService(ForexClient forexClient, ExchangeRateRepository exchangeRateRepository,
+                               ExchangeRateHistoryService rateHistory, FxRateStreamService rateStream, InternalThreadFactory threadFactory, MeterRegistry meterRegistry,
+                               @Value("${minibank.fx.rate-source:PER_CURRENCY}") FxRateSource rateSource,
+                               @Value("${minibank.fx.cache-ttl:PT5M}") Duration ttl,
+                               @Value("${minibank.fx.refresh-after:PT4M}") Duration refreshAfter,
+                               @Value("${minibank.fx.max-staleness:PT1H}") Duration maxStaleness,
+                               @Value("${minibank.fx.rounding:HALF_UP}") RoundingMode rounding) {
+        if (refreshAfter.compareTo(ttl) >= 0) {
+            throw new IllegalArgumentException("minibank.fx.refresh-after must be shorter than minibank.fx.cache-ttl!");
+        }
+        if (rounding != RoundingMode.HALF_UP && rounding != RoundingMode.HALF_EVEN) {
+            throw new IllegalArgumentException("minibank.fx.rounding must be HALF_UP or HALF_EVEN!");
+        }
+        this.rounding = rounding;
         this.forexClient = forexClient;
         this.exchangeRateRepository = exchangeRateRepository;
+        this.rateHistory = rateHistory;
+        this.rateStream = rateStream;
+        this.ttl = ttl;
+        this.rateSource = rateSource;
+        this.refreshAfter = refreshAfter;
+        this.maxStaleness = maxStaleness;
+        this.refreshExecutor = Executors.newFixedThreadPool(2, threadFactory.named("fx-refresh"));
+        this.rates = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .executor(refreshExecutor)
+                .buildAsync(rateLoader);
+        this.callersPerFetch = DistributionSummary.builder("minibank.fx.fetch.callers")
+                .description("Callers served by one NBP fetch")
+                .register(meterRegistry);
     }
 
     public BigDecimal convert (BigDecimal amount, CurrencyPair pair) {
+        return convert(Money.of(amount, pair.base()), pair.counter()).toBigDecimal();
+    }
+
+    public Money convert(Money amount, Currency target) {
+        return resolveRate(amount.currency(), target).convert(amount, target, rounding);
+    }
+
+    /** Converts at a given (e.g. quoted) rate, without looking any rate up. */
+    public BigDecimal convert(BigDecimal amount, CurrencyPair pair, FxRate rate) {
+        return convert(Money.of(amount, pair.base()), pair.counter(), rate).toBigDecimal();
+    }
+
+    /** Converts at a rate resolved earlier with {@link #currentRate} or locked by a quote, without looking any rate up. */
+    public Money convert(Money amount, Currency target, FxRate rate) {
+        return rate.convert(amount, target, rounding);
+    }
+
+    /** The base-to-counter rate a conversion would use right now. */
+    public BigDecimal rate(CurrencyPair pair) {
+        return currentRate(pair).directRate();
+    }
+
+    /** The rate a conversion would use right now, as cached. */
+    public FxRate currentRate(CurrencyPair pair) {
+        return resolveRate(pair.base(), pair.counter());
+    }
+
+    /** Reads every streamed pair, which triggers its refresh-ahead (and so a publish) once it is due. */
+    @Scheduled(fixedDelayString = "${minibank.fx.stream.refresh-interval:PT30S}")
+    public void refreshStreamedRates() {
+        for (CurrencyPair pair : rateStream.subscribedPairs()) {
+            try {
+                rate(pair);
+            } catch (RuntimeException e) {
+                // subscribers keep the last published rate; the next run tries again
+            }
+        }
+    }
+
+    private FxRate resolveRate(Currency base, Currency target) {
+        try {
+            if (rateSource == FxRateSource.TABLE) return new FxRate(currentMatrix().scaledRate(base, target), false);
+            return cachedRate(new CurrencyPair(base, target));
+        } catch (ForexUnavailableException e) {
+            return lastKnownRate(base, target, e);
+        }
+    }
+
+    private FxRate cachedRate(CurrencyPair pair) {
+        CompletableFuture<FxRate> loading = new CompletableFuture<>();
+        CompletableFuture<FxRate> rate = rates.get(pair, (key, executor) -> loading);
+        if (rate == loading) {
+            try {
+                loading.complete(rateLoader.load(pair));
+            } catch (RuntimeException e) {
+                // the failed future is dropped from the cache, so the next read loads again
+                loading.completeExceptionally(e);
+            }
+        }
+        return join(rate);
+    }
+
+    private FxRate lastKnownRate(Currency base, Currency target, ForexUnavailableException cause) {
+        LocalDateTime oldest = LocalDateTime.now().minus(maxStaleness);
+        ExchangeRate direct = lastKnownRate(new CurrencyPair(base, target), oldest);
+        if (direct != null) return FxRate.of(direct.getRate(), false);
+
+        ExchangeRate reverse = lastKnownRate(new CurrencyPair(target, base), oldest);
+        if (reverse != null) return FxRate.of(reverse.getRate(), true);
+
+        BigDecimal basePln = lastKnownPlnRate(base, oldest);
+        BigDecimal counterPln = lastKnownPlnRate(target, oldest);
+        if (basePln == null || counterPln == null) throw cause;
+        return FxRate.of(basePln.divide(counterPln, Money.RATE_SCALE, RoundingMode.HALF_UP), false);
+    }
+
+    private ExchangeRate lastKnownRate(CurrencyPair pair, LocalDateTime oldest) {
+        ExchangeRate rate = exchangeRateRepository.findTopByPairOrderByTimestampDesc(pair);
+        return rate != null && !rate.getTimestamp().isBefore(oldest) ? rate : null;
+    }
+
+    private BigDecimal lastKnownPlnRate(Currency currency, LocalDateTime oldest) {
+        if (currency.equals(PLN)) return BigDecimal.ONE;
+        ExchangeRate rate = lastKnownRate(new CurrencyPair(currency, PLN), oldest);
+        return rate != null ? rate.getRate() : null;
+    }
+
+    private CrossRateMatrix currentMatrix() {
+        CrossRateMatrix current = matrix.get();
+        LocalDateTime now = LocalDateTime.now();
+        if (current == null || current.fetchedAt().isBefore(now.minus(ttl))) {
+            return singleFlight(tableFetches, NBP_TABLE, this::loadTable);
+        }
+        if (current.fetchedAt().isBefore(now.minus(refreshAfter)) && tableRefreshScheduled.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> {
+                try {
+                    singleFlight(tableFetches, NBP_TABLE, this::loadTable);
+                } catch (RuntimeException e) {
+                    // the current matrix is served until it expires; the next read past refresh-after retries
+                } finally {
+                    tableRefreshScheduled.set(false);
+                }
+            });
+        }
+        return current;
+    }
+
+    private CrossRateMatrix loadTable() {
+        Map<Currency, BigDecimal> plnRates = forexClient.getRateTable();
+        CrossRateMatrix loaded = new CrossRateMatrix(plnRates, LocalDateTime.now());
+        List<ExchangeRate> rows = plnRates.entrySet().stream()
+                .filter(rate -> !rate.getKey().equals(PLN))
+                .map(rate -> new ExchangeRate(new CurrencyPair(rate.getKey(), PLN), rate.getValue()))
+                .toList();
+        rateHistory.saveAll(rows);
+        matrix.set(loaded);
+        for (CurrencyPair pair : rateStream.subscribedPairs()) {
+            if (loaded.supports(pair.base()) && loaded.supports(pair.counter())) rateStream.publish(pair, loaded.rate(pair));
+        }
+        return loaded;
+    }
+
+    /** Cold start: a fresh rate stored for the pair (or its reverse) if there is one, NBP otherwise. */
+    private FxRate loadRate(CurrencyPair pair) {
         ExchangeRate exchangeRate = exchangeRateRepository.findTopByPairOrderByTimestampDesc(pair);
         CurrencyPair reversePair = new CurrencyPair(pair.counter(), pair.base());
         if (exchangeRate == null) {
             exchangeRate = exchangeRateRepository.findTopByPairOrderByTimestampDesc(reversePair);
-            if (exchangeRate != null && !isRateStale(exchangeRate)) return amount.divide(exchangeRate.getRate(), 2, RoundingMode.HALF_UP);
+            if (exchangeRate != null && !isRateStale(exchangeRate)) return FxRate.of(exchangeRate.getRate(), true);
         }
+        if (exchangeRate != null && !isRateStale(exchangeRate)) return FxRate.of(exchangeRate.getRate(), false);
 
+        boolean inverse = exchangeRate != null && exchangeRate.getPair().equals(reversePair);
+        return fetchRate(pair, inverse);
+    }
 
-        if (exchangeRate == null || isRateStale(exchangeRate)) {
-            BigDecimal fromRate = forexClient.getExchangeRate(pair.base());
-            BigDecimal toRate = forexClient.getExchangeRate(pair.counter());
+    private FxRate fetchRate(CurrencyPair pair, boolean inverse) {
+        BigDecimal fromRate = fetchNbpRate(pair.base());
+        BigDecimal toRate = fetchNbpRate(pair.counter());
 
-            BigDecimal crossRate = fromRate.divide(toRate, 4, RoundingMode.HALF_UP);
+        if (inverse) {
+            BigDecimal reversedCrossRate = toRate.divide(fromRate, Money.RATE_SCALE, RoundingMode.HALF_UP);
+            rateHistory.save(new ExchangeRate(new CurrencyPair(pair.counter(), pair.base()), reversedCrossRate));
+            return FxRate.of(reversedCrossRate, true);
+        }
+        BigDecimal crossRate = fromRate.divide(toRate, Money.RATE_SCALE, RoundingMode.HALF_UP);
+        rateHistory.save(new ExchangeRate(pair, crossRate));
+        return FxRate.of(crossRate, false);
+    }
 
-            ExchangeRate newRate = new ExchangeRate();
-            if (exchangeRate!= null && exchangeRate.getPair().equals(reversePair)){
-                BigDecimal reversedCrossRate = toRate.divide(fromRate, 4, RoundingMode.HALF_UP);
-                newRate.setPair(reversePair);
-                newRate.setRate(reversedCrossRate);
-                exchangeRateRepository.save(newRate);
-                return amount.divide(reversedCrossRate, 2, RoundingMode.HALF_UP);
-            } else {
-                newRate.setPair(pair);
-                newRate.setRate(crossRate);
-                exchangeRateRepository.save(newRate);
-                return amount.multiply(crossRate).setScale(2, RoundingMode.HALF_UP);
-            }
+    private BigDecimal fetchNbpRate(Currency currency) {
+        return singleFlight(fetches, currency, () -> forexClient.getExchangeRate(currency));
+    }
+
+    private <K, V> V singleFlight(ConcurrentHashMap<K, Fetch<V>> flights, K key, Supplier<V> fetcher) {
+        Fetch<V> candidate = new Fetch<>();
+        Fetch<V> fetch = flights.compute(key, (k, inFlight) -> {
+            if (inFlight == null) return candidate;
+            inFlight.callers().incrementAndGet();
+            return inFlight;
+        });
+        if (fetch != candidate) return fetch.join();
+
+        try {
+            V value = fetcher.get();
+            flights.remove(key, fetch);
+            fetch.result().complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            flights.remove(key, fetch);
+            fetch.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            callersPerFetch.record(fetch.callers().get());
         }
-        return amount.multiply(exchangeRate.getRate()).setScale(2, RoundingMode.HALF_UP);
     }
 
     private boolean isRateStale(ExchangeRate rate) {
-        return rate.getTimestamp().isBefore(LocalDateTime.now().minusMinutes(5));
+        return rate.getTimestamp().isBefore(LocalDateTime.now().minus(ttl));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private class RateLoader implements CacheLoader<CurrencyPair, FxRate> {
+        @Override
+        public FxRate load(CurrencyPair pair) {
+            return published(pair, loadRate(pair));
+        }
+
+        @Override
+        public FxRate reload(CurrencyPair pair, FxRate oldRate) {
+            return published(pair, fetchRate(pair, oldRate.inverse()));
+        }
+
+        private FxRate published(CurrencyPair pair, FxRate rate) {
+            rateStream.publish(pair, rate.directRate());
+            return rate;
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /** An NBP lookup in flight; {@code callers} counts the leader and everyone who joined it before it finished. */
+    private record Fetch<V>(CompletableFuture<V> result, AtomicInteger callers) {
+        Fetch() {
+            this(new CompletableFuture<>(), new AtomicInteger(1));
+        }
+
+        V join() {
+            return ExchangeRateService.join(result);
+        }
     }
 }
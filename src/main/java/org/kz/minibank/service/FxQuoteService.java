@@ -0,0 +1,54 @@
+package org.kz.minibank.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.FxQuote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Issues FX quotes: the current rate for a pair, locked for {@code ttl}. Quotes live in a bounded
+ * in-memory store and are not persisted; a transfer that names a quote converts at its rate, so
+ * the credited amount is known up front and no rate has to be resolved while the transfer commits.
+ */
+@Service
+public class FxQuoteService {
+    private final ExchangeRateService exchangeRateService;
+    private final Duration ttl;
+    private final Cache<UUID, FxQuote> quotes;
+
+    public FxQuoteService(ExchangeRateService exchangeRateService,
+                          @Value("${minibank.fx.quotes.ttl:PT30S}") Duration ttl,
+                          @Value("${minibank.fx.quotes.max-size:100000}") long maxSize) {
+        this.exchangeRateService = exchangeRateService;
+        this.ttl = ttl;
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public FxQuote createQuote(String sourceCurrencyCode, String targetCurrencyCode) {
+        CurrencyPair pair = CurrencyPair.of(sourceCurrencyCode, targetCurrencyCode);
+        FxQuote quote = new FxQuote(UUID.randomUUID(), pair, exchangeRateService.currentRate(pair), LocalDateTime.now().plus(ttl));
+        quotes.put(quote.id(), quote);
+        return quote;
+    }
+
+    /** The locked rate of a live quote for exactly this pair. */
+    public FxQuote getQuote(UUID quoteId, CurrencyPair pair) {
+        FxQuote quote = quotes.getIfPresent(quoteId);
+        if (quote == null || quote.isExpired(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Quote not found or expired!");
+        }
+        if (!quote.pair().equals(pair)) {
+            throw new IllegalArgumentException("Quote does not match the account currencies!");
+        }
+        return quote;
+    }
+}
@@ -0,0 +1,213 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.kz.minibank.DTO.FxRateUpdateDTO;
+import org.kz.minibank.model.CurrencyPair;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes FX rate updates to Server-Sent Event subscribers of a currency pair. Publishing never
+ * blocks on subscribers: each one holds only its latest undelivered update, which is written out
+ * on a virtual thread of its own. A slow subscriber skips intermediate rates (they are conflated
+ * into the newest one) instead of queueing them or holding up the publisher and other subscribers.
+ * <p>
+ * A write blocks while the client does not read. A subscriber whose write has not returned within
+ * {@code send-timeout} is dropped: it gets no further updates and stops counting towards
+ * {@code max-subscribers}, and its stream is closed once the write gives up.
+ */
+@Service
+public class FxRateStreamService {
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<CurrencyPair, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final Counter conflated;
+    private final Counter stalled;
+    private final Duration timeout;
+    private final Duration sendTimeout;
+    private final int maxSubscribers;
+
+    public FxRateStreamService(MeterRegistry meterRegistry,
+                               @Value("${minibank.fx.stream.max-subscribers:10000}") int maxSubscribers,
+                               @Value("${minibank.fx.stream.timeout:PT30M}") Duration timeout,
+                               @Value("${minibank.fx.stream.send-timeout:PT10S}") Duration sendTimeout) {
+        // virtual whatever spring.threads.virtual.enabled says: a stalled client parks only its own sender
+        this.senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fx-stream").factory());
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+        this.conflated = Counter.builder("minibank.fx.stream.conflated")
+                .description("Rate updates replaced by a newer one before a subscriber received them")
+                .register(meterRegistry);
+        this.stalled = Counter.builder("minibank.fx.stream.stalled")
+                .description("Subscribers dropped because a write to them did not return within the send timeout")
+                .register(meterRegistry);
+        Gauge.builder("minibank.fx.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open FX rate streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for {@code pair} that starts with {@code initialRate}. Throws
+     * {@link RejectedExecutionException} once {@code max-subscribers} streams are open.
+     */
+    public SseEmitter subscribe(CurrencyPair pair, BigDecimal initialRate) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RejectedExecutionException("Too many open rate streams!");
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(pair, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.compute(pair, (p, forPair) -> {
+            Set<Subscriber> updated = forPair != null ? forPair : ConcurrentHashMap.newKeySet();
+            updated.add(subscriber);
+            return updated;
+        });
+        offer(subscriber, update(pair, initialRate));
+        return emitter;
+    }
+
+    /** Hands a new base-to-counter rate to every subscriber of the pair; returns without waiting for any of them. */
+    public void publish(CurrencyPair pair, BigDecimal rate) {
+        Set<Subscriber> forPair = subscribers.get(pair);
+        if (forPair == null || forPair.isEmpty()) return;
+        FxRateUpdateDTO update = update(pair, rate);
+        for (Subscriber subscriber : forPair) {
+            offer(subscriber, update);
+        }
+    }
+
+    public Set<CurrencyPair> subscribedPairs() {
+        return subscribers.keySet();
+    }
+
+    /**
+     * Unsubscribes everyone whose current write has been blocked for longer than {@code send-timeout}.
+     * The emitter is left to its sender: completing it here would wait for the lock the write holds.
+     */
+    @Scheduled(fixedDelayString = "${minibank.fx.stream.stall-check-interval:PT1S}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(forPair -> forPair.forEach(subscriber -> {
+            long started = subscriber.sendStartedAt().get();
+            if (started != IDLE && now - started > sendTimeout.toNanos() && unsubscribe(subscriber)) {
+                stalled.increment();
+            }
+        }));
+    }
+
+    private void offer(Subscriber subscriber, FxRateUpdateDTO update) {
+        if (subscriber.pending().getAndSet(update) != null) conflated.increment();
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.sending().compareAndSet(false, true)) return;
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.sending().set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        FxRateUpdateDTO update;
+        while ((update = subscriber.pending().getAndSet(null)) != null) {
+            subscriber.sendStartedAt().set(System.nanoTime());
+            try {
+                subscriber.emitter().send(SseEmitter.event().name("rate").data(update));
+            } catch (IOException | IllegalStateException e) {
+                // the client went away; the emitter callbacks may not fire for a dead connection
+                unsubscribe(subscriber);
+                subscriber.emitter().completeWithError(e);
+                return;
+            } finally {
+                subscriber.sendStartedAt().set(IDLE);
+            }
+            if (!subscriber.subscribed().get()) {
+                subscriber.emitter().completeWithError(new IOException("Rate stream client stopped reading"));
+                return;
+            }
+        }
+        subscriber.sending().set(false);
+        if (subscriber.pending().get() != null) schedule(subscriber);
+    }
+
+    /** Returns whether this call removed the subscriber. */
+    private boolean unsubscribe(Subscriber subscriber) {
+        if (!subscriber.subscribed().compareAndSet(true, false)) return false;
+        subscribers.computeIfPresent(subscriber.pair(), (pair, forPair) -> {
+            forPair.remove(subscriber);
+            return forPair.isEmpty() ? null : forPair;
+        });
+        subscriberCount.decrementAndGet();
+        return true;
+    }
+
+    private static FxRateUpdateDTO update(CurrencyPair pair, BigDecimal rate) {
+        return new FxRateUpdateDTO(pair.base().getCurrencyCode(), pair.counter().getCurrencyCode(), rate,
+                LocalDateTime.now());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        subscribers.values().forEach(forPair -> forPair.forEach(subscriber -> subscriber.emitter().complete()));
+        senders.shutdown();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * {@code pending} is the latest update not yet sent; {@code sending} is set while a sender drains
+     * it and {@code sendStartedAt} while a write is in progress.
+     */
+    private static final class Subscriber {
+        private final CurrencyPair pair;
+        private final SseEmitter emitter;
+        private final AtomicReference<FxRateUpdateDTO> pending = new AtomicReference<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean subscribed = new AtomicBoolean(true);
+        private final AtomicLong sendStartedAt = new AtomicLong(IDLE);
+
+        Subscriber(CurrencyPair pair, SseEmitter emitter) {
+            this.pair = pair;
+            this.emitter = emitter;
+        }
+
+        CurrencyPair pair() { return pair; }
+
+        SseEmitter emitter() { return emitter; }
+
+        AtomicReference<FxRateUpdateDTO> pending() { return pending; }
+
+        AtomicBoolean sending() { return sending; }
+
+        AtomicBoolean subscribed() { return subscribed; }
+
+        AtomicLong sendStartedAt() { return sendStartedAt; }
+    }
+}
@@ -0,0 +1,149 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Group commit for balance operations. Concurrent callers enqueue their operation and a single
+ * committer thread runs everything collected within {@code window-ms} (or up to
+ * {@code max-batch-size} operations) in one database transaction, so many requests share one
+ * commit. A caller is released only after its group has committed. If any operation of a group
+ * fails, the group is rolled back and its operations are rerun one transaction each, so one bad
+ * request never fails its neighbours. Operations run one after another on the committer, so they
+ * should only write: anything slow, such as an FX rate lookup, belongs on the caller's thread.
+ * <p>
+ * When disabled, operations run directly on the calling thread.
+ */
+@Service
+public class GroupCommitExecutor {
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingOperation<?>> queue;
+    private final DistributionSummary batchSizes;
+    private final Timer commitLatency;
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    public GroupCommitExecutor(TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                               InternalThreadFactory threadFactory,
+                               @Value("${minibank.group-commit.enabled:false}") boolean enabled,
+                               @Value("${minibank.group-commit.window-ms:2}") long windowMs,
+                               @Value("${minibank.group-commit.max-batch-size:64}") int maxBatchSize,
+                               @Value("${minibank.group-commit.queue-capacity:10000}") int queueCapacity) {
+        if (maxBatchSize < 1) { throw new IllegalArgumentException("max-batch-size must be at least 1!"); }
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("minibank.group-commit.batch-size")
+                .description("Operations committed together in one database transaction")
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("minibank.group-commit.latency")
+                .description("Time to run and commit one group")
+                .register(meterRegistry);
+        this.committer = threadFactory.newThread("group-committer", this::run);
+        if (enabled) committer.start();
+    }
+
+    public <T> T submit(Supplier<T> operation) {
+        if (!enabled) return operation.get();
+
+        PendingOperation<T> pending = new PendingOperation<>(operation, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            throw new RejectedExecutionException("Group commit queue is full");
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<PendingOperation<?>> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOperation<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                collect(group);
+                commit(group);
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingOperation<?>> group) throws InterruptedException {
+        long deadline = System.nanoTime() + windowNanos;
+        while (group.size() < maxBatchSize) {
+            queue.drainTo(group, maxBatchSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxBatchSize || remaining <= 0) return;
+            PendingOperation<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            group.add(next);
+        }
+    }
+
+    private void commit(List<PendingOperation<?>> group) {
+        batchSizes.record(group.size());
+        List<Object> results = new ArrayList<>(group.size());
+        try {
+            commitLatency.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                for (PendingOperation<?> pending : group) {
+                    results.add(pending.operation().get());
+                }
+            }));
+        } catch (RuntimeException e) {
+            group.forEach(this::commitAlone);
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).complete(results.get(i));
+        }
+    }
+
+    private <T> void commitAlone(PendingOperation<T> pending) {
+        try {
+            pending.result().complete(transactionTemplate.execute(status -> pending.operation().get()));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (enabled) committer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private record PendingOperation<T>(Supplier<T> operation, CompletableFuture<T> result) {
+        @SuppressWarnings("unchecked")
+        void complete(Object value) {
+            result.complete((T) value);
+        }
+    }
+}
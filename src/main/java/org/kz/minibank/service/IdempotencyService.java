@@ -0,0 +1,204 @@
+package org.kz.minibank.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.kz.minibank.DTO.TransactionResponseDTO;
+import org.kz.minibank.exception.ForexUnavailableException;
+import org.kz.minibank.model.IdempotencyRecord;
+import org.kz.minibank.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Replays the stored response of a request that carries an already seen {@code Idempotency-Key}.
+ * Recent keys live in a bounded, time-evicted in-memory cache; the {@code idempotency_records}
+ * table is the durable fallback and its unique key arbitrates between nodes. Concurrent duplicates
+ * on one node wait for the in-flight request instead of executing again.
+ * <p>
+ * A key is claimed in the database before its operation runs and completed after it. A claim left
+ * incomplete for longer than {@code claim-timeout}, by a node that crashed in between, is taken
+ * over by the next request with the same key and body, which runs the operation again; the timeout
+ * must therefore be longer than any operation can take. Until then duplicates get 409.
+ * <p>
+ * A claim is released only when the operation failed before it could move any money (validation
+ * errors, or no FX rate to convert with). Any other failure is in doubt: a ledger ack timeout, for
+ * one, leaves the transfer queued and about to be persisted. Its claim is kept, so a retry gets 409
+ * until {@code claim-timeout} has passed instead of moving the money twice.
+ */
+@Service
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int COMPLETE_ATTEMPTS = 3;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+    private final Duration ttl;
+    private final Duration claimTimeout;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+                              @Value("${minibank.idempotency.cache-size:100000}") long cacheSize,
+                              @Value("${minibank.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${minibank.idempotency.claim-timeout:PT1M}") Duration claimTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public TransactionResponseDTO execute(String idempotencyKey, String ownerEmail, String operationName, Object request,
+                                          Supplier<TransactionResponseDTO> operation) {
+        if (idempotencyKey == null) return operation.get();
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters!");
+        }
+
+        String requestHash = hash(operationName, request);
+        String cacheKey = ownerEmail + '\u0000' + idempotencyKey;
+        CompletableFuture<StoredResponse> inFlight = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(cacheKey, inFlight);
+        if (existing != null) {
+            return replay(await(existing), requestHash);
+        }
+
+        try {
+            StoredResponse stored = claimAndExecute(ownerEmail, idempotencyKey, requestHash, operation);
+            inFlight.complete(stored);
+            return replay(stored, requestHash);
+        } catch (RuntimeException e) {
+            responses.asMap().remove(cacheKey, inFlight);
+            inFlight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${minibank.idempotency.cleanup-interval:PT1H}")
+    public void purgeExpiredRecords() {
+        idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minus(ttl));
+    }
+
+    private StoredResponse claimAndExecute(String ownerEmail, String idempotencyKey, String requestHash,
+                                           Supplier<TransactionResponseDTO> operation) {
+        IdempotencyRecord previous = idempotencyRecordRepository
+                .findByOwnerEmailAndIdempotencyKey(ownerEmail, idempotencyKey).orElse(null);
+        if (previous != null && !reclaim(previous, requestHash)) return fromRecord(previous);
+
+        IdempotencyRecord claim = previous;
+        if (claim == null) {
+            try {
+                claim = idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(ownerEmail, idempotencyKey, requestHash));
+            } catch (DataIntegrityViolationException e) {
+                return idempotencyRecordRepository.findByOwnerEmailAndIdempotencyKey(ownerEmail, idempotencyKey)
+                        .map(this::fromRecord)
+                        .orElseThrow(() -> e);
+            }
+        }
+
+        TransactionResponseDTO response;
+        try {
+            response = operation.get();
+        } catch (IllegalArgumentException | ForexUnavailableException e) {
+            idempotencyRecordRepository.delete(claim);
+            throw e;
+        }
+        complete(claim, write(response));
+        return new StoredResponse(requestHash, response);
+    }
+
+    /** Retried: once the operation has run, a lost write would let it run again after {@code claim-timeout}. */
+    private void complete(IdempotencyRecord claim, String responseBody) {
+        claim.complete(responseBody);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                idempotencyRecordRepository.save(claim);
+                return;
+            } catch (DataAccessException e) {
+                if (attempt == COMPLETE_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    /** Takes over a claim that was never completed within {@code claim-timeout}; at most one caller wins. */
+    private boolean reclaim(IdempotencyRecord record, String requestHash) {
+        if (record.isCompleted() || !record.getRequestHash().equals(requestHash)) return false;
+        LocalDateTime now = LocalDateTime.now();
+        if (idempotencyRecordRepository.reclaim(record.getId(), now.minus(claimTimeout), now) == 0) return false;
+        record.setCreatedDate(now);
+        return true;
+    }
+
+    private StoredResponse fromRecord(IdempotencyRecord record) {
+        if (!record.isCompleted()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed!");
+        }
+        return new StoredResponse(record.getRequestHash(), read(record.getResponseBody()));
+    }
+
+    private TransactionResponseDTO replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request!");
+        }
+        return stored.response();
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private String hash(String operationName, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operationName.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String write(TransactionResponseDTO response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store idempotent response", e);
+        }
+    }
+
+    private TransactionResponseDTO read(String body) {
+        try {
+            return objectMapper.readValue(body, TransactionResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read idempotent response", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, TransactionResponseDTO response) {
+    }
+}
@@ -0,0 +1,140 @@
+package org.kz.minibank.service;
+
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.BalanceSnapshot;
+import org.kz.minibank.model.LedgerEntry;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.BalanceSnapshotRepository;
+import org.kz.minibank.repository.LedgerEntryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Append-only double-entry journal. Every successful balance change is recorded as ledger entries,
+ * and the journal balance of an account is its latest snapshot plus the entries created since.
+ * Snapshots are rolled forward in the background, but only up to {@code snapshot-lag} ago, so
+ * entries of transactions that are still committing are never skipped.
+ * <p>
+ * Each account starts with an opening entry. For a new account it is zero; an account stored before
+ * it was journaled is opened on startup with the balance it had by then.
+ */
+@Service
+public class JournalService {
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountRepository accountRepository;
+    private final BalanceStripeService balanceStripeService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration snapshotLag;
+    /** Entries before it are in the snapshots; loaded from the latest snapshot on the first roll. */
+    private volatile LocalDateTime lastSnapshotCutoff;
+
+    public JournalService(LedgerEntryRepository ledgerEntryRepository, BalanceSnapshotRepository balanceSnapshotRepository,
+                          AccountRepository accountRepository, BalanceStripeService balanceStripeService,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${minibank.journal.snapshot-lag:PT1M}") Duration snapshotLag) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountRepository = accountRepository;
+        this.balanceStripeService = balanceStripeService;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotLag = snapshotLag;
+    }
+
+    /** Entries of a transfer: the debited amount in the source currency and the credited amount in the target currency. */
+    public List<LedgerEntry> transferEntries(Transaction transaction, BigDecimal creditedAmount) {
+        return List.of(
+                LedgerEntry.debit(transaction.getSourceAccount(), transaction, transaction.getAmount()),
+                LedgerEntry.credit(transaction.getTargetAccount(), transaction, creditedAmount)
+        );
+    }
+
+    public void recordTransfer(Transaction transaction, BigDecimal creditedAmount) {
+        append(transferEntries(transaction, creditedAmount));
+    }
+
+    public void openAccount(Account account) {
+        ledgerEntryRepository.save(LedgerEntry.opening(account, account.getBalance()));
+    }
+
+    /**
+     * Opens every account that has no opening entry yet, with its balance (stripes included) less
+     * whatever the journal already holds for it. The account row stays locked meanwhile, so no
+     * balance change can slip in between.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void openUnjournaledAccounts() {
+        for (Long accountId : ledgerEntryRepository.findAccountIdsWithoutOpening(LedgerEntry.OPENING_TRANSACTION_ID)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Account account = accountRepository.findByIdForUpdate(accountId);
+                    if (account == null
+                            || ledgerEntryRepository.existsByAccountIdAndTransactionId(accountId, LedgerEntry.OPENING_TRANSACTION_ID)) {
+                        return;
+                    }
+                    BigDecimal booked = account.getBalance().add(balanceStripeService.pendingCredits(account));
+                    ledgerEntryRepository.save(LedgerEntry.opening(account, booked.subtract(getBalance(accountId))));
+                });
+            } catch (ConcurrencyFailureException e) {
+                // the account is busy; it is opened on the next startup
+            }
+        }
+    }
+
+    public void recordDeposit(Transaction transaction) {
+        ledgerEntryRepository.save(LedgerEntry.credit(transaction.getTargetAccount(), transaction, transaction.getAmount()));
+    }
+
+    public void recordWithdrawal(Transaction transaction) {
+        ledgerEntryRepository.save(LedgerEntry.debit(transaction.getSourceAccount(), transaction, transaction.getAmount()));
+    }
+
+    public void append(List<LedgerEntry> entries) {
+        if (!entries.isEmpty()) {
+            ledgerEntryRepository.saveAll(entries);
+        }
+    }
+
+    public BigDecimal getBalance(Long accountId) {
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findById(accountId).orElseGet(() -> new BalanceSnapshot(accountId));
+        return snapshot.getBalance().add(ledgerEntryRepository.sumSince(accountId, snapshot.getAsOf()));
+    }
+
+    @Scheduled(fixedDelayString = "${minibank.journal.snapshot-interval:PT1M}")
+    public void rollSnapshots() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(snapshotLag);
+        if (lastSnapshotCutoff == null) {
+            LocalDateTime latest = balanceSnapshotRepository.findLatestAsOf();
+            lastSnapshotCutoff = latest != null ? latest : BalanceSnapshot.ORIGIN;
+        }
+        boolean complete = true;
+        for (Long accountId : ledgerEntryRepository.findAccountIdsWithEntriesBetween(lastSnapshotCutoff, cutoff)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rollSnapshot(accountId, cutoff));
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                // another node rolled this snapshot concurrently; retried in the next round
+                complete = false;
+            }
+        }
+        if (complete) lastSnapshotCutoff = cutoff;
+    }
+
+    private void rollSnapshot(Long accountId, LocalDateTime cutoff) {
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findById(accountId).orElseGet(() -> new BalanceSnapshot(accountId));
+        if (!snapshot.getAsOf().isBefore(cutoff)) return;
+        snapshot.rollForward(ledgerEntryRepository.sumBetween(accountId, snapshot.getAsOf(), cutoff), cutoff);
+        balanceSnapshotRepository.save(snapshot);
+    }
+}
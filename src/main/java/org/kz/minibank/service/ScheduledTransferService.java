@@ -0,0 +1,110 @@
+package org.kz.minibank.service;
+
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.ScheduledTransfer;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransferFrequency;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.ScheduledTransferRepository;
+import org.kz.minibank.repository.TransactionRepository;
+import org.kz.minibank.scheduling.DueTransfer;
+import org.kz.minibank.scheduling.ScheduledExecution;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class ScheduledTransferService {
+    /** How far in the past a new schedule may start, for clients whose "now" arrives a little late. */
+    static final Duration FIRST_EXECUTION_TOLERANCE = Duration.ofMinutes(1);
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+
+    public ScheduledTransferService(ScheduledTransferRepository scheduledTransferRepository,
+                                    AccountRepository accountRepository, TransactionRepository transactionRepository) {
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    /**
+     * A new schedule must not start in the past: missed occurrences are caught up one by one, which
+     * is meant for schedules that were stored before a downtime, not for back-dating a new order.
+     */
+    @Transactional
+    public ScheduledTransfer createSchedule(String ownerEmail, String sourceAccountNumber, String targetAccountNumber,
+                                            BigDecimal amount, String title, TransferFrequency frequency,
+                                            LocalDateTime firstExecution) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive!");
+        }
+        if (firstExecution == null || firstExecution.isBefore(LocalDateTime.now().minus(FIRST_EXECUTION_TOLERANCE))) {
+            throw new IllegalArgumentException("First execution must not be in the past!");
+        }
+        if (accountRepository.findIdByAccountNumber(targetAccountNumber) == null) {
+            throw new IllegalArgumentException("Account not found!");
+        }
+        if (sourceAccountNumber.equals(targetAccountNumber)) {
+            throw new IllegalArgumentException("Source and target accounts must be different!");
+        }
+        return scheduledTransferRepository.save(new ScheduledTransfer(ownerEmail, sourceAccountNumber, targetAccountNumber,
+                amount, title, frequency, firstExecution));
+    }
+
+    public List<ScheduledTransfer> getSchedules(String ownerEmail) {
+        return scheduledTransferRepository.findAllByOwnerEmailOrderByIdDesc(ownerEmail);
+    }
+
+    @Transactional
+    public void cancelSchedule(Long scheduleId, String ownerEmail) {
+        ScheduledTransfer schedule = scheduledTransferRepository.findById(scheduleId)
+                .filter(s -> s.getOwnerEmail().equals(ownerEmail))
+                .orElseThrow(() -> new IllegalArgumentException("Scheduled transfer not found!"));
+        schedule.cancel();
+        scheduledTransferRepository.save(schedule);
+    }
+
+    /**
+     * Turns every schedule of the batch that is due into a PENDING transfer and advances it by one
+     * occurrence. Both happen in one database transaction under a row lock on the schedule, so an
+     * occurrence is materialized exactly once however often it is fired (duplicate wheel entries,
+     * several nodes, a restart). The PENDING transfers are completed afterwards, see
+     * {@link AsyncTransferService}.
+     */
+    @Transactional
+    public ScheduledExecution executeDue(Collection<Long> scheduleIds, LocalDateTime now) {
+        List<ScheduledTransfer> schedules = scheduledTransferRepository.findAllByIdInForUpdate(scheduleIds);
+        List<UUID> transactionIds = new ArrayList<>();
+        List<DueTransfer> rescheduled = new ArrayList<>();
+        for (ScheduledTransfer schedule : schedules) {
+            if (!schedule.isDue(now)) continue;
+
+            Account source = accountRepository.findByAccountNumber(schedule.getSourceAccountNumber());
+            Account target = accountRepository.findByAccountNumber(schedule.getTargetAccountNumber());
+            if (source == null || target == null) {
+                schedule.setLastFailureReason("Account not found!");
+                schedule.cancel();
+                continue;
+            }
+            Transaction pending = transactionRepository.save(
+                    new Transaction(source, target, schedule.getAmount(), schedule.getTitle()));
+            schedule.setLastTransactionId(pending.getId());
+            schedule.advance();
+            transactionIds.add(pending.getId());
+            if (schedule.getNextExecution() != null) {
+                rescheduled.add(new DueTransfer(schedule.getId(), schedule.getNextExecution()));
+            }
+        }
+        scheduledTransferRepository.saveAll(schedules);
+        return new ScheduledExecution(transactionIds, rescheduled);
+    }
+}
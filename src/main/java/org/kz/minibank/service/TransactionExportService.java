@@ -0,0 +1,132 @@
+package org.kz.minibank.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.kz.minibank.DTO.TransactionStatusDTO;
+import org.kz.minibank.model.TransactionCursor;
+import org.kz.minibank.repository.TransactionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Full statement exports. Rows are read through two database cursors, outgoing and incoming,
+ * merged newest first like {@link AccountService#getTransactionHistory} and written out one by
+ * one: memory stays flat however long the history is, and no count query is run.
+ */
+@Service
+public class TransactionExportService {
+    static final String CSV_HEADER = "id,timestamp,amount,currency,sourceAccountNumber,targetAccountNumber,title,status,failureReason";
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectWriter jsonWriter;
+    private final ObjectMapper objectMapper;
+
+    public TransactionExportService(TransactionRepository transactionRepository, ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+        // the response is flushed once at the end, not after every row
+        this.jsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /** Called before the response starts, while a bad request can still get its status. */
+    public void validateRange(LocalDateTime from, LocalDateTime to) {
+        AccountService.validateRange(from, to);
+    }
+
+    /** Writes the transactions in {@code [from, to)} to {@code out}, which is flushed but left open. */
+    @Transactional(readOnly = true)
+    public void export(Long accountId, LocalDateTime from, LocalDateTime to, TransactionExportFormat format,
+                       OutputStream out) throws IOException {
+        LocalDateTime start = from != null ? from : AccountService.EARLIEST;
+        LocalDateTime end = to != null ? to : TransactionCursor.START.timestamp();
+        try (Stream<TransactionStatusDTO> outgoing = transactionRepository.streamOutgoing(accountId, start, end);
+             Stream<TransactionStatusDTO> incoming = transactionRepository.streamIncoming(accountId, start, end)) {
+            Iterator<TransactionStatusDTO> rows = newestFirst(outgoing.iterator(), incoming.iterator());
+            switch (format) {
+                case CSV -> writeCsv(rows, out);
+                case NDJSON -> writeNdjson(rows, out);
+            }
+        }
+    }
+
+    private void writeCsv(Iterator<TransactionStatusDTO> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (rows.hasNext()) {
+            TransactionStatusDTO row = rows.next();
+            writer.write(String.join(",", row.id().toString(), row.timestamp().toString(), row.amount().toPlainString(),
+                    row.currencyCode(), row.sourceAccountNumber(), row.targetAccountNumber(), csvText(row.title()),
+                    row.status().name(), csvText(row.failureReason())));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<TransactionStatusDTO> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        while (rows.hasNext()) {
+            jsonWriter.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    /**
+     * Free text is quoted when it holds a separator, quote or line break, and text a spreadsheet
+     * would run as a formula gets a leading {@code '}: titles are written by whoever sends the money.
+     */
+    static String csvText(String value) {
+        if (value == null || value.isEmpty()) return "";
+        if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) value = "'" + value;
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /** Merges two newest-first runs; a transfer from the account to itself is in both and is kept once. */
+    static Iterator<TransactionStatusDTO> newestFirst(Iterator<TransactionStatusDTO> outgoing,
+                                                      Iterator<TransactionStatusDTO> incoming) {
+        return new Iterator<>() {
+            private TransactionStatusDTO nextOut = advance(outgoing);
+            private TransactionStatusDTO nextIn = advance(incoming);
+
+            @Override
+            public boolean hasNext() {
+                return nextOut != null || nextIn != null;
+            }
+
+            @Override
+            public TransactionStatusDTO next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                TransactionStatusDTO next;
+                if (nextIn == null || (nextOut != null && AccountService.NEWEST_FIRST.compare(nextOut, nextIn) <= 0)) {
+                    next = nextOut;
+                    nextOut = advance(outgoing);
+                } else {
+                    next = nextIn;
+                    nextIn = advance(incoming);
+                }
+                if (nextIn != null && nextIn.id().equals(next.id())) nextIn = advance(incoming);
+                return next;
+            }
+        };
+    }
+
+    private static TransactionStatusDTO advance(Iterator<TransactionStatusDTO> rows) {
+        return rows.hasNext() ? rows.next() : null;
+    }
+}
@@ -0,0 +1,9 @@
+package org.kz.minibank.service;
+
+import org.kz.minibank.DTO.TransactionStatusDTO;
+
+import java.util.List;
+
+/** One page of an account's history, newest first; {@code nextCursor} is null on the last page. */
+public record TransactionHistorySlice(List<TransactionStatusDTO> transactions, String nextCursor) {
+}
@@ -1,7 +1,13 @@
 package org.kz.minibank.service;
 
+import jakarta.persistence.EntityManager;
+import org.kz.minibank.DTO.CreateTransactionRequest;
 import org.kz.minibank.model.Account;
 import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.FxQuote;
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.LedgerEntry;
+import org.kz.minibank.model.Money;
 import org.kz.minibank.model.Transaction;
 import org.kz.minibank.model.TransactionStatus;
 import org.kz.minibank.repository.AccountRepository;
@@ -10,34 +16,191 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class TransactionService {
+    static final int BATCH_FLUSH_SIZE = 500;
+
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
     private final ExchangeRateService exchangeRateService;
+    private final EntityManager entityManager;
+    private final BalanceStripeService balanceStripeService;
+    private final JournalService journalService;
+    private final FxQuoteService fxQuoteService;
 
     public TransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository,
-            ExchangeRateService exchangeRateService) {
+            ExchangeRateService exchangeRateService, EntityManager entityManager,
+            BalanceStripeService balanceStripeService, JournalService journalService, FxQuoteService fxQuoteService) {
         this.transactionRepository = transactionRepository;
         this.accountRepository = accountRepository;
         this.exchangeRateService = exchangeRateService;
+        this.entityManager = entityManager;
+        this.balanceStripeService = balanceStripeService;
+        this.journalService = journalService;
+        this.fxQuoteService = fxQuoteService;
     }
 
     @Transactional
     public Transaction createTransactionBetweenAccounts(String sourceAccountNumber, String targetAccountNumber,
             BigDecimal amount, String title) {
+        return createTransactionBetweenAccounts(sourceAccountNumber, targetAccountNumber, amount, title,
+                TransferLockStrategy.OPTIMISTIC);
+    }
+
+    @Transactional
+    public Transaction createTransactionBetweenAccounts(String sourceAccountNumber, String targetAccountNumber,
+            BigDecimal amount, String title, TransferLockStrategy lockStrategy) {
+        return createTransactionBetweenAccounts(sourceAccountNumber, targetAccountNumber, amount, title, lockStrategy, null);
+    }
+
+    /** A transfer that converts at the rate of FX quote {@code quoteId} when it is not null. */
+    @Transactional
+    public Transaction createTransactionBetweenAccounts(String sourceAccountNumber, String targetAccountNumber,
+            BigDecimal amount, String title, TransferLockStrategy lockStrategy, UUID quoteId) {
+        return createTransactionBetweenAccounts(sourceAccountNumber, targetAccountNumber, amount, title, lockStrategy,
+                quoteId, null);
+    }
+
+    /** Like the above, converting at {@code liveRate} from {@link #prepareTransfer} instead of looking the rate up. */
+    @Transactional
+    public Transaction createTransactionBetweenAccounts(String sourceAccountNumber, String targetAccountNumber,
+            BigDecimal amount, String title, TransferLockStrategy lockStrategy, UUID quoteId, FxRate liveRate) {
         Transaction transaction = new Transaction();
         transaction.setAmount(amount);
         transaction.setTitle(title);
         transaction.setStatus(TransactionStatus.PENDING);
+        return executeTransfer(transaction, sourceAccountNumber, targetAccountNumber, lockStrategy, quoteId, liveRate);
+    }
 
+    /**
+     * Checks what can be checked before a transfer is queued and resolves the live FX rate it will
+     * convert at: null for a same-currency transfer or one with a quote. Runs on the caller's
+     * thread, so a rate lookup that has to go to NBP never holds up a group commit. Not read-only:
+     * that would send it to the replica, which may not have the accounts yet.
+     */
+    @Transactional
+    public FxRate prepareTransfer(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount,
+            String title, UUID quoteId) {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Amount must be positive!");
         }
+        if (title == null) {
+            throw new IllegalArgumentException("Title is required!");
+        }
+        Account sourceAccount = accountRepository.findByAccountNumber(sourceAccountNumber);
+        Account targetAccount = accountRepository.findByAccountNumber(targetAccountNumber);
+        if (sourceAccount == null || targetAccount == null) {
+            throw new IllegalArgumentException("Account not found!");
+        }
+        return quoteId == null ? liveRate(sourceAccount, targetAccount) : null;
+    }
 
+    /**
+     * {@link #prepareTransfer} for a stored PENDING transfer; null when it has a locked rate or needs none.
+     * Reads the primary for the same reason, since the transfer was usually stored moments ago.
+     */
+    @Transactional
+    public FxRate prepareCompletion(UUID transactionId) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new IllegalArgumentException("Transaction not found!"));
+        if (transaction.getStatus() != TransactionStatus.PENDING || transaction.getFxRate() != null) return null;
+        return liveRate(transaction.getSourceAccount(), transaction.getTargetAccount());
+    }
+
+    private FxRate liveRate(Account sourceAccount, Account targetAccount) {
+        if (sourceAccount.getCurrency().equals(targetAccount.getCurrency())) return null;
+        return exchangeRateService.currentRate(new CurrencyPair(sourceAccount.getCurrency(), targetAccount.getCurrency()));
+    }
+
+    /**
+     * Stores a transfer as PENDING without moving any money, so it can be completed later by
+     * {@link TransferProcessor#completeTransfer}.
+     */
+    @Transactional
+    public Transaction createPendingTransfer(String sourceAccountNumber, String targetAccountNumber,
+            BigDecimal amount, String title) {
+        return createPendingTransfer(sourceAccountNumber, targetAccountNumber, amount, title, null);
+    }
+
+    /**
+     * Like {@link #createPendingTransfer(String, String, BigDecimal, String)}, with the rate of FX
+     * quote {@code quoteId} locked into the stored transfer, so it still applies once the quote expires.
+     */
+    @Transactional
+    public Transaction createPendingTransfer(String sourceAccountNumber, String targetAccountNumber,
+            BigDecimal amount, String title, UUID quoteId) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive!");
+        }
+        if (title == null) {
+            throw new IllegalArgumentException("Title is required!");
+        }
         Account sourceAccount = accountRepository.findByAccountNumber(sourceAccountNumber);
         Account targetAccount = accountRepository.findByAccountNumber(targetAccountNumber);
+        if (sourceAccount == null || targetAccount == null) {
+            throw new IllegalArgumentException("Account not found!");
+        }
+        Transaction transaction = new Transaction(sourceAccount, targetAccount, amount, title);
+        if (quoteId != null) {
+            lockQuotedRate(transaction, quoteId, sourceAccount, targetAccount);
+        }
+        return transactionRepository.save(transaction);
+    }
+
+    /**
+     * Executes a PENDING transfer. The transaction row stays locked until commit, so a transfer
+     * picked up by two workers is executed only once.
+     */
+    @Transactional
+    public Transaction completePendingTransfer(UUID transactionId, TransferLockStrategy lockStrategy) {
+        return completePendingTransfer(transactionId, lockStrategy, null);
+    }
+
+    /** Like the above, converting at {@code liveRate} from {@link #prepareCompletion} when the transfer has no locked rate. */
+    @Transactional
+    public Transaction completePendingTransfer(UUID transactionId, TransferLockStrategy lockStrategy, FxRate liveRate) {
+        Transaction transaction = transactionRepository.findByIdForUpdate(transactionId);
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction not found!");
+        }
+        if (transaction.getStatus() != TransactionStatus.PENDING) return transaction;
+        return executeTransfer(transaction, transaction.getSourceAccount().getAccountNumber(),
+                transaction.getTargetAccount().getAccountNumber(), lockStrategy, null, liveRate);
+    }
+
+    @Transactional
+    public void failPendingTransfer(UUID transactionId, String reason) {
+        Transaction transaction = transactionRepository.findByIdForUpdate(transactionId);
+        if (transaction != null && transaction.getStatus() == TransactionStatus.PENDING) {
+            saveFailedTransaction(transaction, reason);
+        }
+    }
+
+    private Transaction executeTransfer(Transaction transaction, String sourceAccountNumber, String targetAccountNumber,
+            TransferLockStrategy lockStrategy, UUID quoteId, FxRate liveRate) {
+        BigDecimal amount = transaction.getAmount();
+        String title = transaction.getTitle();
+
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive!");
+        }
+
+        AccountPair accounts = lockStrategy == TransferLockStrategy.PESSIMISTIC
+                ? lockAccountsInOrder(sourceAccountNumber, targetAccountNumber)
+                : new AccountPair(accountRepository.findByAccountNumber(sourceAccountNumber),
+                        accountRepository.findByAccountNumber(targetAccountNumber));
+        Account sourceAccount = accounts.source();
+        Account targetAccount = accounts.target();
 
         if (sourceAccount == null || targetAccount == null) {
             throw new IllegalArgumentException("Account not found!");
@@ -45,8 +208,12 @@ public class TransactionService {
         if (title == null) {
             throw new IllegalArgumentException("Title is required!");
         }
+        if (quoteId != null) {
+            lockQuotedRate(transaction, quoteId, sourceAccount, targetAccount);
+        }
 
-        if (sourceAccount.getBalance().compareTo(amount) < 0) {
+        Money debit = Money.of(amount, sourceAccount.getCurrency());
+        if (!balanceStripeService.hasFunds(sourceAccount, debit)) {
             return saveFailedTransaction(transaction, "Insufficient funds!");
         }
 
@@ -56,17 +223,16 @@ public class TransactionService {
 
         try {
 
-            BigDecimal targetAmount = amount;
+            Money credit = debit;
 
             if (!sourceAccount.getCurrency().equals(targetAccount.getCurrency())) {
-                CurrencyPair pair = new CurrencyPair(sourceAccount.getCurrency(), targetAccount.getCurrency());
-                targetAmount = exchangeRateService.convert(targetAmount, pair);
+                credit = convert(transaction, debit, targetAccount.getCurrency(), liveRate);
                 title = title + String.format(" [FX: %s %s -> %s %s]",
-                        amount, sourceAccount.getCurrency(), targetAmount, targetAccount.getCurrency());
+                        amount, sourceAccount.getCurrency(), credit.toBigDecimal(), targetAccount.getCurrency());
             }
 
-            sourceAccount.setBalance(sourceAccount.getBalance().subtract(amount));
-            targetAccount.setBalance(targetAccount.getBalance().add(targetAmount));
+            sourceAccount.setMoneyBalance(sourceAccount.moneyBalance().minus(debit));
+            credit(targetAccount, credit);
 
             accountRepository.save(sourceAccount);
             accountRepository.save(targetAccount);
@@ -77,12 +243,150 @@ public class TransactionService {
             transaction.setTitle(title);
             transaction.setStatus(TransactionStatus.SUCCESS);
 
-            return transactionRepository.save(transaction);
+            Transaction saved = transactionRepository.save(transaction);
+            journalService.recordTransfer(saved, credit.toBigDecimal());
+            return saved;
         } catch (Exception e) {
             throw e;
         }
     }
 
+    /**
+     * Executes many transfers in a single database transaction. All involved accounts are loaded
+     * with one IN query, balances are changed in memory and the resulting rows are flushed in
+     * JDBC batches of {@link #BATCH_FLUSH_SIZE}. Every instruction gets a result in input order;
+     * instructions that reference unknown accounts are reported as FAILED without being persisted.
+     */
+    @Transactional
+    public List<Transaction> createTransactionsBatch(List<CreateTransactionRequest> requests) {
+        Set<String> accountNumbers = new HashSet<>();
+        for (CreateTransactionRequest request : requests) {
+            accountNumbers.add(request.sourceAccountNumber());
+            accountNumbers.add(request.targetAccountNumber());
+        }
+        Map<String, Account> accounts = accountRepository.findAllByAccountNumberIn(accountNumbers).stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+
+        List<Transaction> results = new ArrayList<>(requests.size());
+        List<PostedTransfer> unflushed = new ArrayList<>(BATCH_FLUSH_SIZE);
+        for (CreateTransactionRequest request : requests) {
+            PostedTransfer posted = applyBatchTransfer(request, accounts);
+            results.add(posted.transaction());
+            if (posted.transaction().getSourceAccount() == null) continue;
+
+            unflushed.add(posted);
+            if (unflushed.size() >= BATCH_FLUSH_SIZE) {
+                flushBatch(unflushed);
+            }
+        }
+        flushBatch(unflushed);
+        return results;
+    }
+
+    private PostedTransfer applyBatchTransfer(CreateTransactionRequest request, Map<String, Account> accounts) {
+        BigDecimal amount = request.amount();
+        Transaction transaction = new Transaction();
+        transaction.setAmount(amount);
+        transaction.setTitle(request.title());
+
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return failedTransfer(transaction, "Amount must be positive!");
+        }
+        Account sourceAccount = accounts.get(request.sourceAccountNumber());
+        Account targetAccount = accounts.get(request.targetAccountNumber());
+        if (sourceAccount == null || targetAccount == null) {
+            return failedTransfer(transaction, "Account not found!");
+        }
+        if (request.title() == null) {
+            return failedTransfer(transaction, "Title is required!");
+        }
+
+        transaction.setSourceAccount(sourceAccount);
+        transaction.setTargetAccount(targetAccount);
+
+        Money debit;
+        try {
+            debit = Money.of(amount, sourceAccount.getCurrency());
+        } catch (IllegalArgumentException e) {
+            return failedTransfer(transaction, e.getMessage());
+        }
+        if (!balanceStripeService.hasFunds(sourceAccount, debit)) {
+            return failedTransfer(transaction, "Insufficient funds!");
+        }
+        if (sourceAccount.getId().equals(targetAccount.getId())) {
+            return failedTransfer(transaction, "Source and target accounts must be different!");
+        }
+
+        if (request.quoteId() != null) {
+            try {
+                lockQuotedRate(transaction, request.quoteId(), sourceAccount, targetAccount);
+            } catch (IllegalArgumentException e) {
+                return failedTransfer(transaction, e.getMessage());
+            }
+        }
+
+        Money credit = debit;
+        if (!sourceAccount.getCurrency().equals(targetAccount.getCurrency())) {
+            try {
+                credit = convert(transaction, debit, targetAccount.getCurrency(), null);
+            } catch (RuntimeException e) {
+                return failedTransfer(transaction, "Exchange rate unavailable!");
+            }
+            transaction.setTitle(request.title() + String.format(" [FX: %s %s -> %s %s]",
+                    amount, sourceAccount.getCurrency(), credit.toBigDecimal(), targetAccount.getCurrency()));
+        }
+
+        sourceAccount.setMoneyBalance(sourceAccount.moneyBalance().minus(debit));
+        credit(targetAccount, credit);
+        transaction.setStatus(TransactionStatus.SUCCESS);
+        return new PostedTransfer(transaction, credit.toBigDecimal());
+    }
+
+    private void lockQuotedRate(Transaction transaction, UUID quoteId, Account sourceAccount, Account targetAccount) {
+        FxQuote quote = fxQuoteService.getQuote(quoteId, new CurrencyPair(sourceAccount.getCurrency(), targetAccount.getCurrency()));
+        transaction.setLockedRate(quote.rate());
+    }
+
+    /**
+     * Converts at the rate locked into the transaction, or at the live rate when there is none:
+     * {@code liveRate} if it was resolved up front, looked up now otherwise.
+     */
+    private Money convert(Transaction transaction, Money amount, Currency target, FxRate liveRate) {
+        if (transaction.getLockedRate() != null) return exchangeRateService.convert(amount, target, transaction.getLockedRate());
+        return liveRate != null ? exchangeRateService.convert(amount, target, liveRate) : exchangeRateService.convert(amount, target);
+    }
+
+    private PostedTransfer failedTransfer(Transaction transaction, String reason) {
+        return new PostedTransfer(markFailed(transaction, reason), null);
+    }
+
+    private void credit(Account account, Money amount) {
+        if (!balanceStripeService.credit(account, amount)) {
+            account.setMoneyBalance(account.moneyBalance().plus(amount));
+        }
+    }
+
+    private void flushBatch(List<PostedTransfer> posted) {
+        if (posted.isEmpty()) return;
+        List<Transaction> transactions = posted.stream().map(PostedTransfer::transaction).toList();
+        transactionRepository.saveAll(transactions);
+        List<LedgerEntry> entries = new ArrayList<>(posted.size() * 2);
+        for (PostedTransfer transfer : posted) {
+            if (transfer.creditedAmount() != null) {
+                entries.addAll(journalService.transferEntries(transfer.transaction(), transfer.creditedAmount()));
+            }
+        }
+        journalService.append(entries);
+        entityManager.flush();
+        transactions.forEach(entityManager::detach);
+        entries.forEach(entityManager::detach);
+        posted.clear();
+    }
+
+    /** A batch item together with the amount credited to its target, which differs from the debit for FX transfers. */
+    private record PostedTransfer(Transaction transaction, BigDecimal creditedAmount) {
+    }
+
     @Transactional
     public Transaction deposit(String accountNumber, BigDecimal amount) {
         Account account = accountRepository.findByAccountNumber(accountNumber);
@@ -92,7 +396,7 @@ public class TransactionService {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Amount must be positive!");
         }
-        account.setBalance(account.getBalance().add(amount));
+        credit(account, Money.of(amount, account.getCurrency()));
         accountRepository.save(account);
 
         Transaction transaction = new Transaction();
@@ -102,7 +406,9 @@ public class TransactionService {
         transaction.setTitle("Deposit");
 
         transaction.setStatus(TransactionStatus.SUCCESS);
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        journalService.recordDeposit(saved);
+        return saved;
     }
 
     @Transactional
@@ -120,21 +426,56 @@ public class TransactionService {
         transaction.setTargetAccount(account);
         transaction.setAmount(amount);
         transaction.setTitle("Withdraw");
-        if (account.getBalance().compareTo(amount) < 0) {
+        Money debit = Money.of(amount, account.getCurrency());
+        if (!balanceStripeService.hasFunds(account, debit)) {
             return saveFailedTransaction(transaction, "Insufficient funds!");
         }
 
-        account.setBalance(account.getBalance().subtract(amount));
+        account.setMoneyBalance(account.moneyBalance().minus(debit));
         accountRepository.save(account);
 
         transaction.setStatus(TransactionStatus.SUCCESS);
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        journalService.recordWithdrawal(saved);
+        return saved;
+    }
+
+    /**
+     * Takes row locks on both accounts in ascending id order, so two opposite transfers
+     * between the same pair of accounts can never wait on each other. A striped target is
+     * credited through its stripes and is not locked at all.
+     */
+    private AccountPair lockAccountsInOrder(String sourceAccountNumber, String targetAccountNumber) {
+        Long sourceId = accountRepository.findIdByAccountNumber(sourceAccountNumber);
+        Long targetId = accountRepository.findIdByAccountNumber(targetAccountNumber);
+        if (sourceId == null || targetId == null) {
+            return new AccountPair(null, null);
+        }
+        if (sourceId.equals(targetId)) {
+            Account account = accountRepository.findByIdForUpdate(sourceId);
+            return new AccountPair(account, account);
+        }
+        if (accountRepository.findBalanceStripesById(targetId) > 0) {
+            Account source = accountRepository.findByIdForUpdate(sourceId);
+            return new AccountPair(source, accountRepository.findById(targetId).orElse(null));
+        }
+
+        Account first = accountRepository.findByIdForUpdate(Math.min(sourceId, targetId));
+        Account second = accountRepository.findByIdForUpdate(Math.max(sourceId, targetId));
+        return sourceId < targetId ? new AccountPair(first, second) : new AccountPair(second, first);
+    }
+
+    private record AccountPair(Account source, Account target) {
     }
 
     private Transaction saveFailedTransaction(Transaction transaction, String reason) {
+        return transactionRepository.save(markFailed(transaction, reason));
+    }
+
+    private Transaction markFailed(Transaction transaction, String reason) {
         transaction.setStatus(TransactionStatus.FAILED);
         transaction.setFailureReason(reason);
-        return transactionRepository.save(transaction);
+        return transaction;
     }
 
 }
@@ -0,0 +1,5 @@
+package org.kz.minibank.service;
+
+public enum TransferLockStrategy {
+    OPTIMISTIC, PESSIMISTIC
+}
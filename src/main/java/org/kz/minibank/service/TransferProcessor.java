@@ -0,0 +1,30 @@
+package org.kz.minibank.service;
+
+import org.kz.minibank.DTO.CreateTransactionRequest;
+import org.kz.minibank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public interface TransferProcessor {
+    default Transaction transfer(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount, String title) {
+        return transfer(sourceAccountNumber, targetAccountNumber, amount, title, null);
+    }
+
+    /** A transfer that converts at the rate of FX quote {@code quoteId} when it is not null. */
+    Transaction transfer(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount, String title,
+                         UUID quoteId);
+
+    List<Transaction> transferBatch(List<CreateTransactionRequest> requests);
+
+    Transaction deposit(String accountNumber, BigDecimal amount);
+
+    Transaction withdraw(String accountNumber, BigDecimal amount);
+
+    /** Executes a transfer stored as PENDING; transfers that are no longer PENDING are returned unchanged. */
+    Transaction completeTransfer(UUID transactionId);
+
+    /** Deletes an account that holds no money, with its history. */
+    void deleteAccount(Long accountId);
+}
@@ -0,0 +1,118 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.kz.minibank.DTO.CreateTransactionRequest;
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs balance-changing operations in their own database transaction (or a shared group commit,
+ * see {@link GroupCommitExecutor}) and retries them with jittered exponential backoff when they
+ * lose a race on an account row. Transfers are validated and their FX rate resolved before they
+ * are queued, so the committing thread only writes.
+ */
+@Service
+public class TransferRetryExecutor implements TransferProcessor {
+    private final TransactionService transactionService;
+    private final AccountService accountService;
+    private final GroupCommitExecutor groupCommitExecutor;
+    private final TransferLockStrategy lockStrategy;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final Counter retries;
+    private final Counter aborts;
+
+    public TransferRetryExecutor(TransactionService transactionService, AccountService accountService,
+                                 GroupCommitExecutor groupCommitExecutor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${minibank.transfer.lock-strategy:OPTIMISTIC}") TransferLockStrategy lockStrategy,
+                                 @Value("${minibank.transfer.max-attempts:5}") int maxAttempts,
+                                 @Value("${minibank.transfer.backoff-base-ms:10}") long backoffBaseMs,
+                                 @Value("${minibank.transfer.backoff-max-ms:200}") long backoffMaxMs) {
+        if (maxAttempts < 1) { throw new IllegalArgumentException("max-attempts must be at least 1!"); }
+        this.transactionService = transactionService;
+        this.accountService = accountService;
+        this.groupCommitExecutor = groupCommitExecutor;
+        this.lockStrategy = lockStrategy;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.retries = Counter.builder("minibank.transfer.retries")
+                .description("Balance operations retried after a lock conflict")
+                .register(meterRegistry);
+        this.aborts = Counter.builder("minibank.transfer.aborts")
+                .description("Balance operations abandoned after exhausting all retries")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Transaction transfer(String sourceAccountNumber, String targetAccountNumber, BigDecimal amount, String title,
+                                UUID quoteId) {
+        FxRate liveRate = transactionService.prepareTransfer(sourceAccountNumber, targetAccountNumber, amount, title, quoteId);
+        return execute(() -> groupCommitExecutor.submit(() -> transactionService.createTransactionBetweenAccounts(
+                sourceAccountNumber, targetAccountNumber, amount, title, lockStrategy, quoteId, liveRate)));
+    }
+
+    @Override
+    public List<Transaction> transferBatch(List<CreateTransactionRequest> requests) {
+        return execute(() -> transactionService.createTransactionsBatch(requests));
+    }
+
+    @Override
+    public Transaction deposit(String accountNumber, BigDecimal amount) {
+        return execute(() -> groupCommitExecutor.submit(() -> transactionService.deposit(accountNumber, amount)));
+    }
+
+    @Override
+    public Transaction withdraw(String accountNumber, BigDecimal amount) {
+        return execute(() -> groupCommitExecutor.submit(() -> transactionService.withdraw(accountNumber, amount)));
+    }
+
+    @Override
+    public Transaction completeTransfer(UUID transactionId) {
+        FxRate liveRate = transactionService.prepareCompletion(transactionId);
+        return execute(() -> groupCommitExecutor.submit(() -> transactionService.completePendingTransfer(transactionId, lockStrategy, liveRate)));
+    }
+
+    @Override
+    public void deleteAccount(Long accountId) {
+        accountService.deleteAccount(accountId);
+    }
+
+    public <T> T execute(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    aborts.increment();
+                    throw e;
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry transfer", e);
+        }
+    }
+}
@@ -1,11 +1,12 @@
 package org.kz.minibank.service;
 
 
-import jakarta.transaction.Transactional;
 import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
 import org.kz.minibank.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -13,9 +14,11 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, AccountRepository accountRepository) {
         this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
     }
 
     @Transactional
@@ -31,14 +34,17 @@ public class UserService {
         return userRepository.save(new User(name, surname, email, password));
     }
 
+    @Transactional(readOnly = true)
     public User getUserById(Long id) {
         return userRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("User not found!"));
     }
 
+    @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email).orElseThrow(() -> new IllegalArgumentException("User not found!"));
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -63,8 +69,8 @@ public class UserService {
 
     @Transactional
     public void deleteUser(Long id) {
-        User user = getUserById(id);
-        if (!user.getAccounts().isEmpty()) { throw new IllegalArgumentException("User has accounts!");}
+        if (!userRepository.existsById(id)) { throw new IllegalArgumentException("User not found!"); }
+        if (accountRepository.existsByUserId(id)) { throw new IllegalArgumentException("User has accounts!");}
 
         userRepository.deleteById(id);
     }
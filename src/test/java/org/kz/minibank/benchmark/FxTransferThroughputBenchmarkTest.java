@@ -0,0 +1,244 @@
+package org.kz.minibank.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.MiniBankApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput of transfers over HTTP, through Tomcat, {@code TransactionService.createTransactionBetweenAccounts}
+ * and H2, with Tomcat on its 200 platform threads versus on virtual threads. Half of the clients
+ * send USD to EUR transfers, the other half PLN to PLN ones. The rate cache is made to expire after
+ * {@code RATE_TTL_MS}, so FX transfers keep loading rates from an NBP stub that answers after
+ * {@code NBP_LATENCY_MS}, as they do on cache misses.
+ * <p>
+ * Each client owns its own pair of accounts, so transfers do not wait on each other's row locks.
+ * While the virtual-thread run is measured, {@code jdk.VirtualThreadPinned} events (a virtual thread
+ * parked while holding a monitor) and {@code jdk.JavaMonitorEnter} events of virtual threads (one
+ * blocked entering a contended monitor, such as H2's synchronized sessions) are recorded; both keep
+ * the carrier thread busy, and the frames they happened in are printed with their counts.
+ * <p>
+ * The connection timeout is raised to {@code CONNECTION_TIMEOUT_MS}: on virtual threads every request
+ * is admitted at once and queues for one of the 10 pooled connections instead of for a Tomcat thread.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dtest=FxTransferThroughputBenchmarkTest
+ * -DargLine=-Djdk.tracePinnedThreads=short}.
+ */
+@Tag("benchmark")
+public class FxTransferThroughputBenchmarkTest {
+    private static final int NBP_LATENCY_MS = 50;
+    private static final int RATE_TTL_MS = 20;
+    private static final int CLIENTS = 400;
+    private static final int TRANSFERS_PER_CLIENT = 10;
+    private static final int WARMUP_TRANSFERS_PER_CLIENT = 2;
+    private static final long CONNECTION_TIMEOUT_MS = 120_000;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newCachedThreadPool())
+            .build();
+    private static HttpServer nbpStub;
+
+    @BeforeAll
+    static void startNbpStub() throws IOException {
+        nbpStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        // platform threads, here and for the clients, so they do not compete for the server's carrier threads
+        nbpStub.setExecutor(Executors.newCachedThreadPool());
+        nbpStub.createContext("/api/exchangerates/rates/a/", exchange -> {
+            sleep(NBP_LATENCY_MS);
+            String code = exchange.getRequestURI().getPath().split("/")[5].toUpperCase();
+            byte[] body = ("{\"table\":\"A\",\"code\":\"" + code + "\",\"rates\":[{\"mid\":" + (code.equals("USD") ? "4.0" : "4.3") + "}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        nbpStub.start();
+    }
+
+    @AfterAll
+    static void stopNbpStub() {
+        nbpStub.stop(0);
+    }
+
+    @Test
+    void fxTransfersOnPlatformVersusVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("Transfers over HTTP, half USD->EUR with NBP latency %d ms, %d clients x %d transfers:%n",
+                NBP_LATENCY_MS, CLIENTS, TRANSFERS_PER_CLIENT);
+        System.out.printf("  platform threads (200): %8.0f transfers/s, mean %6.1f ms%n", platform.throughput(), platform.meanMillis());
+        System.out.printf("  virtual threads:        %8.0f transfers/s, mean %6.1f ms%n", virtual.throughput(), virtual.meanMillis());
+        printFrames("virtual thread pinning", virtual.pinnedFrames());
+        printFrames("virtual thread blocked on monitor entry", virtual.blockedFrames());
+    }
+
+    private static void printFrames(String title, Map<String, AtomicInteger> frames) {
+        System.out.printf("  %s: %d events%n", title, frames.values().stream().mapToInt(AtomicInteger::get).sum());
+        frames.entrySet().stream()
+                .sorted((a, b) -> b.getValue().get() - a.getValue().get())
+                .limit(10)
+                .forEach(frame -> System.out.printf("    %6d  %s%n", frame.getValue().get(), frame.getKey()));
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = start(virtualThreads)) {
+            String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            String token = register(baseUrl);
+            List<String[]> pairs = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                boolean fx = i % 2 == 0;
+                String source = createAccount(baseUrl, token, fx ? "USD" : "PLN");
+                String target = createAccount(baseUrl, token, fx ? "EUR" : "PLN");
+                post(baseUrl + "/api/transactions/deposit", token,
+                        Map.of("targetAccountNumber", source, "amount", "1000000.00"));
+                pairs.add(new String[]{source, target});
+            }
+
+            drive(baseUrl, token, pairs, WARMUP_TRANSFERS_PER_CLIENT);
+            Map<String, AtomicInteger> pinnedFrames = new ConcurrentHashMap<>();
+            Map<String, AtomicInteger> blockedFrames = new ConcurrentHashMap<>();
+            try (RecordingStream recording = new RecordingStream()) {
+                recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+                recording.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ZERO).withStackTrace();
+                recording.onEvent("jdk.VirtualThreadPinned", event -> count(pinnedFrames, event));
+                recording.onEvent("jdk.JavaMonitorEnter", event -> {
+                    if (event.getThread() != null && event.getThread().isVirtual()) count(blockedFrames, event);
+                });
+                recording.startAsync();
+                Result result = drive(baseUrl, token, pairs, TRANSFERS_PER_CLIENT);
+                recording.stop();
+                return new Result(result.throughput(), result.meanMillis(), pinnedFrames, blockedFrames);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtualThreads) {
+        // command-line arguments, so they override application.properties
+        return new SpringApplicationBuilder(MiniBankApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=jdbc:h2:mem:fx-benchmark-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--spring.datasource.hikari.connection-timeout=" + CONNECTION_TIMEOUT_MS,
+                "--minibank.scheduled-transfers.enabled=false",
+                "--minibank.nbp.base-url=http://127.0.0.1:" + nbpStub.getAddress().getPort(),
+                "--minibank.fx.cache-ttl=PT" + RATE_TTL_MS / 1000.0 + "S",
+                "--minibank.fx.refresh-after=PT" + RATE_TTL_MS / 2000.0 + "S");
+    }
+
+    /** Every client sends {@code transfers} transfers one after another between its own two accounts. */
+    private Result drive(String baseUrl, String token, List<String[]> pairs, int transfers) throws Exception {
+        LongAdder latencyNanos = new LongAdder();
+        List<Future<?>> clients = new ArrayList<>(pairs.size());
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(pairs.size())) {
+            for (String[] pair : pairs) {
+                clients.add(executor.submit(() -> {
+                    for (int i = 0; i < transfers; i++) {
+                        long sent = System.nanoTime();
+                        JsonNode transaction = post(baseUrl + "/api/transactions", token, Map.of(
+                                "sourceAccountNumber", pair[0], "targetAccountNumber", pair[1],
+                                "amount", "10.00", "title", "Benchmark"));
+                        latencyNanos.add(System.nanoTime() - sent);
+                        assertEquals("SUCCESS", transaction.get("status").asText());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get(10, TimeUnit.MINUTES);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int requests = pairs.size() * transfers;
+        return new Result(requests / seconds, latencyNanos.sum() / 1e6 / requests, Map.of(), Map.of());
+    }
+
+    private static void count(Map<String, AtomicInteger> frames, RecordedEvent event) {
+        frames.computeIfAbsent(pinningFrame(event.getStackTrace().getFrames()), frame -> new AtomicInteger())
+                .incrementAndGet();
+    }
+
+    /** The innermost frame outside the JDK, which is usually the monitor that pinned or blocked the thread. */
+    private static String pinningFrame(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return frames.isEmpty() ? "<no stack trace>" : frames.getFirst().getMethod().getType().getName();
+    }
+
+    private static String register(String baseUrl) throws Exception {
+        return post(baseUrl + "/api/auth/register", null, Map.of(
+                "name", "Bench", "surname", "Mark", "email", "fx-benchmark@test.com", "password", "secret123"))
+                .get("token").asText();
+    }
+
+    private static String createAccount(String baseUrl, String token, String currency) throws Exception {
+        return post(baseUrl + "/api/accounts", token, Map.of("currencyCode", currency)).get("accountNumber").asText();
+    }
+
+    private static JsonNode post(String url, String token, Map<String, String> body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(url + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(double throughput, double meanMillis, Map<String, AtomicInteger> pinnedFrames,
+                          Map<String, AtomicInteger> blockedFrames) {
+    }
+}
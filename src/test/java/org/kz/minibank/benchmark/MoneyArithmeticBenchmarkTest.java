@@ -0,0 +1,86 @@
+package org.kz.minibank.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.model.Money;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Transfer-path arithmetic (funds check, debit, FX conversion, credit) on {@link BigDecimal} as the
+ * services did it versus on {@link Money}, reporting throughput and bytes allocated per operation.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class MoneyArithmeticBenchmarkTest {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int OPERATIONS = 5_000_000;
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency PLN = Currency.getInstance("PLN");
+
+    @Test
+    void transferArithmeticOnBigDecimalVersusMoney() {
+        BigDecimal rate = new BigDecimal("3.9295");
+        long scaledRate = Money.scaledRate(rate);
+        BigDecimal amount = new BigDecimal("12.34");
+        Money amountMoney = Money.of(amount, USD);
+
+        LongSupplier bigDecimal = () -> {
+            BigDecimal source = new BigDecimal("1000000.00");
+            BigDecimal target = BigDecimal.ZERO;
+            long checksum = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (source.compareTo(amount) < 0) source = new BigDecimal("1000000.00");
+                source = source.subtract(amount);
+                BigDecimal credited = amount.multiply(rate).setScale(2, RoundingMode.HALF_UP);
+                target = target.add(credited);
+                checksum += credited.unscaledValue().longValue();
+            }
+            return checksum + target.signum();
+        };
+        LongSupplier money = () -> {
+            Money source = new Money(100_000_000, USD);
+            Money target = Money.zero(PLN);
+            long checksum = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (source.isLessThan(amountMoney)) source = new Money(100_000_000, USD);
+                source = source.minus(amountMoney);
+                Money credited = amountMoney.convert(scaledRate, PLN, RoundingMode.HALF_UP);
+                target = target.plus(credited);
+                checksum += credited.minorUnits();
+            }
+            return checksum + Long.signum(target.minorUnits());
+        };
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            assertEquals(bigDecimal.getAsLong(), money.getAsLong());
+        }
+        Result decimalResult = measure(bigDecimal);
+        Result moneyResult = measure(money);
+
+        System.out.printf("Transfer arithmetic, %d operations:%n", OPERATIONS);
+        System.out.printf("  BigDecimal: %8.1f Mops/s %8.1f bytes/op%n", decimalResult.mopsPerSecond(), decimalResult.bytesPerOp());
+        System.out.printf("  Money:      %8.1f Mops/s %8.1f bytes/op%n", moneyResult.mopsPerSecond(), moneyResult.bytesPerOp());
+    }
+
+    private static Result measure(LongSupplier run) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        run.getAsLong();
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new Result(OPERATIONS / (elapsed / 1e3), (double) bytes / OPERATIONS);
+    }
+
+    private record Result(double mopsPerSecond, double bytesPerOp) {
+    }
+}
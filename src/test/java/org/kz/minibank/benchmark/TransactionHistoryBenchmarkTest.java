@@ -0,0 +1,124 @@
+package org.kz.minibank.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.TransactionCursor;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.UserRepository;
+import org.kz.minibank.service.AccountService;
+import org.kz.minibank.service.TransactionHistorySlice;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Latency of bounded transaction listings (incoming, outgoing and the merged history) as the
+ * {@code transaction} table grows tenfold per step up to {@code benchmark.history.rows} (10M by
+ * default). One account is the source of every tenth row, so its own history grows with the
+ * table. Each step times the newest page, a page half-way down the history and a one-day range.
+ * <p>
+ * The database is a file under {@code target/} so that the full size fits outside the heap. Run
+ * with {@code mvn test -Pbenchmark}, optionally with {@code -Dbenchmark.history.rows=1000000}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/benchmark/transaction-history",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.show-sql=false",
+        "minibank.scheduled-transfers.enabled=false"
+})
+public class TransactionHistoryBenchmarkTest {
+    private static final int START_ROWS = 100_000;
+    private static final int ACCOUNTS = 100;
+    private static final int PAGE_SIZE = 50;
+    private static final int INSERT_BATCH = 10_000;
+    private static final int WARMUP = 200;
+    private static final int SAMPLES = 500;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @Test
+    void boundedListingsStayFlatAsHistoryGrows() {
+        long maxRows = Long.getLong("benchmark.history.rows", 10_000_000L);
+        User user = userRepository.save(new User("Bench", "Mark", "history-benchmark@test.com", "secret"));
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds.add(accountRepository.save(new Account(Currency.getInstance("PLN"), user)).getId());
+        }
+        Long hot = accountIds.getFirst();
+
+        System.out.printf("Transaction listings, %d per page, median / p99 in microseconds:%n", PAGE_SIZE);
+        System.out.printf("  %12s %10s %18s %18s %18s %18s%n",
+                "table rows", "account", "outgoing newest", "outgoing deep", "incoming 1 day", "history deep");
+        long rows = 0;
+        for (long target = START_ROWS; target <= maxRows; target *= 10) {
+            insert(rows, target, hot);
+            rows = target;
+            // every row is a second apart; the hot account is the source of one row in ten
+            LocalDateTime middle = EPOCH.plusSeconds(rows / 2);
+            String deep = TransactionCursor.before(middle).encode();
+
+            String newest = time(() -> accountService.getOutgoingTransactions(hot, null, null, null, PAGE_SIZE));
+            String deepOutgoing = time(() -> accountService.getOutgoingTransactions(hot, null, null, deep, PAGE_SIZE));
+            String oneDay = time(() -> accountService.getIncomingTransactions(accountIds.get(1), middle.minusDays(1), middle,
+                    null, PAGE_SIZE));
+            String deepHistory = time(() -> accountService.getTransactionHistory(hot, deep, PAGE_SIZE));
+            System.out.printf("  %12d %10d %18s %18s %18s %18s%n", rows, rows / 10, newest, deepOutgoing, oneDay, deepHistory);
+        }
+    }
+
+    /** Rows {@code [from, to)}, each {@code i} seconds after {@link #EPOCH}. */
+    private void insert(long from, long to, Long hot) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (long i = from; i < to; i++) {
+            Long source = i % 10 == 0 ? hot : accountIds.get(1 + random.nextInt(ACCOUNTS - 1));
+            Long target = accountIds.get(1 + random.nextInt(ACCOUNTS - 1));
+            batch.add(new Object[]{UUID.randomUUID(), 1, "SUCCESS", Timestamp.valueOf(EPOCH.plusSeconds(i)), "Benchmark", source, target});
+            if (batch.size() == INSERT_BATCH || i == to - 1) {
+                jdbcTemplate.batchUpdate("""
+                        INSERT INTO transaction (id, amount, status, timestamp, title, source_account_id, target_account_id)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)""", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static String time(Supplier<TransactionHistorySlice> listing) {
+        for (int i = 0; i < WARMUP; i++) {
+            listing.get();
+        }
+        long[] micros = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            TransactionHistorySlice slice = listing.get();
+            micros[i] = (System.nanoTime() - start) / 1_000;
+            assertEquals(PAGE_SIZE, slice.transactions().size());
+        }
+        Arrays.sort(micros);
+        return micros[SAMPLES / 2] + " / " + micros[SAMPLES * 99 / 100];
+    }
+}
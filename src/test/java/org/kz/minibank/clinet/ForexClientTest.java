@@ -0,0 +1,126 @@
+package org.kz.minibank.clinet;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.exception.ForexUnavailableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Currency;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Fault injection against a local fake NBP server. */
+public class ForexClientTest {
+    private static final Currency USD = Currency.getInstance("USD");
+
+    private enum Fault { NONE, SERVER_ERROR, SLOW, NOT_FOUND }
+
+    private HttpServer nbpStub;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Fault fault = Fault.NONE;
+    private ForexClient forexClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        nbpStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        nbpStub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        nbpStub.createContext("/api/exchangerates/rates/a/", exchange -> {
+            requests.incrementAndGet();
+            switch (fault) {
+                case SERVER_ERROR -> {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                case NOT_FOUND -> {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                case SLOW -> sleep(1000);
+                case NONE -> { }
+            }
+            byte[] body = "{\"table\":\"A\",\"code\":\"USD\",\"rates\":[{\"mid\":4.0}]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // client gave up waiting
+            }
+        });
+        nbpStub.start();
+        forexClient = new ForexClient("http://127.0.0.1:" + nbpStub.getAddress().getPort(),
+                Duration.ofSeconds(1), Duration.ofMillis(200), 2, Duration.ofMillis(300));
+    }
+
+    @AfterEach
+    void tearDown() {
+        nbpStub.stop(0);
+    }
+
+    @Test
+    void getExchangeRate_SlowResponse_TimesOut() {
+        fault = Fault.SLOW;
+
+        long start = System.nanoTime();
+        assertThrows(ForexUnavailableException.class, () -> forexClient.getExchangeRate(USD));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(900)) < 0,
+                "Read timeout should cut the call short");
+    }
+
+    @Test
+    void getExchangeRate_RepeatedFailures_OpenCircuitAndFailFast() {
+        fault = Fault.SERVER_ERROR;
+        assertThrows(ForexUnavailableException.class, () -> forexClient.getExchangeRate(USD));
+        assertThrows(ForexUnavailableException.class, () -> forexClient.getExchangeRate(USD));
+
+        fault = Fault.NONE;
+        assertThrows(ForexUnavailableException.class, () -> forexClient.getExchangeRate(USD));
+
+        assertEquals(CircuitBreaker.State.OPEN, forexClient.circuitState());
+        assertEquals(2, requests.get(), "Open circuit must not reach NBP");
+    }
+
+    @Test
+    void getExchangeRate_OpenDurationElapsed_ProbeClosesCircuit() throws InterruptedException {
+        fault = Fault.SERVER_ERROR;
+        assertThrows(ForexUnavailableException.class, () -> forexClient.getExchangeRate(USD));
+        assertThrows(ForexUnavailableException.class, () -> forexClient.getExchangeRate(USD));
+
+        fault = Fault.NONE;
+        Thread.sleep(350);
+
+        assertEquals(0, new BigDecimal("4.0").compareTo(forexClient.getExchangeRate(USD)));
+        assertEquals(CircuitBreaker.State.CLOSED, forexClient.circuitState());
+    }
+
+    @Test
+    void getExchangeRate_UnknownCurrency_ThrowsIllegalArgumentWithoutTrippingCircuit() {
+        fault = Fault.NOT_FOUND;
+
+        assertThrows(IllegalArgumentException.class, () -> forexClient.getExchangeRate(USD));
+        assertThrows(IllegalArgumentException.class, () -> forexClient.getExchangeRate(USD));
+        assertThrows(IllegalArgumentException.class, () -> forexClient.getExchangeRate(USD));
+
+        assertEquals(CircuitBreaker.State.CLOSED, forexClient.circuitState());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.kz.minibank.integration;
+
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.ExchangeRate;
+import org.kz.minibank.repository.ExchangeRateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExchangeRateCompactionIntegrationTest {
+    private static final CurrencyPair USD_PLN = new CurrencyPair(Currency.getInstance("USD"), Currency.getInstance("PLN"));
+    private static final CurrencyPair EUR_PLN = new CurrencyPair(Currency.getInstance("EUR"), Currency.getInstance("PLN"));
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2020, 3, 1, 0, 0);
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Test
+    void shouldKeepLastRatePerPairPerDayOnlyInsideTheCompactedRange() {
+        save(USD_PLN, "4.0000", DAY_1.plusHours(9));
+        save(USD_PLN, "4.0100", DAY_1.plusHours(12));
+        save(USD_PLN, "4.0200", DAY_1.plusHours(23));
+        save(EUR_PLN, "4.3000", DAY_1.plusHours(10));
+        save(USD_PLN, "4.1000", DAY_1.plusDays(1).plusHours(8));
+        save(USD_PLN, "4.1100", DAY_1.plusDays(1).plusHours(9));
+        save(USD_PLN, "4.2000", DAY_1.plusDays(2).plusHours(8));
+        save(USD_PLN, "4.2100", DAY_1.plusDays(2).plusHours(9));
+
+        int deleted = exchangeRateRepository.compactToDailyBetween(DAY_1, DAY_1.plusDays(2));
+
+        assertEquals(3, deleted);
+        assertEquals(List.of("4.0200", "4.1100", "4.2000", "4.2100"), rates(USD_PLN));
+        assertEquals(List.of("4.3000"), rates(EUR_PLN));
+    }
+
+    private void save(CurrencyPair pair, String rate, LocalDateTime timestamp) {
+        ExchangeRate exchangeRate = new ExchangeRate(pair, new BigDecimal(rate));
+        exchangeRate.setTimestamp(timestamp);
+        exchangeRateRepository.saveAndFlush(exchangeRate);
+    }
+
+    private List<String> rates(CurrencyPair pair) {
+        return exchangeRateRepository.findByPairOrderByTimestampAsc(pair).stream()
+                .map(rate -> rate.getRate().toPlainString())
+                .toList();
+    }
+}
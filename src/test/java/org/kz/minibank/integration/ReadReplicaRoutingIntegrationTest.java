@@ -0,0 +1,135 @@
+package org.kz.minibank.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.DTO.AuthResponse;
+import org.kz.minibank.DTO.CreateUserDTO;
+import org.kz.minibank.DTO.LoginRequest;
+import org.kz.minibank.config.ReadYourWritesFilter;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.UserRepository;
+import org.kz.minibank.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Primary and replica are two separate H2 databases; {@link #replicate()} copies the primary over,
+ * standing in for replication. Not transactional: a test transaction would be read-write and pin
+ * every read to the primary.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "minibank.read-replica.enabled=true",
+        "minibank.read-replica.url=jdbc:h2:mem:routing-replica",
+        "minibank.scheduled-transfers.enabled=false"
+})
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingIntegrationTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @BeforeEach
+    void setUp() {
+        replicate();
+    }
+
+    @Test
+    void readOnlyTransactions_ReadFromReplica_WritesGoToPrimary() {
+        String email = "routed-" + UUID.randomUUID() + "@test.com";
+        userRepository.save(new User("Routed", "User", email, "secret"));
+
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserByEmail(email));
+
+        replicate();
+        assertEquals("Routed", userService.getUserByEmail(email).getName());
+    }
+
+    @Test
+    void readYourWritesHeader_ReadsFromPrimary() throws Exception {
+        String email = "fresh-" + UUID.randomUUID() + "@test.com";
+        register(email);
+        String login = objectMapper.writeValueAsString(new LoginRequest(email, "pass123"));
+
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(login))
+                .andExpect(status().is4xxClientError());
+        mockMvc.perform(post("/api/auth/login")
+                        .header(ReadYourWritesFilter.HEADER, "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(login))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void writeAfterReadOnlyCheckInOneRequest_GoesToPrimary() throws Exception {
+        String email = "deleting-" + UUID.randomUUID() + "@test.com";
+        String token = register(email);
+        User owner = userRepository.findByEmail(email).orElseThrow();
+        Long accountId = accountRepository.save(new Account(Currency.getInstance("PLN"), owner)).getId();
+        replicate();
+
+        // the ownership check reads the replica, the delete has to reach the primary
+        mockMvc.perform(delete("/api/accounts/" + accountId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().is2xxSuccessful());
+
+        assertEquals(0, countAccounts(primaryDataSource, accountId));
+        assertEquals(1, countAccounts(replicaDataSource, accountId));
+    }
+
+    private String register(String email) throws Exception {
+        String response = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateUserDTO("Test", "User", email, "pass123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, AuthResponse.class).token();
+    }
+
+    private static int countAccounts(DataSource dataSource, Long accountId) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM accounts WHERE id = ?", Integer.class, accountId);
+    }
+
+    private void replicate() {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NOPASSWORDS NOSETTINGS", String.class);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        script.stream()
+                .filter(statement -> !statement.startsWith("--") && !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+    }
+}
@@ -0,0 +1,96 @@
+package org.kz.minibank.integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.UserRepository;
+import org.kz.minibank.service.AccountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own database with the cache enabled. Not transactional: cache entries are
+ * written once a transaction commits. Hit counts are read per region, so scheduled jobs running
+ * meanwhile do not affect them.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:second-level-cache",
+        "minibank.second-level-cache.enabled=true"
+})
+public class SecondLevelCacheIntegrationTest {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private String email;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        email = "cached-" + UUID.randomUUID() + "@test.com";
+        User user = userRepository.save(new User("Cached", "User", email, "secret"));
+        account = accountRepository.save(new Account(Currency.getInstance("PLN"), user));
+    }
+
+    @Test
+    void findByEmail_RepeatedLookupIsServedFromQueryCache() {
+        userRepository.findByEmail(email).orElseThrow();
+        long queryHits = statistics.getQueryCacheHitCount();
+
+        assertEquals(email, userRepository.findByEmail(email).orElseThrow().getEmail());
+
+        assertEquals(queryHits + 1, statistics.getQueryCacheHitCount());
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count() > 0);
+    }
+
+    @Test
+    void ownershipChecks_AreServedFromCacheWhileBalanceIsReadFresh() {
+        assertTrue(accountService.isAccountOwner(account.getId(), email));
+        assertTrue(accountService.isAccountOwner(account.getAccountNumber(), email));
+        long accountHits = statistics.getDomainDataRegionStatistics("account-info").getHitCount();
+
+        assertTrue(accountService.isAccountOwner(account.getId(), email));
+        assertTrue(accountService.isAccountOwner(account.getAccountNumber(), email));
+        assertEquals(accountHits + 2, statistics.getDomainDataRegionStatistics("account-info").getHitCount());
+
+        // the ledger writes balances with plain JDBC, behind Hibernate's back
+        jdbcTemplate.update("UPDATE accounts SET balance = 42 WHERE id = ?", account.getId());
+        assertEquals(0, new BigDecimal("42").compareTo(accountService.getBalance(account.getId())));
+    }
+
+    @Test
+    void deleteAccount_EvictsCachedAccount() {
+        assertTrue(accountService.isAccountOwner(account.getId(), email));
+        assertTrue(accountService.isAccountOwner(account.getAccountNumber(), email));
+
+        accountService.deleteAccount(account.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> accountService.isAccountOwner(account.getId(), email));
+        assertThrows(IllegalArgumentException.class, () -> accountService.isAccountOwner(account.getAccountNumber(), email));
+    }
+}
@@ -0,0 +1,149 @@
+package org.kz.minibank.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.DTO.AuthResponse;
+import org.kz.minibank.DTO.CreateUserDTO;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.TransactionRepository;
+import org.kz.minibank.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: the export is written on an async request thread, which cannot see data
+ * of a test transaction that is never committed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TransactionExportIntegrationTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private String token;
+    private Long accountId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String email = "export-" + UUID.randomUUID() + "@test.com";
+        token = register(email);
+        User owner = userRepository.findByEmail(email).orElseThrow();
+        Account account = accountRepository.save(new Account(Currency.getInstance("PLN"), owner));
+        Account counterparty = accountRepository.save(new Account(Currency.getInstance("PLN"), owner));
+        accountId = account.getId();
+        save(account, counterparty, "Rent, May", DAY.plusHours(1));
+        save(counterparty, account, "Salary", DAY.plusHours(2));
+        save(account, counterparty, "Groceries", DAY.plusDays(1));
+    }
+
+    @Test
+    void shouldStreamWholeHistoryAsCsvNewestFirst() throws Exception {
+        MvcResult started = mockMvc.perform(export(""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"transactions-" + accountId + ".csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(1).contains(",Groceries,"));
+        assertTrue(lines.get(2).contains(",Salary,"));
+        assertTrue(lines.get(3).contains(",\"Rent, May\","));
+    }
+
+    @Test
+    void shouldStreamDateRangeAsNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(export("?format=ndjson&from=" + DAY + "&to=" + DAY.plusDays(1)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> titles = body.lines().map(this::readTitle).toList();
+        assertEquals(List.of("Salary", "Rent, May"), titles);
+    }
+
+    @Test
+    void shouldRejectInvalidRangeBeforeStreaming() throws Exception {
+        mockMvc.perform(export("?from=" + DAY.plusDays(1) + "&to=" + DAY))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() throws Exception {
+        mockMvc.perform(export("?format=xlsx"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MockHttpServletRequestBuilder export(String query) {
+        return get("/api/accounts/" + accountId + "/transactions/export" + query)
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private String readTitle(String json) {
+        try {
+            return objectMapper.readTree(json).get("title").asText();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void save(Account source, Account target, String title, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction(source, target, BigDecimal.ONE, title);
+        transaction.setStatus(TransactionStatus.SUCCESS);
+        transaction.setTimestamp(timestamp);
+        transactionRepository.save(transaction);
+    }
+
+    private String register(String email) throws Exception {
+        String response = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateUserDTO("Test", "User", email, "pass123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, AuthResponse.class).token();
+    }
+}
@@ -0,0 +1,141 @@
+package org.kz.minibank.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.DTO.AuthResponse;
+import org.kz.minibank.DTO.CreateUserDTO;
+import org.kz.minibank.DTO.LoginRequest;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.TransactionRepository;
+import org.kz.minibank.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the JDBC statements each transaction listing request prepares. Every transaction has a
+ * counterparty owned by a different user, so loading rows as entities would add statements per row.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class TransactionListingQueryCountIntegrationTest {
+    private static final int TRANSACTIONS = 6;
+    /** The JWT filter's user lookup and the ownership check's account (and owner) lookup. */
+    private static final long REQUEST_OVERHEAD = 2;
+    private static final int ATTEMPTS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private String token;
+    private Long accountId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        token = registerAndLogin("listing-owner@test.com");
+        User owner = userRepository.findByEmail("listing-owner@test.com").orElseThrow();
+        Account account = accountRepository.save(new Account(Currency.getInstance("PLN"), owner));
+        accountId = account.getId();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            User counterpartyOwner = userRepository.save(new User("Other", "User", "listing-other-" + i + "@test.com", "secret"));
+            Account counterparty = accountRepository.save(new Account(Currency.getInstance("PLN"), counterpartyOwner));
+            Transaction outgoing = new Transaction(account, counterparty, BigDecimal.ONE, "Out " + i);
+            outgoing.setStatus(TransactionStatus.SUCCESS);
+            Transaction incoming = new Transaction(counterparty, account, BigDecimal.ONE, "In " + i);
+            incoming.setStatus(TransactionStatus.SUCCESS);
+            transactionRepository.save(outgoing);
+            transactionRepository.save(incoming);
+        }
+        entityManager.flush();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void incomingAndOutgoingListings_UseOneStatement() throws Exception {
+        assertEquals(REQUEST_OVERHEAD + 1, statementsFor("/incomingTransactions", TRANSACTIONS));
+        assertEquals(REQUEST_OVERHEAD + 1, statementsFor("/outgoingTransactions", TRANSACTIONS));
+    }
+
+    @Test
+    void cursorHistory_UsesOneStatementPerSide() throws Exception {
+        assertEquals(REQUEST_OVERHEAD + 2, statementsFor("/transactions", 2 * TRANSACTIONS));
+    }
+
+    @Test
+    void offsetHistory_UsesOneStatementPlusCount() throws Exception {
+        assertEquals(REQUEST_OVERHEAD + 2, statementsFor("/transactionHistory?size=5", 5));
+    }
+
+    /**
+     * Statistics are global, so scheduled jobs (e.g. balance-stripe folding) running meanwhile add
+     * to the count; they can only add, so the lowest of a few runs is the request's own count.
+     */
+    private long statementsFor(String listing, int expectedRows) throws Exception {
+        long fewest = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            // requests share this test's persistence context; start each one from the database
+            entityManager.clear();
+            statistics.clear();
+            mockMvc.perform(get("/api/accounts/" + accountId + listing)
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(listing.startsWith("/transactionHistory")
+                            ? jsonPath("$.content.length()").value(expectedRows)
+                            : jsonPath("$.transactions.length()").value(expectedRows));
+            fewest = Math.min(fewest, statistics.getPrepareStatementCount());
+        }
+        return fewest;
+    }
+
+    private String registerAndLogin(String email) throws Exception {
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateUserDTO("Test", "User", email, "pass123"))))
+                .andExpect(status().isOk());
+        String response = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest(email, "pass123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, AuthResponse.class).token();
+    }
+}
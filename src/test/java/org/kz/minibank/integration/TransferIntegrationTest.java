@@ -3,27 +3,44 @@ package org.kz.minibank.integration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.kz.minibank.DTO.AuthResponse;
+import org.kz.minibank.DTO.CreateBatchTransactionRequest;
 import org.kz.minibank.DTO.CreateTransactionRequest;
 import org.kz.minibank.DTO.CreateUserDTO;
 import org.kz.minibank.DTO.LoginRequest;
+import org.kz.minibank.DTO.TransactionHistoryPageDTO;
+import org.kz.minibank.DTO.TransactionStatusDTO;
 import org.kz.minibank.model.Account;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
 import org.kz.minibank.model.User;
 import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.TransactionRepository;
 import org.kz.minibank.repository.UserRepository;
+import org.kz.minibank.service.JournalService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -44,6 +61,12 @@ public class TransferIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
     @Test
     void shouldLoginAndPerformTransferSuccessfully() throws Exception {
         String senderEmail = "sender@test.com";
@@ -73,6 +96,384 @@ public class TransferIntegrationTest {
         assertEquals(0, new BigDecimal("600.00").compareTo(target.getBalance()), "Target balance should increase");
     }
 
+    @Test
+    void shouldExecuteBatchTransfersWithPerItemStatus() throws Exception {
+        String senderEmail = "batch-sender@test.com";
+        String token = registerAndLogin(senderEmail, "pass123");
+        User sender = userRepository.findByEmail(senderEmail).orElseThrow();
+        createAccountViaRepo(sender, "BATCH_SRC", "USD", new BigDecimal("150.00"));
+
+        registerAndLogin("batch-receiver@test.com", "pass123");
+        User receiver = userRepository.findByEmail("batch-receiver@test.com").orElseThrow();
+        createAccountViaRepo(receiver, "BATCH_TGT", "USD", BigDecimal.ZERO);
+
+        CreateBatchTransactionRequest request = new CreateBatchTransactionRequest(List.of(
+                new CreateTransactionRequest("BATCH_SRC", "BATCH_TGT", new BigDecimal("100.00"), "First"),
+                new CreateTransactionRequest("BATCH_SRC", "BATCH_TGT", new BigDecimal("100.00"), "Second"),
+                new CreateTransactionRequest("BATCH_SRC", "BATCH_TGT", new BigDecimal("50.00"), "Third")
+        ));
+
+        mockMvc.perform(post("/api/transactions/batch")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].failureReason").value("Insufficient funds!"));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(accountRepository.findByAccountNumber("BATCH_SRC").getBalance()));
+        assertEquals(0, new BigDecimal("150.00").compareTo(accountRepository.findByAccountNumber("BATCH_TGT").getBalance()));
+    }
+
+    @Test
+    void shouldReplayTransferWithSameIdempotencyKey() throws Exception {
+        String senderEmail = "idem-sender@test.com";
+        String token = registerAndLogin(senderEmail, "pass123");
+        User sender = userRepository.findByEmail(senderEmail).orElseThrow();
+        createAccountViaRepo(sender, "IDEM_SRC", "USD", new BigDecimal("1000.00"));
+
+        registerAndLogin("idem-receiver@test.com", "pass123");
+        User receiver = userRepository.findByEmail("idem-receiver@test.com").orElseThrow();
+        createAccountViaRepo(receiver, "IDEM_TGT", "USD", BigDecimal.ZERO);
+
+        CreateTransactionRequest request = new CreateTransactionRequest(
+                "IDEM_SRC", "IDEM_TGT", new BigDecimal("100.00"), "Retried Transfer");
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/transactions")
+                    .header("Authorization", "Bearer " + token)
+                    .header("Idempotency-Key", "transfer-1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.status").value("SUCCESS"));
+        }
+
+        CreateTransactionRequest different = new CreateTransactionRequest(
+                "IDEM_SRC", "IDEM_TGT", new BigDecimal("200.00"), "Retried Transfer");
+        mockMvc.perform(post("/api/transactions")
+                .header("Authorization", "Bearer " + token)
+                .header("Idempotency-Key", "transfer-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(different)))
+                .andExpect(status().isUnprocessableEntity());
+
+        assertEquals(0, new BigDecimal("900.00").compareTo(accountRepository.findByAccountNumber("IDEM_SRC").getBalance()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(accountRepository.findByAccountNumber("IDEM_TGT").getBalance()));
+    }
+
+    @Test
+    void shouldAcceptAsyncTransferAndReportItsStatusToParticipants() throws Exception {
+        String senderEmail = "async-sender@test.com";
+        String token = registerAndLogin(senderEmail, "pass123");
+        User sender = userRepository.findByEmail(senderEmail).orElseThrow();
+        createAccountViaRepo(sender, "ASYNC_SRC", "USD", new BigDecimal("1000.00"));
+
+        String receiverToken = registerAndLogin("async-receiver@test.com", "pass123");
+        User receiver = userRepository.findByEmail("async-receiver@test.com").orElseThrow();
+        createAccountViaRepo(receiver, "ASYNC_TGT", "USD", BigDecimal.ZERO);
+        String strangerToken = registerAndLogin("async-stranger@test.com", "pass123");
+
+        CreateTransactionRequest request = new CreateTransactionRequest(
+                "ASYNC_SRC", "ASYNC_TGT", new BigDecimal("100.00"), "Async Transfer");
+        MvcResult accepted = mockMvc.perform(post("/api/transactions/async")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn();
+        String location = accepted.getResponse().getHeader("Location");
+
+        mockMvc.perform(get(location).header("Authorization", "Bearer " + receiverToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sourceAccountNumber").value("ASYNC_SRC"))
+                .andExpect(jsonPath("$.amount").value(100.00));
+        mockMvc.perform(get(location).header("Authorization", "Bearer " + strangerToken))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/api/transactions/async")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateTransactionRequest(
+                                "ASYNC_SRC", "MISSING", new BigDecimal("100.00"), "Async Transfer"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldCreateListAndCancelScheduledTransfer() throws Exception {
+        String ownerEmail = "schedule-owner@test.com";
+        String token = registerAndLogin(ownerEmail, "pass123");
+        User owner = userRepository.findByEmail(ownerEmail).orElseThrow();
+        createAccountViaRepo(owner, "SCHED_SRC", "PLN", new BigDecimal("5000.00"));
+        String otherToken = registerAndLogin("schedule-landlord@test.com", "pass123");
+        User landlord = userRepository.findByEmail("schedule-landlord@test.com").orElseThrow();
+        createAccountViaRepo(landlord, "SCHED_TGT", "PLN", BigDecimal.ZERO);
+
+        Map<String, Object> request = Map.of(
+                "sourceAccountNumber", "SCHED_SRC",
+                "targetAccountNumber", "SCHED_TGT",
+                "amount", 1500,
+                "title", "Rent",
+                "frequency", "MONTHLY",
+                "firstExecution", "2099-01-31T08:00:00");
+        MvcResult created = mockMvc.perform(post("/api/scheduled-transfers")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.nextExecution").value("2099-01-31T08:00:00"))
+                .andExpect(jsonPath("$.active").value(true))
+                .andReturn();
+        long id = objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asLong();
+
+        mockMvc.perform(post("/api/scheduled-transfers")
+                        .header("Authorization", "Bearer " + otherToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(delete("/api/scheduled-transfers/" + id).header("Authorization", "Bearer " + token))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/scheduled-transfers").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(id))
+                .andExpect(jsonPath("$[0].active").value(false));
+    }
+
+    @Test
+    void shouldCreditStripedAccountAndFoldOnDebit() throws Exception {
+        String senderEmail = "stripe-sender@test.com";
+        String token = registerAndLogin(senderEmail, "pass123");
+        User sender = userRepository.findByEmail(senderEmail).orElseThrow();
+        createAccountViaRepo(sender, "STRIPE_SRC", "USD", new BigDecimal("500.00"));
+
+        String merchantEmail = "stripe-merchant@test.com";
+        String merchantToken = registerAndLogin(merchantEmail, "pass123");
+        User merchant = userRepository.findByEmail(merchantEmail).orElseThrow();
+        createAccountViaRepo(merchant, "STRIPE_TGT", "USD", new BigDecimal("10.00"));
+        Long merchantAccountId = accountRepository.findIdByAccountNumber("STRIPE_TGT");
+
+        mockMvc.perform(put("/api/accounts/" + merchantAccountId + "/striping")
+                .header("Authorization", "Bearer " + merchantToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stripes\": 4}"))
+                .andExpect(status().isNoContent());
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/transactions")
+                    .header("Authorization", "Bearer " + token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new CreateTransactionRequest(
+                            "STRIPE_SRC", "STRIPE_TGT", new BigDecimal("100.00"), "Purchase " + i))))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/accounts/" + merchantAccountId + "/balance")
+                .header("Authorization", "Bearer " + merchantToken))
+                .andExpect(status().isOk())
+                .andExpect(content().string("310.00"));
+
+        mockMvc.perform(post("/api/transactions/withdraw")
+                .header("Authorization", "Bearer " + merchantToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"targetAccountNumber\": \"STRIPE_TGT\", \"amount\": 250.00}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("SUCCESS"));
+
+        mockMvc.perform(get("/api/accounts/" + merchantAccountId + "/balance")
+                .header("Authorization", "Bearer " + merchantToken))
+                .andExpect(status().isOk())
+                .andExpect(content().string("60.00"));
+    }
+
+    @Test
+    void shouldRecordDoubleEntryJournal() throws Exception {
+        String senderEmail = "journal-sender@test.com";
+        String token = registerAndLogin(senderEmail, "pass123");
+        User sender = userRepository.findByEmail(senderEmail).orElseThrow();
+        createAccountViaRepo(sender, "JOURNAL_SRC", "USD", BigDecimal.ZERO);
+        Long sourceId = accountRepository.findIdByAccountNumber("JOURNAL_SRC");
+
+        registerAndLogin("journal-receiver@test.com", "pass123");
+        User receiver = userRepository.findByEmail("journal-receiver@test.com").orElseThrow();
+        createAccountViaRepo(receiver, "JOURNAL_TGT", "USD", BigDecimal.ZERO);
+        Long targetId = accountRepository.findIdByAccountNumber("JOURNAL_TGT");
+
+        mockMvc.perform(post("/api/transactions/deposit")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"targetAccountNumber\": \"JOURNAL_SRC\", \"amount\": 300.00}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/transactions")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateTransactionRequest(
+                        "JOURNAL_SRC", "JOURNAL_TGT", new BigDecimal("120.00"), "Invoice"))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/accounts/" + sourceId + "/journalBalance")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(content().string("180.00"));
+        assertEquals(0, new BigDecimal("120.00").compareTo(journalService.getBalance(targetId)));
+    }
+
+    @Test
+    void shouldOpenJournalOfAccountStoredWithBalance() throws Exception {
+        String token = registerAndLogin("journal-opening@test.com", "pass123");
+        User owner = userRepository.findByEmail("journal-opening@test.com").orElseThrow();
+        createAccountViaRepo(owner, "JOURNAL_OPENING", "PLN", new BigDecimal("750.00"));
+        Long accountId = accountRepository.findIdByAccountNumber("JOURNAL_OPENING");
+
+        journalService.openUnjournaledAccounts();
+        mockMvc.perform(post("/api/transactions/withdraw")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"targetAccountNumber\": \"JOURNAL_OPENING\", \"amount\": 50.00}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/accounts/" + accountId + "/journalBalance")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(content().string("700.00"));
+    }
+
+    @Test
+    void shouldPageThroughHistoryWithCursor() throws Exception {
+        String token = registerAndLogin("history-owner@test.com", "pass123");
+        User owner = userRepository.findByEmail("history-owner@test.com").orElseThrow();
+        createAccountViaRepo(owner, "HIST_SRC", "USD", new BigDecimal("1000.00"));
+        String otherToken = registerAndLogin("history-other@test.com", "pass123");
+        User other = userRepository.findByEmail("history-other@test.com").orElseThrow();
+        createAccountViaRepo(other, "HIST_TGT", "USD", new BigDecimal("1000.00"));
+        Long accountId = accountRepository.findByAccountNumber("HIST_SRC").getId();
+
+        for (int i = 0; i < 7; i++) {
+            boolean outgoing = i % 3 != 0;
+            mockMvc.perform(post("/api/transactions")
+                    .header("Authorization", "Bearer " + (outgoing ? token : otherToken))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new CreateTransactionRequest(
+                            outgoing ? "HIST_SRC" : "HIST_TGT", outgoing ? "HIST_TGT" : "HIST_SRC",
+                            BigDecimal.ONE, "History " + i))))
+                    .andExpect(status().isCreated());
+        }
+
+        List<String> titles = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MvcResult result = mockMvc.perform(get("/api/accounts/" + accountId + "/transactions")
+                    .param("limit", "3")
+                    .param("cursor", cursor != null ? cursor : "")
+                    .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            TransactionHistoryPageDTO page = objectMapper.readValue(result.getResponse().getContentAsString(),
+                    TransactionHistoryPageDTO.class);
+            page.transactions().forEach(transaction -> titles.add(transaction.title()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of("History 6", "History 5", "History 4", "History 3", "History 2", "History 1", "History 0"),
+                titles);
+    }
+
+    @Test
+    void shouldBoundOutgoingTransactionsByLimitAndDateRange() throws Exception {
+        String token = registerAndLogin("bounded-owner@test.com", "pass123");
+        User owner = userRepository.findByEmail("bounded-owner@test.com").orElseThrow();
+        createAccountViaRepo(owner, "BOUND_SRC", "USD", new BigDecimal("1000.00"));
+        createAccountViaRepo(owner, "BOUND_TGT", "USD", new BigDecimal("1000.00"));
+        Long accountId = accountRepository.findByAccountNumber("BOUND_SRC").getId();
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/transactions")
+                    .header("Authorization", "Bearer " + token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new CreateTransactionRequest(
+                            "BOUND_SRC", "BOUND_TGT", BigDecimal.ONE, "Bounded " + i))))
+                    .andExpect(status().isCreated());
+        }
+
+        TransactionHistoryPageDTO first = outgoingPage(token, accountId, before.toString(), null);
+        assertEquals(List.of("Bounded 2", "Bounded 1"), first.transactions().stream().map(TransactionStatusDTO::title).toList());
+        TransactionHistoryPageDTO last = outgoingPage(token, accountId, before.toString(), first.nextCursor());
+        assertEquals(List.of("Bounded 0"), last.transactions().stream().map(TransactionStatusDTO::title).toList());
+        assertNull(last.nextCursor());
+
+        mockMvc.perform(get("/api/accounts/" + accountId + "/outgoingTransactions")
+                        .param("to", before.toString())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions").isEmpty());
+        mockMvc.perform(get("/api/accounts/" + accountId + "/incomingTransactions")
+                        .param("limit", "500")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldListOutgoingTransfersInTargetCurrency() throws Exception {
+        String token = registerAndLogin("fx-listing-owner@test.com", "pass123");
+        User owner = userRepository.findByEmail("fx-listing-owner@test.com").orElseThrow();
+        createAccountViaRepo(owner, "FX_LIST_SRC", "USD", new BigDecimal("100.00"));
+        createAccountViaRepo(owner, "FX_LIST_TGT", "EUR", BigDecimal.ZERO);
+        Account source = accountRepository.findByAccountNumber("FX_LIST_SRC");
+        Transaction transaction = new Transaction(source, accountRepository.findByAccountNumber("FX_LIST_TGT"),
+                BigDecimal.TEN, "Cross-currency");
+        transaction.setStatus(TransactionStatus.SUCCESS);
+        transactionRepository.save(transaction);
+
+        mockMvc.perform(get("/api/accounts/" + source.getId() + "/outgoingTransactions")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].currencyCode").value("EUR"));
+        mockMvc.perform(get("/api/accounts/" + source.getId() + "/transactions")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].currencyCode").value("USD"));
+    }
+
+    @Test
+    void shouldDeleteEmptiedAccountWithItsHistory() throws Exception {
+        String token = registerAndLogin("closing-owner@test.com", "pass123");
+        User owner = userRepository.findByEmail("closing-owner@test.com").orElseThrow();
+        createAccountViaRepo(owner, "CLOSE_SRC", "USD", new BigDecimal("2.00"));
+        createAccountViaRepo(owner, "CLOSE_TGT", "USD", BigDecimal.ZERO);
+        Long accountId = accountRepository.findByAccountNumber("CLOSE_SRC").getId();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/transactions")
+                    .header("Authorization", "Bearer " + token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new CreateTransactionRequest(
+                            "CLOSE_SRC", "CLOSE_TGT", BigDecimal.ONE, "Closing " + i))))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(delete("/api/accounts/" + accountId).header("Authorization", "Bearer " + token))
+                .andExpect(status().isNoContent());
+        assertTrue(accountRepository.findById(accountId).isEmpty());
+        assertEquals(0, transactionRepository.findAllByAccountId(accountId, Pageable.unpaged()).getTotalElements());
+    }
+
+    private TransactionHistoryPageDTO outgoingPage(String token, Long accountId, String from, String cursor) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/accounts/" + accountId + "/outgoingTransactions")
+                        .param("from", from)
+                        .param("limit", "2")
+                        .param("cursor", cursor != null ? cursor : "")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), TransactionHistoryPageDTO.class);
+    }
+
     private String registerAndLogin(String email, String password) throws Exception {
         CreateUserDTO registerRequest = new CreateUserDTO("Test", "User", email, password);
         mockMvc.perform(post("/api/auth/register")
@@ -0,0 +1,257 @@
+package org.kz.minibank.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountBalanceStripeRepository;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.TransactionRepository;
+import org.kz.minibank.service.AccountService;
+import org.kz.minibank.service.ExchangeRateService;
+import org.kz.minibank.service.FxQuoteService;
+import org.kz.minibank.service.JournalService;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class LedgerEngineTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private AccountBalanceStripeRepository stripeRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    @Mock
+    private FxQuoteService fxQuoteService;
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private JournalService journalService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Account> accountsByNumber = new ConcurrentHashMap<>();
+    private final Map<Long, BigDecimal> persistedBalances = new ConcurrentHashMap<>();
+    private final AtomicBoolean databaseDown = new AtomicBoolean();
+    private final AtomicInteger failedWrites = new AtomicInteger();
+    private LedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 4; id++) {
+            Account account = new Account(Currency.getInstance("USD"), new User());
+            account.setId(id);
+            account.setAccountNumber("ACC" + id);
+            account.setBalance(new BigDecimal("1000.00"));
+            accountsByNumber.put(account.getAccountNumber(), account);
+            persistedBalances.put(id, account.getBalance());
+        }
+        when(accountRepository.findByAccountNumber(anyString())).thenAnswer(i -> accountsByNumber.get(i.getArgument(0)));
+        when(accountRepository.findById(any())).thenAnswer(i -> accountsByNumber.values().stream()
+                .filter(a -> a.getId().equals(i.getArgument(0))).findFirst());
+        when(accountRepository.findAllById(any())).thenAnswer(i -> new ArrayList<>(accountsByNumber.values()));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(i -> i.getArgument(0));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(i -> {
+            List<Object[]> updates = i.getArgument(1);
+            if (databaseDown.get() && !updates.isEmpty()) {
+                failedWrites.incrementAndGet();
+                throw new IllegalStateException("Database unavailable");
+            }
+            updates.forEach(u -> persistedBalances.merge((Long) u[1], (BigDecimal) u[0], BigDecimal::add));
+            return new int[updates.size()];
+        });
+
+        engine = new LedgerEngine(accountRepository, stripeRepository, transactionRepository, exchangeRateService,
+                fxQuoteService, accountService, journalService, new TransactionTemplate(transactionManager), jdbcTemplate,
+                new InternalThreadFactory(false), 3, 1000, 50, 1, 5000, Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.shutdown();
+    }
+
+    @Test
+    void transfer_MovesFundsAndPersistsDeltasBeforeAcknowledging() {
+        Transaction result = engine.transfer("ACC1", "ACC2", new BigDecimal("100.00"), "Payment");
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(0, new BigDecimal("900.00").compareTo(persistedBalances.get(1L)));
+        assertEquals(0, new BigDecimal("1100.00").compareTo(persistedBalances.get(2L)));
+    }
+
+    @Test
+    void transfer_InsufficientFunds_PersistsFailedTransaction() {
+        Transaction result = engine.transfer("ACC1", "ACC2", new BigDecimal("5000.00"), "Payment");
+
+        assertEquals(TransactionStatus.FAILED, result.getStatus());
+        assertEquals("Insufficient funds!", result.getFailureReason());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(persistedBalances.get(1L)));
+    }
+
+    @Test
+    void transfer_UnknownAccount_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.transfer("ACC1", "MISSING", new BigDecimal("1.00"), "Payment"));
+    }
+
+    @Test
+    void concurrentCrossShardTransfers_ConserveTotalBalance() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        List<Future<Transaction>> results = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String source = "ACC" + (i % 4 + 1);
+            String target = "ACC" + ((i + 1) % 4 + 1);
+            results.add(clients.submit(() -> engine.transfer(source, target, new BigDecimal("7.00"), "Load")));
+        }
+        for (Future<Transaction> result : results) {
+            assertEquals(TransactionStatus.SUCCESS, result.get().getStatus());
+        }
+        clients.shutdown();
+
+        BigDecimal total = persistedBalances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal("4000.00").compareTo(total));
+        persistedBalances.values().forEach(balance -> assertEquals(0, new BigDecimal("1000.00").compareTo(balance)));
+    }
+
+    @Test
+    void withdraw_Success() {
+        Transaction result = engine.withdraw("ACC3", new BigDecimal("250.00"));
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(0, new BigDecimal("750.00").compareTo(persistedBalances.get(3L)));
+    }
+
+    @Test
+    void persistFailure_KeepsInMemoryBalanceUntilOutcomeIsWritten() throws Exception {
+        databaseDown.set(true);
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        Future<Transaction> withdrawAll = client.submit(() -> engine.withdraw("ACC1", new BigDecimal("1000.00")));
+        while (failedWrites.get() < 3) Thread.sleep(5);
+
+        // the database still shows 1000.00, but the unpersisted withdrawal must not be forgotten
+        Transaction overdraft = engine.withdraw("ACC1", new BigDecimal("1.00"));
+        assertEquals(TransactionStatus.FAILED, overdraft.getStatus());
+        assertEquals("Insufficient funds!", overdraft.getFailureReason());
+
+        databaseDown.set(false);
+        assertEquals(TransactionStatus.SUCCESS, withdrawAll.get().getStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(persistedBalances.get(1L)));
+        client.shutdown();
+    }
+
+    @Test
+    void deleteAccount_CreditedInMemoryOnly_Rejected() {
+        accountsByNumber.get("ACC4").setBalance(BigDecimal.ZERO);
+        engine.transfer("ACC1", "ACC4", new BigDecimal("100.00"), "Payment");
+
+        assertThrows(IllegalArgumentException.class, () -> engine.deleteAccount(4L));
+
+        verify(accountService, never()).deleteAccount(any());
+    }
+
+    @Test
+    void deleteAccount_ClosedAccount_RefundsLaterCredits() {
+        accountsByNumber.get("ACC4").setBalance(BigDecimal.ZERO);
+
+        engine.deleteAccount(4L);
+
+        verify(accountService).deleteAccount(4L);
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.transfer("ACC1", "ACC4", new BigDecimal("100.00"), "Payment"));
+        assertEquals(TransactionStatus.SUCCESS, engine.withdraw("ACC1", new BigDecimal("1000.00")).getStatus());
+    }
+
+    @Test
+    void completeTransfer_DispatchedTwice_DebitsOnce() {
+        UUID id = UUID.randomUUID();
+        Transaction pending = new Transaction(accountsByNumber.get("ACC1"), accountsByNumber.get("ACC2"),
+                new BigDecimal("100.00"), "Payment");
+        pending.setId(id);
+        when(transactionRepository.findById(id)).thenReturn(Optional.of(pending));
+        when(transactionRepository.findAllById(any())).thenReturn(List.of(pending));
+        // the second dispatch loses the claim, as if the first still held it
+        when(transactionRepository.claim(eq(id), any())).thenReturn(1, 0);
+
+        assertEquals(TransactionStatus.SUCCESS, engine.completeTransfer(id).getStatus());
+        pending.setStatus(TransactionStatus.PENDING);
+        engine.completeTransfer(id);
+
+        assertEquals(0, new BigDecimal("900.00").compareTo(persistedBalances.get(1L)));
+        assertEquals(0, new BigDecimal("1100.00").compareTo(persistedBalances.get(2L)));
+    }
+
+    @Test
+    void completeTransfer_Rejected_ReleasesClaim() {
+        UUID id = UUID.randomUUID();
+        Transaction pending = new Transaction(accountsByNumber.get("ACC1"), accountsByNumber.get("ACC2"),
+                new BigDecimal("-1.00"), "Payment");
+        pending.setId(id);
+        when(transactionRepository.findById(id)).thenReturn(Optional.of(pending));
+        when(transactionRepository.claim(eq(id), any())).thenReturn(1);
+        when(transactionRepository.changeStatus(eq(id), any(), any())).thenReturn(1);
+
+        assertThrows(IllegalArgumentException.class, () -> engine.completeTransfer(id));
+
+        verify(transactionRepository).changeStatus(id, TransactionStatus.PROCESSING, TransactionStatus.PENDING);
+    }
+
+    @Test
+    void releaseExpiredClaims_ReleasesOnlyClaimsOlderThanTheTimeout() {
+        LocalDateTime before = LocalDateTime.now();
+
+        engine.releaseExpiredClaims();
+
+        verify(transactionRepository).releaseClaimsBefore(argThat(cutoff ->
+                !cutoff.isAfter(before.minusMinutes(5).plusSeconds(1)) && cutoff.isAfter(before.minusMinutes(6))));
+        verify(transactionRepository, never()).changeStatus(any(), any(), any());
+    }
+}
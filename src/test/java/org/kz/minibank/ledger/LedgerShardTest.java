@@ -0,0 +1,55 @@
+package org.kz.minibank.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.config.InternalThreadFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerShardTest {
+    private final LedgerShard shard = new LedgerShard(0, 1, id -> new BigDecimal("100.00"), new InternalThreadFactory(false));
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        shard.shutdown();
+    }
+
+    @Test
+    void handOff_FullQueue_RunsAheadOfQueuedTasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        shard.execute(() -> {
+            started.countDown();
+            await(blocked);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        shard.execute(() -> {
+            order.add("queued");
+            done.countDown();
+        });
+        assertThrows(RejectedExecutionException.class, () -> shard.execute(() -> order.add("rejected")));
+
+        shard.handOff(() -> order.add("refund"));
+        blocked.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("refund", "queued"), order);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
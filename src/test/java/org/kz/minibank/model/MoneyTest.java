@@ -0,0 +1,63 @@
+package org.kz.minibank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+    private static final Currency PLN = Currency.getInstance("PLN");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @Test
+    void of_ScalesByCurrencyFractionDigits() {
+        assertEquals(new Money(12345, PLN), Money.of(new BigDecimal("123.45"), PLN));
+        assertEquals(new Money(100, JPY), Money.of(new BigDecimal("100.00"), JPY));
+        assertEquals(new BigDecimal("123.45"), new Money(12345, PLN).toBigDecimal());
+    }
+
+    @Test
+    void of_MoreDecimalPlacesThanCurrency_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1.005"), PLN));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("100.50"), JPY));
+    }
+
+    @Test
+    void arithmetic_IsOverflowChecked() {
+        Money max = new Money(Long.MAX_VALUE, PLN);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(new Money(1, PLN)));
+        assertThrows(ArithmeticException.class, () -> new Money(Long.MIN_VALUE, PLN).minus(new Money(1, PLN)));
+        assertThrows(ArithmeticException.class, () -> max.convert(Money.scaledRate(new BigDecimal("4.0")), USD, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void arithmetic_DifferentCurrencies_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new Money(100, PLN).plus(new Money(100, USD)));
+        assertThrows(IllegalArgumentException.class, () -> new Money(100, PLN).isLessThan(new Money(100, USD)));
+    }
+
+    @Test
+    void convert_MatchesBigDecimalMultiplyAndDivide() {
+        Money hundredDollars = Money.of(new BigDecimal("100"), USD);
+        long rate = Money.scaledRate(new BigDecimal("0.3300"));
+
+        assertEquals(new Money(3300, PLN), hundredDollars.convert(rate, PLN, RoundingMode.HALF_UP));
+        assertEquals(new Money(30303, PLN), hundredDollars.convertInverse(rate, PLN, RoundingMode.HALF_UP));
+        assertEquals(new Money(3930, JPY), hundredDollars.convert(Money.scaledRate(new BigDecimal("39.2950")), JPY, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void convert_HalfwayCases_RoundPerMode() {
+        long half = Money.scaledRate(new BigDecimal("0.5000"));
+
+        assertEquals(new Money(3, PLN), new Money(5, USD).convert(half, PLN, RoundingMode.HALF_UP));
+        assertEquals(new Money(2, PLN), new Money(5, USD).convert(half, PLN, RoundingMode.HALF_EVEN));
+        assertEquals(new Money(4, PLN), new Money(7, USD).convert(half, PLN, RoundingMode.HALF_EVEN));
+        assertEquals(new Money(-3, PLN), new Money(-5, USD).convert(half, PLN, RoundingMode.HALF_UP));
+    }
+}
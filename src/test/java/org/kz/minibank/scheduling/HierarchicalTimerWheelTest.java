@@ -0,0 +1,77 @@
+package org.kz.minibank.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HierarchicalTimerWheelTest {
+
+    @Test
+    void advanceTo_ExpiresItemsAtTheirTick() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1000, 8, 3, 0);
+        wheel.add("a", 3_000);
+        wheel.add("b", 5_500);
+
+        assertEquals(List.of(), wheel.advanceTo(2_999));
+        assertEquals(List.of("a"), wheel.advanceTo(3_000));
+        assertEquals(List.of("b"), wheel.advanceTo(10_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advanceTo_CascadesItemsFromHigherLevels() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1000, 8, 3, 0);
+        wheel.add("level1", 20_000);
+        wheel.add("level2", 130_000);
+
+        assertEquals(List.of(), wheel.advanceTo(19_000));
+        assertEquals(List.of("level1"), wheel.advanceTo(20_000));
+        assertEquals(List.of(), wheel.advanceTo(129_000));
+        assertEquals(List.of("level2"), wheel.advanceTo(130_000));
+    }
+
+    @Test
+    void add_BeyondTopLevel_IsParkedUntilDue() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1000, 4, 2, 0);
+        wheel.add("far", 100_000);
+
+        assertEquals(List.of(), wheel.advanceTo(99_000));
+        assertEquals(List.of("far"), wheel.advanceTo(100_000));
+    }
+
+    @Test
+    void add_Overdue_ExpiresOnNextAdvance() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1000, 8, 3, 50_000);
+        wheel.add("missed", 1_000);
+
+        assertEquals(List.of("missed"), wheel.advanceTo(50_000));
+    }
+
+    @Test
+    void advanceTo_RandomItems_ExpireExactlyOnceAndNeverEarly() {
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(10, 16, 3, 0);
+        Random random = new Random(42);
+        List<Long> dues = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long due = random.nextLong(60_000);
+            dues.add(due);
+            wheel.add(due, due);
+        }
+
+        List<Long> expired = new ArrayList<>();
+        for (long now = 0; now <= 60_000; now += random.nextInt(500)) {
+            long clock = now;
+            wheel.advanceTo(now).forEach(due -> {
+                assertTrue(due / 10 <= clock / 10, "expired early");
+                expired.add(due);
+            });
+        }
+        expired.addAll(wheel.advanceTo(60_000));
+
+        assertEquals(dues.stream().sorted().toList(), expired.stream().sorted().toList());
+    }
+}
@@ -3,23 +3,32 @@ package org.kz.minibank.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.DTO.TransactionStatusDTO;
 import org.kz.minibank.model.Account;
+import org.kz.minibank.model.AccountInfo;
+import org.kz.minibank.model.TransactionCursor;
+import org.kz.minibank.model.TransactionStatus;
 import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountInfoRepository;
 import org.kz.minibank.repository.AccountRepository;
 import org.kz.minibank.repository.TransactionRepository;
 import org.kz.minibank.repository.UserRepository;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +43,15 @@ public class AccountServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private BalanceStripeService balanceStripeService;
+
+    @Mock
+    private AccountInfoRepository accountInfoRepository;
+
+    @Mock
+    private JournalService journalService;
+
     @InjectMocks
     private AccountService accountService;
 
@@ -87,6 +105,18 @@ public class AccountServiceTest {
         assertEquals(new BigDecimal("100.00"), balance);
     }
 
+    @Test
+    void getBalance_StripedAccount_IncludesPendingCredits() {
+        account.setBalance(new BigDecimal("100.00"));
+        account.setBalanceStripes(4);
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(account));
+        when(balanceStripeService.pendingCredits(account)).thenReturn(new BigDecimal("25.00"));
+
+        BigDecimal balance = accountService.getBalance(1L);
+
+        assertEquals(new BigDecimal("125.00"), balance);
+    }
+
     @Test
     void getBalance_AccountNotFound_ThrowsException() {
         when(accountRepository.findById(99L)).thenReturn(Optional.empty());
@@ -111,7 +141,9 @@ public class AccountServiceTest {
 
         accountService.deleteAccount(1L);
 
+        verify(transactionRepository).deleteAllByAccountId(1L);
         verify(accountRepository).deleteById(1L);
+        verify(accountInfoRepository).evict(1L);
     }
 
     @Test
@@ -125,7 +157,8 @@ public class AccountServiceTest {
 
     @Test
     void isAccountOwner_ById_Success() {
-        when(accountRepository.findById(1L)).thenReturn(Optional.of(account));
+        AccountInfo info = accountInfo();
+        when(accountInfoRepository.findById(1L)).thenReturn(Optional.of(info));
 
         assertTrue(accountService.isAccountOwner(1L, "john@example.com"));
         assertFalse(accountService.isAccountOwner(1L, "other@example.com"));
@@ -133,8 +166,111 @@ public class AccountServiceTest {
 
     @Test
     void isAccountOwner_ByAccountNumber_Success() {
-        when(accountRepository.findByAccountNumber("123")).thenReturn(account);
+        AccountInfo info = accountInfo();
+        when(accountInfoRepository.findByAccountNumber("123")).thenReturn(info);
 
         assertTrue(accountService.isAccountOwner("123", "john@example.com"));
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void isAccountOwner_UnknownAccountNumber_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> accountService.isAccountOwner("missing", "john@example.com"));
+    }
+
+    @Test
+    void getTransactionHistory_MergesBothSidesNewestFirstAndSkipsDuplicates() {
+        TransactionStatusDTO self = transaction(10, "00000000-0000-0000-0000-000000000005");
+        TransactionStatusDTO outgoing = transaction(9, "00000000-0000-0000-0000-000000000004");
+        TransactionStatusDTO incoming = transaction(9, "ffffffff-0000-0000-0000-000000000003");
+        TransactionStatusDTO older = transaction(8, "00000000-0000-0000-0000-000000000002");
+        TransactionCursor start = TransactionCursor.START;
+        when(transactionRepository.findOutgoingPage(eq(1L), any(), eq(start.timestamp()), eq(start.id()), eq(Limit.of(3))))
+                .thenReturn(List.of(self, outgoing));
+        when(transactionRepository.findIncomingPage(eq(1L), any(), eq(start.timestamp()), eq(start.id()), eq(Limit.of(3))))
+                .thenReturn(List.of(self, incoming, older));
+
+        TransactionHistorySlice first = accountService.getTransactionHistory(1L, null, 2);
+
+        assertEquals(List.of(self, incoming), first.transactions());
+        assertNotNull(first.nextCursor());
+        TransactionCursor cursor = TransactionCursor.decode(first.nextCursor());
+        assertEquals(incoming.id(), cursor.id());
+        assertEquals(incoming.timestamp(), cursor.timestamp());
+    }
+
+    @Test
+    void getTransactionHistory_WithCursor_SeeksPastItAndEndsOnLastPage() {
+        TransactionStatusDTO last = transaction(9, "00000000-0000-0000-0000-000000000004");
+        String cursor = cursorOf(transaction(10, "00000000-0000-0000-0000-000000000005")).encode();
+        when(transactionRepository.findOutgoingPage(eq(1L), any(), any(), eq(UUID.fromString("00000000-0000-0000-0000-000000000005")),
+                eq(Limit.of(3)))).thenReturn(List.of(last));
+        when(transactionRepository.findIncomingPage(eq(1L), any(), any(), any(), eq(Limit.of(3)))).thenReturn(List.of());
+
+        TransactionHistorySlice page = accountService.getTransactionHistory(1L, cursor, 2);
+
+        assertEquals(List.of(last), page.transactions());
+        assertNull(page.nextCursor());
+        verify(transactionRepository, never()).findAllByAccountId(any(), any());
+    }
+
+    @Test
+    void getTransactionHistory_InvalidCursorOrLimit_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> accountService.getTransactionHistory(1L, "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> accountService.getTransactionHistory(1L, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> accountService.getTransactionHistory(1L, null, AccountService.MAX_HISTORY_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void getIncomingTransactions_SeeksWithinDateRangeAndReturnsCursorWhenMoreRemain() {
+        LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 1, 2, 0, 0);
+        TransactionStatusDTO newer = transaction(10, "00000000-0000-0000-0000-000000000002");
+        TransactionStatusDTO older = transaction(9, "00000000-0000-0000-0000-000000000001");
+        when(transactionRepository.findIncomingPage(1L, from, to, TransactionCursor.before(to).id(), Limit.of(2)))
+                .thenReturn(List.of(newer, older));
+
+        TransactionHistorySlice page = accountService.getIncomingTransactions(1L, from, to, null, 1);
+
+        assertEquals(List.of(newer), page.transactions());
+        assertEquals(cursorOf(newer), TransactionCursor.decode(page.nextCursor()));
+        verify(transactionRepository, never()).findOutgoingPage(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getOutgoingTransactions_CursorPastRangeEnd_IsClampedToIt() {
+        LocalDateTime to = LocalDateTime.of(2026, 1, 1, 12, 0);
+        String cursor = cursorOf(transaction(10, "00000000-0000-0000-0000-000000000005")).encode();
+        when(transactionRepository.findOutgoingPageInTargetCurrency(eq(1L), any(), eq(to), eq(TransactionCursor.before(to).id()), eq(Limit.of(11))))
+                .thenReturn(List.of());
+
+        TransactionHistorySlice page = accountService.getOutgoingTransactions(1L, null, to, cursor, 10);
+
+        assertTrue(page.transactions().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getOutgoingTransactions_EmptyRange_Rejected() {
+        LocalDateTime at = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> accountService.getOutgoingTransactions(1L, at, at, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> accountService.getIncomingTransactions(1L, null, null, null, 0));
+    }
+
+    private AccountInfo accountInfo() {
+        AccountInfo info = mock(AccountInfo.class);
+        when(info.getUser()).thenReturn(user);
+        return info;
+    }
+
+    private static TransactionStatusDTO transaction(int minute, String id) {
+        return new TransactionStatusDTO(UUID.fromString(id), BigDecimal.ONE, "PLN", "SRC", "TGT", "Title",
+                TransactionStatus.SUCCESS, null, LocalDateTime.of(2026, 1, 1, 12, minute));
+    }
+
+    private static TransactionCursor cursorOf(TransactionStatusDTO transaction) {
+        return new TransactionCursor(transaction.timestamp(), transaction.id());
     }
 }
@@ -0,0 +1,133 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.repository.TransactionRepository;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncTransferServiceTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private TransferProcessor transferProcessor;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private AsyncTransferService asyncTransferService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncTransferService.shutdown();
+    }
+
+    @Test
+    void submit_StoresPendingTransferAndCompletesItInBackground() throws InterruptedException {
+        asyncTransferService = service(2, 10);
+        Transaction pending = pending();
+        CountDownLatch completed = new CountDownLatch(1);
+        when(transactionService.createPendingTransfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment", null)).thenReturn(pending);
+        when(transferProcessor.completeTransfer(pending.getId())).thenAnswer(i -> {
+            completed.countDown();
+            return pending;
+        });
+
+        Transaction result = asyncTransferService.submit("SRC123", "TGT456", new BigDecimal("100.00"), "Payment");
+
+        assertSame(pending, result);
+        assertEquals(TransactionStatus.PENDING, result.getStatus());
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_QueueFull_MarksTransferFailedAndRejects() throws InterruptedException {
+        asyncTransferService = service(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transferProcessor.completeTransfer(any())).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        Transaction busy = pending();
+        Transaction queued = pending();
+        Transaction rejected = pending();
+        when(transactionService.createPendingTransfer(any(), any(), any(), any(), any())).thenReturn(busy, queued, rejected);
+
+        asyncTransferService.submit("SRC123", "TGT456", BigDecimal.ONE, "Payment");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        asyncTransferService.submit("SRC123", "TGT456", BigDecimal.ONE, "Payment");
+        assertThrows(RejectedExecutionException.class,
+                () -> asyncTransferService.submit("SRC123", "TGT456", BigDecimal.ONE, "Payment"));
+
+        verify(transactionService).failPendingTransfer(rejected.getId(), "Server is overloaded!");
+        release.countDown();
+    }
+
+    @Test
+    void process_InvalidTransfer_MarksItFailed() {
+        asyncTransferService = service(1, 1);
+        UUID id = UUID.randomUUID();
+        when(transferProcessor.completeTransfer(id)).thenThrow(new IllegalArgumentException("Account not found!"));
+
+        asyncTransferService.process(id);
+
+        verify(transactionService).failPendingTransfer(id, "Account not found!");
+    }
+
+    @Test
+    void process_TransientFailure_LeavesTransferPending() {
+        asyncTransferService = service(1, 1);
+        UUID id = UUID.randomUUID();
+        when(transferProcessor.completeTransfer(id)).thenThrow(new CannotAcquireLockException("busy"));
+
+        asyncTransferService.process(id);
+
+        verify(transactionService, never()).failPendingTransfer(any(), any());
+    }
+
+    @Test
+    void recoverPendingTransfers_RequeuesStaleTransfers() {
+        asyncTransferService = service(1, 10);
+        UUID stale = UUID.randomUUID();
+        when(transactionRepository.findIdsByStatusBefore(eq(TransactionStatus.PENDING), any(), any())).thenReturn(List.of(stale));
+
+        asyncTransferService.recoverPendingTransfers();
+
+        verify(transferProcessor, timeout(5000)).completeTransfer(stale);
+    }
+
+    private AsyncTransferService service(int workers, int queueCapacity) {
+        return new AsyncTransferService(transactionService, transferProcessor, transactionRepository,
+                new InternalThreadFactory(false), new SimpleMeterRegistry(), workers, queueCapacity, Duration.ofMinutes(1));
+    }
+
+    private Transaction pending() {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        return transaction;
+    }
+}
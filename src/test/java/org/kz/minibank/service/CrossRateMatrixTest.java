@@ -0,0 +1,45 @@
+package org.kz.minibank.service;
+
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CrossRateMatrixTest {
+    private static final Currency PLN = Currency.getInstance("PLN");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private final CrossRateMatrix matrix = new CrossRateMatrix(Map.of(
+            PLN, BigDecimal.ONE,
+            USD, new BigDecimal("4.0"),
+            EUR, new BigDecimal("4.3")), LocalDateTime.now());
+
+    @Test
+    void rate_MatchesPerPairCrossRate() {
+        assertEquals(new BigDecimal("4.0000"), matrix.rate(new CurrencyPair(USD, PLN)));
+        assertEquals(new BigDecimal("0.2500"), matrix.rate(new CurrencyPair(PLN, USD)));
+        assertEquals(new BigDecimal("0.9302"), matrix.rate(new CurrencyPair(USD, EUR)));
+        assertEquals(new BigDecimal("1.0000"), matrix.rate(new CurrencyPair(EUR, EUR)));
+    }
+
+    @Test
+    void convert_MultipliesAndRoundsToCents() {
+        assertEquals(new Money(9302, EUR), matrix.convert(new Money(10000, USD), EUR, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void rate_UnsupportedCurrency_ThrowsException() {
+        CurrencyPair pair = new CurrencyPair(USD, Currency.getInstance("JPY"));
+
+        assertFalse(matrix.supports(Currency.getInstance("JPY")));
+        assertThrows(IllegalArgumentException.class, () -> matrix.rate(pair));
+    }
+}
@@ -0,0 +1,93 @@
+package org.kz.minibank.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.ExchangeRate;
+import org.kz.minibank.repository.ExchangeRateRepository;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateHistoryServiceTest {
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency PLN = Currency.getInstance("PLN");
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final LocalDateTime DAY_2 = DAY_1.plusDays(1);
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    private ExchangeRateHistoryService historyService;
+
+    @BeforeEach
+    void setUp() {
+        historyService = new ExchangeRateHistoryService(exchangeRateRepository, Duration.ofDays(7));
+    }
+
+    @Test
+    void rateAsOf_ReturnsLastRateAtOrBeforeTimestamp_LoadingThePairOnce() {
+        CurrencyPair usdPln = new CurrencyPair(USD, PLN);
+        when(exchangeRateRepository.findByPairOrderByTimestampAsc(usdPln))
+                .thenReturn(List.of(rate(usdPln, "4.0000", DAY_1), rate(usdPln, "4.1000", DAY_2)));
+
+        assertNull(historyService.rateAsOf(usdPln, DAY_1.minusSeconds(1)));
+        assertEquals(new BigDecimal("4.0000"), historyService.rateAsOf(usdPln, DAY_1));
+        assertEquals(new BigDecimal("4.0000"), historyService.rateAsOf(usdPln, DAY_2.minusSeconds(1)));
+        assertEquals(new BigDecimal("4.1000"), historyService.rateAsOf(usdPln, DAY_2.plusDays(30)));
+        verify(exchangeRateRepository, times(1)).findByPairOrderByTimestampAsc(usdPln);
+    }
+
+    @Test
+    void rateAsOf_FallsBackToReverseThenPlnLegs() {
+        CurrencyPair usdPln = new CurrencyPair(USD, PLN);
+        CurrencyPair eurPln = new CurrencyPair(EUR, PLN);
+        when(exchangeRateRepository.findByPairOrderByTimestampAsc(any())).thenReturn(List.of());
+        when(exchangeRateRepository.findByPairOrderByTimestampAsc(usdPln)).thenReturn(List.of(rate(usdPln, "4.0000", DAY_1)));
+        when(exchangeRateRepository.findByPairOrderByTimestampAsc(eurPln)).thenReturn(List.of(rate(eurPln, "4.4000", DAY_1)));
+
+        assertEquals(new BigDecimal("0.2500"), historyService.rateAsOf(new CurrencyPair(PLN, USD), DAY_2));
+        assertEquals(new BigDecimal("0.9091"), historyService.rateAsOf(new CurrencyPair(USD, EUR), DAY_2));
+    }
+
+    @Test
+    void save_UpdatesLoadedHistory() {
+        CurrencyPair usdPln = new CurrencyPair(USD, PLN);
+        when(exchangeRateRepository.findByPairOrderByTimestampAsc(usdPln)).thenReturn(List.of(rate(usdPln, "4.0000", DAY_1)));
+        historyService.rateAsOf(usdPln, DAY_1);
+
+        historyService.save(rate(usdPln, "4.2000", DAY_2));
+
+        assertEquals(new BigDecimal("4.2000"), historyService.rateAsOf(usdPln, DAY_2));
+        verify(exchangeRateRepository).save(any(ExchangeRate.class));
+        verify(exchangeRateRepository, times(1)).findByPairOrderByTimestampAsc(usdPln);
+    }
+
+    @Test
+    void compact_OnlyCoversDaysNotCompactedYet() {
+        when(exchangeRateRepository.compactToDailyBetween(any(), any())).thenReturn(3);
+
+        historyService.compact();
+        historyService.compact();
+
+        verify(exchangeRateRepository, times(1)).compactToDailyBetween(any(), any());
+    }
+
+    private static ExchangeRate rate(CurrencyPair pair, String rate, LocalDateTime timestamp) {
+        ExchangeRate exchangeRate = new ExchangeRate(pair, new BigDecimal(rate));
+        exchangeRate.setTimestamp(timestamp);
+        return exchangeRate;
+    }
+}
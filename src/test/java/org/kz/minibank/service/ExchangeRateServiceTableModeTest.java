@@ -0,0 +1,112 @@
+package org.kz.minibank.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.clinet.ForexClient;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.repository.ExchangeRateRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Currency;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/** Table mode against a local stub of the NBP table A endpoint. */
+public class ExchangeRateServiceTableModeTest {
+    private static final Currency PLN = Currency.getInstance("PLN");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private HttpServer nbpStub;
+    private final AtomicInteger tableRequests = new AtomicInteger();
+    private volatile String usdMid = "4.0";
+    private ExchangeRateRepository exchangeRateRepository;
+    private ExchangeRateService exchangeRateService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        nbpStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        nbpStub.createContext("/api/exchangerates/tables/a/", exchange -> {
+            tableRequests.incrementAndGet();
+            byte[] body = ("[{\"table\":\"A\",\"no\":\"001/A/NBP/2026\",\"effectiveDate\":\"2026-01-02\",\"rates\":["
+                    + "{\"currency\":\"dolar amerykański\",\"code\":\"USD\",\"mid\":" + usdMid + "},"
+                    + "{\"currency\":\"euro\",\"code\":\"EUR\",\"mid\":4.3},"
+                    + "{\"currency\":\"nieznana\",\"code\":\"ZZZ\",\"mid\":1.5}]}]")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        nbpStub.start();
+        exchangeRateRepository = mock(ExchangeRateRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nbpStub.stop(0);
+        exchangeRateService.shutdown();
+    }
+
+    @Test
+    void convert_AllPairsServedFromOneTableFetch() {
+        exchangeRateService = service(Duration.ofMinutes(4));
+
+        assertEquals(new BigDecimal("400.00"), exchangeRateService.convert(new BigDecimal("100"), new CurrencyPair(USD, PLN)));
+        assertEquals(new BigDecimal("93.02"), exchangeRateService.convert(new BigDecimal("100"), new CurrencyPair(USD, EUR)));
+        assertEquals(new BigDecimal("23.26"), exchangeRateService.convert(new BigDecimal("100"), new CurrencyPair(PLN, EUR)));
+
+        assertEquals(1, tableRequests.get());
+        verify(exchangeRateRepository, times(1)).saveAll(anyList());
+        verify(exchangeRateRepository, never()).findTopByPairOrderByTimestampDesc(any());
+    }
+
+    @Test
+    void convert_CurrencyMissingFromTable_ThrowsException() {
+        exchangeRateService = service(Duration.ofMinutes(4));
+        CurrencyPair pair = new CurrencyPair(USD, Currency.getInstance("JPY"));
+
+        assertThrows(IllegalArgumentException.class, () -> exchangeRateService.convert(BigDecimal.TEN, pair));
+    }
+
+    @Test
+    void convert_TableDueForRefresh_SwapsInNewMatrix() throws InterruptedException {
+        exchangeRateService = service(Duration.ofMillis(1));
+        CurrencyPair pair = new CurrencyPair(USD, PLN);
+
+        exchangeRateService.convert(new BigDecimal("100"), pair);
+        usdMid = "5.0";
+        Thread.sleep(10);
+        exchangeRateService.convert(new BigDecimal("100"), pair);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (exchangeRateService.convert(new BigDecimal("100"), pair).compareTo(new BigDecimal("500.00")) != 0) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Refreshed table was never swapped in");
+            Thread.sleep(5);
+        }
+    }
+
+    private ExchangeRateService service(Duration refreshAfter) {
+        ForexClient forexClient = new ForexClient("http://127.0.0.1:" + nbpStub.getAddress().getPort(),
+                Duration.ofSeconds(2), Duration.ofSeconds(3), 5, Duration.ofSeconds(30));
+        return new ExchangeRateService(forexClient, exchangeRateRepository,
+                new ExchangeRateHistoryService(exchangeRateRepository, Duration.ofDays(7)), mock(FxRateStreamService.class),
+                new InternalThreadFactory(false),
+                new SimpleMeterRegistry(), FxRateSource.TABLE, Duration.ofMinutes(5), refreshAfter, Duration.ofHours(1), RoundingMode.HALF_UP);
+    }
+}
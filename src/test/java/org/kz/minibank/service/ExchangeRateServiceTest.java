@@ -1,21 +1,32 @@
 package org.kz.minibank.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.kz.minibank.clinet.ForexClient;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.exception.ForexUnavailableException;
 import org.kz.minibank.model.CurrencyPair;
 import org.kz.minibank.model.ExchangeRate;
 import org.kz.minibank.repository.ExchangeRateRepository;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Currency;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -28,7 +39,10 @@ public class ExchangeRateServiceTest {
     @Mock
     private ExchangeRateRepository exchangeRateRepository;
 
-    @InjectMocks
+    @Mock
+    private FxRateStreamService rateStream;
+
+    private SimpleMeterRegistry meterRegistry;
     private ExchangeRateService exchangeRateService;
 
     private CurrencyPair pair;
@@ -37,6 +51,12 @@ public class ExchangeRateServiceTest {
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        exchangeRateService = new ExchangeRateService(forexClient, exchangeRateRepository,
+                new ExchangeRateHistoryService(exchangeRateRepository, Duration.ofDays(7)), rateStream,
+                new InternalThreadFactory(false), meterRegistry, FxRateSource.PER_CURRENCY,
+                Duration.ofMinutes(5), Duration.ofMinutes(4), Duration.ofHours(1), RoundingMode.HALF_UP);
+
         pair = new CurrencyPair(Currency.getInstance("USD"), Currency.getInstance("PLN"));
         reversePair = new CurrencyPair(Currency.getInstance("PLN"), Currency.getInstance("USD"));
 
@@ -104,4 +124,106 @@ public class ExchangeRateServiceTest {
         assertEquals(0, new BigDecimal("400.00").compareTo(result), "Values should be mathematically equal");
         verify(exchangeRateRepository).save(any(ExchangeRate.class));
     }
+
+    @Test
+    void convert_CachedRate_NoFurtherLookups() {
+        when(exchangeRateRepository.findTopByPairOrderByTimestampDesc(pair)).thenReturn(exchangeRate);
+
+        exchangeRateService.convert(new BigDecimal("100"), pair);
+        BigDecimal result = exchangeRateService.convert(new BigDecimal("50"), pair);
+
+        assertEquals(0, new BigDecimal("200.00").compareTo(result), "Values should be mathematically equal");
+        verify(exchangeRateRepository, times(1)).findTopByPairOrderByTimestampDesc(pair);
+        verify(forexClient, never()).getExchangeRate(any());
+    }
+
+    @Test
+    void convert_RateDueForRefresh_RefreshesFromForexInBackground() throws InterruptedException {
+        exchangeRateService = new ExchangeRateService(forexClient, exchangeRateRepository,
+                new ExchangeRateHistoryService(exchangeRateRepository, Duration.ofDays(7)), rateStream,
+                new InternalThreadFactory(false), meterRegistry, FxRateSource.PER_CURRENCY,
+                Duration.ofMinutes(5), Duration.ofMillis(1), Duration.ofHours(1), RoundingMode.HALF_UP);
+        when(exchangeRateRepository.findTopByPairOrderByTimestampDesc(pair)).thenReturn(exchangeRate);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        when(forexClient.getExchangeRate(Currency.getInstance("USD"))).thenAnswer(invocation -> {
+            releaseRefresh.await(5, TimeUnit.SECONDS);
+            return new BigDecimal("5.0");
+        });
+        when(forexClient.getExchangeRate(Currency.getInstance("PLN"))).thenReturn(new BigDecimal("1.0"));
+
+        exchangeRateService.convert(new BigDecimal("100"), pair);
+        Thread.sleep(10);
+        BigDecimal stillCached = exchangeRateService.convert(new BigDecimal("100"), pair);
+        releaseRefresh.countDown();
+
+        assertEquals(0, new BigDecimal("400.00").compareTo(stillCached), "Refresh must not block the caller");
+        verify(exchangeRateRepository, timeout(5000)).save(any(ExchangeRate.class));
+        verify(exchangeRateRepository, times(1)).findTopByPairOrderByTimestampDesc(pair);
+    }
+
+    @Test
+    void convert_ConcurrentLoadsSharingACurrency_FetchItOnce() throws Exception {
+        Currency usd = Currency.getInstance("USD");
+        CurrencyPair eurUsd = new CurrencyPair(Currency.getInstance("EUR"), usd);
+        CountDownLatch usdRequested = new CountDownLatch(1);
+        CountDownLatch releaseUsd = new CountDownLatch(1);
+        when(forexClient.getExchangeRate(usd)).thenAnswer(invocation -> {
+            usdRequested.countDown();
+            releaseUsd.await(5, TimeUnit.SECONDS);
+            return new BigDecimal("4.0");
+        });
+        when(forexClient.getExchangeRate(Currency.getInstance("PLN"))).thenReturn(new BigDecimal("1.0"));
+        when(forexClient.getExchangeRate(Currency.getInstance("EUR"))).thenReturn(new BigDecimal("4.4"));
+
+        CompletableFuture<BigDecimal> usdPln = CompletableFuture.supplyAsync(() -> exchangeRateService.convert(new BigDecimal("100"), pair));
+        usdRequested.await(5, TimeUnit.SECONDS);
+        AtomicReference<Thread> joiner = new AtomicReference<>();
+        CompletableFuture<BigDecimal> eurToUsd = CompletableFuture.supplyAsync(() -> {
+            joiner.set(Thread.currentThread());
+            return exchangeRateService.convert(new BigDecimal("100"), eurUsd);
+        });
+        while (joiner.get() == null || joiner.get().getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        releaseUsd.countDown();
+
+        assertEquals(0, new BigDecimal("400.00").compareTo(usdPln.get(5, TimeUnit.SECONDS)));
+        assertEquals(0, new BigDecimal("110.00").compareTo(eurToUsd.get(5, TimeUnit.SECONDS)));
+        verify(forexClient, times(1)).getExchangeRate(usd);
+        DistributionSummary callers = meterRegistry.get("minibank.fx.fetch.callers").summary();
+        assertEquals(2.0, callers.max());
+    }
+
+    @Test
+    void convert_ForexUnavailable_UsesLastPersistedRateWithinMaxStaleness() {
+        exchangeRate.setTimestamp(LocalDateTime.now().minusMinutes(30));
+        when(exchangeRateRepository.findTopByPairOrderByTimestampDesc(pair)).thenReturn(exchangeRate);
+        when(forexClient.getExchangeRate(any())).thenThrow(new ForexUnavailableException("NBP is down"));
+
+        BigDecimal result = exchangeRateService.convert(new BigDecimal("100"), pair);
+
+        assertEquals(0, new BigDecimal("400.00").compareTo(result), "Values should be mathematically equal");
+        verify(exchangeRateRepository, never()).save(any(ExchangeRate.class));
+    }
+
+    @Test
+    void convert_ForexUnavailableAndRateTooOld_FailsFast() {
+        exchangeRate.setTimestamp(LocalDateTime.now().minusHours(2));
+        when(exchangeRateRepository.findTopByPairOrderByTimestampDesc(pair)).thenReturn(exchangeRate);
+        when(exchangeRateRepository.findTopByPairOrderByTimestampDesc(reversePair)).thenReturn(null);
+        when(forexClient.getExchangeRate(any())).thenThrow(new ForexUnavailableException("NBP is down"));
+
+        assertThrows(ForexUnavailableException.class, () -> exchangeRateService.convert(new BigDecimal("100"), pair));
+    }
+
+    @Test
+    void refreshStreamedRates_PublishesLoadedRateOnce() {
+        when(rateStream.subscribedPairs()).thenReturn(Set.of(pair));
+        when(exchangeRateRepository.findTopByPairOrderByTimestampDesc(pair)).thenReturn(exchangeRate);
+
+        exchangeRateService.refreshStreamedRates();
+        exchangeRateService.convert(new BigDecimal("100.00"), pair);
+
+        verify(rateStream, times(1)).publish(pair, new BigDecimal("4.0000"));
+    }
 }
@@ -0,0 +1,84 @@
+package org.kz.minibank.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.FxQuote;
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.Money;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Currency;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FxQuoteServiceTest {
+    private static final CurrencyPair USD_PLN = new CurrencyPair(Currency.getInstance("USD"), Currency.getInstance("PLN"));
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    private FxQuoteService fxQuoteService;
+
+    @BeforeEach
+    void setUp() {
+        fxQuoteService = new FxQuoteService(exchangeRateService, Duration.ofSeconds(30), 100);
+    }
+
+    @Test
+    void createQuote_LocksCurrentRate() {
+        when(exchangeRateService.currentRate(USD_PLN)).thenReturn(FxRate.of(new BigDecimal("4.0"), false));
+
+        FxQuote quote = fxQuoteService.createQuote("usd", "pln");
+
+        assertEquals(USD_PLN, quote.pair());
+        assertEquals(FxRate.of(new BigDecimal("4.0"), false), quote.rate());
+        assertSame(quote, fxQuoteService.getQuote(quote.id(), USD_PLN));
+        verify(exchangeRateService, times(1)).currentRate(USD_PLN);
+    }
+
+    @Test
+    void createQuote_ReverseCachedPair_ConvertsLikeAnUnquotedTransfer() {
+        CurrencyPair plnEur = new CurrencyPair(Currency.getInstance("PLN"), Currency.getInstance("EUR"));
+        when(exchangeRateService.currentRate(plnEur)).thenReturn(FxRate.of(new BigDecimal("4.3"), true));
+
+        FxQuote quote = fxQuoteService.createQuote("PLN", "EUR");
+        Money credited = quote.rate().convert(Money.of(new BigDecimal("1000000.00"), plnEur.base()), plnEur.counter(), RoundingMode.HALF_UP);
+
+        assertEquals(new BigDecimal("232558.14"), credited.toBigDecimal());
+    }
+
+    @Test
+    void createQuote_SameCurrency_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> fxQuoteService.createQuote("USD", "USD"));
+        verifyNoInteractions(exchangeRateService);
+    }
+
+    @Test
+    void getQuote_OtherPair_Rejected() {
+        when(exchangeRateService.currentRate(USD_PLN)).thenReturn(FxRate.of(new BigDecimal("4.0"), false));
+        FxQuote quote = fxQuoteService.createQuote("USD", "PLN");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> fxQuoteService.getQuote(quote.id(), new CurrencyPair(USD_PLN.counter(), USD_PLN.base())));
+        assertEquals("Quote does not match the account currencies!", e.getMessage());
+    }
+
+    @Test
+    void getQuote_UnknownOrExpired_Rejected() {
+        FxQuoteService expiring = new FxQuoteService(exchangeRateService, Duration.ZERO, 100);
+        when(exchangeRateService.currentRate(USD_PLN)).thenReturn(FxRate.of(new BigDecimal("4.0"), false));
+        FxQuote quote = expiring.createQuote("USD", "PLN");
+
+        assertThrows(IllegalArgumentException.class, () -> expiring.getQuote(quote.id(), USD_PLN));
+        assertThrows(IllegalArgumentException.class, () -> fxQuoteService.getQuote(UUID.randomUUID(), USD_PLN));
+    }
+}
@@ -0,0 +1,169 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kz.minibank.controller.FxController;
+import org.kz.minibank.model.CurrencyPair;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Currency;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/** Streams driven through a standalone MockMvc, so the emitters write to real (mock) responses. */
+class FxRateStreamServiceTest {
+    private static final CurrencyPair USD_PLN = new CurrencyPair(Currency.getInstance("USD"), Currency.getInstance("PLN"));
+    private static final CurrencyPair EUR_PLN = new CurrencyPair(Currency.getInstance("EUR"), Currency.getInstance("PLN"));
+
+    private FxRateStreamService fxRateStreamService;
+    private ExchangeRateService exchangeRateService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        fxRateStreamService = new FxRateStreamService(new SimpleMeterRegistry(), 2, Duration.ofMinutes(1),
+                Duration.ofMillis(100));
+        exchangeRateService = mock(ExchangeRateService.class);
+        when(exchangeRateService.rate(USD_PLN)).thenReturn(new BigDecimal("4.0000"));
+        when(exchangeRateService.rate(EUR_PLN)).thenReturn(new BigDecimal("4.3000"));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller()).build();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        fxRateStreamService.shutdown();
+    }
+
+    @Test
+    void subscribe_ReceivesCurrentRateThenUpdatesOfItsPairOnly() throws Exception {
+        MockHttpServletResponse usd = open("usd", "pln");
+        MockHttpServletResponse eur = open("EUR", "PLN");
+
+        fxRateStreamService.publish(USD_PLN, new BigDecimal("4.1000"));
+
+        awaitContent(usd, "\"rate\":4.1000");
+        String usdEvents = usd.getContentAsString();
+        assertTrue(usdEvents.indexOf("\"rate\":4.0000") < usdEvents.indexOf("\"rate\":4.1000"));
+        assertTrue(usdEvents.contains("event:rate"));
+        awaitContent(eur, "\"rate\":4.3000");
+        assertFalse(eur.getContentAsString().contains("4.1000"));
+        assertEquals(2, fxRateStreamService.subscribedPairs().size());
+    }
+
+    @Test
+    void publish_StalledSubscriber_HoldsUpNoOneAndIsDroppedAfterSendTimeout() throws Exception {
+        AtomicBoolean stalling = new AtomicBoolean();
+        CountDownLatch writeBlocked = new CountDownLatch(1);
+        CountDownLatch clientReads = new CountDownLatch(1);
+        MockMvc stallingMockMvc = MockMvcBuilders.standaloneSetup(controller())
+                .addFilters((request, response, chain) -> chain.doFilter(request,
+                        new StallingResponse((HttpServletResponse) response, stalling, writeBlocked, clientReads)))
+                .build();
+        stallingMockMvc.perform(get("/api/fx/rates/{source}/{target}/stream", "USD", "PLN"))
+                .andExpect(request().asyncStarted());
+        MockHttpServletResponse eur = open("EUR", "PLN");
+        stalling.set(true);
+
+        fxRateStreamService.publish(USD_PLN, new BigDecimal("4.1000"));
+        assertTrue(writeBlocked.await(5, TimeUnit.SECONDS));
+        fxRateStreamService.publish(EUR_PLN, new BigDecimal("4.4000"));
+        awaitContent(eur, "\"rate\":4.4000");
+
+        Thread.sleep(150);
+        fxRateStreamService.dropStalledSubscribers();
+        assertEquals(Set.of(EUR_PLN), fxRateStreamService.subscribedPairs());
+        assertDoesNotThrow(() -> open("USD", "PLN"));
+        clientReads.countDown();
+    }
+
+    @Test
+    void subscribe_BeyondMaxSubscribers_IsRejected() throws Exception {
+        open("USD", "PLN");
+        open("USD", "PLN");
+
+        assertThrows(RejectedExecutionException.class, () -> fxRateStreamService.subscribe(USD_PLN, BigDecimal.ONE));
+    }
+
+    @Test
+    void publish_WithoutSubscribers_DoesNothing() {
+        fxRateStreamService.publish(USD_PLN, new BigDecimal("4.1000"));
+
+        assertTrue(fxRateStreamService.subscribedPairs().isEmpty());
+    }
+
+    private FxController controller() {
+        return new FxController(mock(FxQuoteService.class), exchangeRateService, fxRateStreamService);
+    }
+
+    private MockHttpServletResponse open(String source, String target) throws Exception {
+        return mockMvc.perform(get("/api/fx/rates/{source}/{target}/stream", source, target))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!response.getContentAsString().contains(expected)) {
+            if (System.nanoTime() > deadline) fail("No event containing " + expected + " in " + response.getContentAsString());
+            Thread.sleep(5);
+        }
+    }
+
+    /** A client that, once {@code stalling} is set, stops reading: writes block until {@code clientReads}. */
+    private static final class StallingResponse extends HttpServletResponseWrapper {
+        private final ServletOutputStream out;
+
+        StallingResponse(HttpServletResponse response, AtomicBoolean stalling, CountDownLatch writeBlocked,
+                         CountDownLatch clientReads) {
+            super(response);
+            this.out = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    if (stalling.get()) {
+                        writeBlocked.countDown();
+                        try {
+                            clientReads.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new IOException("Broken pipe");
+                    }
+                    response.getOutputStream().write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitExecutorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GroupCommitExecutor executor;
+    private ExecutorService clients;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new GroupCommitExecutor(new TransactionTemplate(transactionManager), meterRegistry, new InternalThreadFactory(false), true, 50, 8, 100);
+        clients = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        clients.shutdownNow();
+        executor.shutdown();
+    }
+
+    @Test
+    void submit_ConcurrentOperationsShareOneCommit() throws Exception {
+        CountDownLatch ready = new CountDownLatch(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int value = i;
+            results.add(clients.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return executor.submit(() -> value);
+            }));
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+
+        long groups = meterRegistry.summary("minibank.group-commit.batch-size").count();
+        assertTrue(groups < 8, "expected operations to be grouped, got " + groups + " commits");
+        verify(transactionManager, times((int) groups)).commit(any());
+        assertEquals(groups, meterRegistry.timer("minibank.group-commit.latency").count());
+    }
+
+    @Test
+    void submit_FailingOperationIsRerunAloneAndDoesNotFailItsGroup() throws Exception {
+        CountDownLatch ready = new CountDownLatch(3);
+        Future<String> first = clients.submit(() -> {
+            ready.countDown();
+            ready.await();
+            return executor.submit(() -> "first");
+        });
+        Future<String> failing = clients.submit(() -> {
+            ready.countDown();
+            ready.await();
+            return executor.submit(() -> { throw new IllegalArgumentException("Account not found!"); });
+        });
+        Future<String> last = clients.submit(() -> {
+            ready.countDown();
+            ready.await();
+            return executor.submit(() -> "last");
+        });
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("last", last.get(5, TimeUnit.SECONDS));
+        Exception e = assertThrows(Exception.class, () -> failing.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void submit_WhenDisabled_RunsOnCallerThread() {
+        GroupCommitExecutor direct = new GroupCommitExecutor(null, meterRegistry, new InternalThreadFactory(false), false, 2, 8, 100);
+
+        assertEquals(Thread.currentThread().getName(), direct.submit(() -> Thread.currentThread().getName()));
+    }
+}
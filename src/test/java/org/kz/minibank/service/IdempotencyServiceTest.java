@@ -0,0 +1,208 @@
+package org.kz.minibank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.DTO.CreateDepositDTO;
+import org.kz.minibank.DTO.TransactionResponseDTO;
+import org.kz.minibank.model.IdempotencyRecord;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.repository.IdempotencyRecordRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotencyService idempotencyService;
+    private final CreateDepositDTO request = new CreateDepositDTO("ACC123", new BigDecimal("50.00"));
+    private final TransactionResponseDTO response = new TransactionResponseDTO(new BigDecimal("50.00"), "PLN",
+            "ACC123", "ACC123", "Deposit", TransactionStatus.SUCCESS);
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, new ObjectMapper(), 100, Duration.ofHours(1), Duration.ofMinutes(1));
+        when(idempotencyRecordRepository.findByOwnerEmailAndIdempotencyKey(anyString(), anyString())).thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
+    }
+
+    @Test
+    void execute_WithoutKey_RunsOperationEveryTime() {
+        AtomicInteger calls = new AtomicInteger();
+
+        idempotencyService.execute(null, "user@test.com", "deposit", request, () -> countedResponse(calls));
+        idempotencyService.execute(null, "user@test.com", "deposit", request, () -> countedResponse(calls));
+
+        assertEquals(2, calls.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void execute_SameKeyTwice_ReplaysFirstResponse() {
+        AtomicInteger calls = new AtomicInteger();
+
+        TransactionResponseDTO first = idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> countedResponse(calls));
+        TransactionResponseDTO second = idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> countedResponse(calls));
+
+        assertEquals(1, calls.get());
+        assertEquals(first, second);
+        verify(idempotencyRecordRepository).save(argThat(IdempotencyRecord::isCompleted));
+    }
+
+    @Test
+    void execute_SameKeyDifferentOperation_ThrowsUnprocessable() {
+        idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> response);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.execute("key-1", "user@test.com", "withdraw", request, () -> response));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatusCode());
+    }
+
+    @Test
+    void execute_KeyKnownOnlyToDatabase_ReplaysStoredResponse() {
+        AtomicInteger calls = new AtomicInteger();
+        IdempotencyService other = new IdempotencyService(idempotencyRecordRepository, new ObjectMapper(), 100, Duration.ofHours(1), Duration.ofMinutes(1));
+        idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> countedResponse(calls));
+        ArgumentCaptor<IdempotencyRecord> stored = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).save(stored.capture());
+        when(idempotencyRecordRepository.findByOwnerEmailAndIdempotencyKey("user@test.com", "key-1")).thenReturn(Optional.of(stored.getValue()));
+
+        TransactionResponseDTO replayed = other.execute("key-1", "user@test.com", "deposit", request, () -> countedResponse(calls));
+
+        assertEquals(1, calls.get());
+        assertEquals(response, replayed);
+    }
+
+    @Test
+    void execute_FailedOperation_ReleasesKey() {
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute("key-1", "user@test.com", "deposit", request,
+                () -> { throw new IllegalArgumentException("Account not found!"); }));
+
+        TransactionResponseDTO result = idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> response);
+
+        assertEquals(response, result);
+        verify(idempotencyRecordRepository).delete(any());
+    }
+
+    @Test
+    void execute_OperationFailedInDoubt_KeepsClaim() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("key-1", "user@test.com", "deposit", request,
+                () -> { throw new IllegalStateException("Ledger did not acknowledge the operation in time"); }));
+        ArgumentCaptor<IdempotencyRecord> claim = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).saveAndFlush(claim.capture());
+        when(idempotencyRecordRepository.findByOwnerEmailAndIdempotencyKey("user@test.com", "key-1")).thenReturn(Optional.of(claim.getValue()));
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> countedResponse(calls)));
+
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        assertEquals(0, calls.get());
+        verify(idempotencyRecordRepository, never()).delete(any());
+    }
+
+    @Test
+    void execute_CompletionWriteFails_IsRetried() {
+        when(idempotencyRecordRepository.save(any()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenAnswer(i -> i.getArgument(0));
+
+        TransactionResponseDTO result = idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> response);
+
+        assertEquals(response, result);
+        verify(idempotencyRecordRepository, times(2)).save(argThat(IdempotencyRecord::isCompleted));
+    }
+
+    @Test
+    void execute_ConcurrentDuplicate_WaitsForInFlightRequest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+
+        Future<TransactionResponseDTO> first = clients.submit(() -> idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> {
+            started.countDown();
+            await(release);
+            return countedResponse(calls);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<TransactionResponseDTO> duplicate = clients.submit(() ->
+                idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> countedResponse(calls)));
+        release.countDown();
+
+        assertEquals(first.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        clients.shutdown();
+    }
+
+    @Test
+    void execute_ClaimLeftInProgress_ConflictsUntilItTimesOut() {
+        idempotencyService.execute("key-0", "user@test.com", "deposit", request, () -> response);
+        ArgumentCaptor<IdempotencyRecord> sameRequest = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).saveAndFlush(sameRequest.capture());
+        IdempotencyRecord claim = new IdempotencyRecord("user@test.com", "key-1", sameRequest.getValue().getRequestHash());
+        claim.setId(7L);
+        when(idempotencyRecordRepository.findByOwnerEmailAndIdempotencyKey("user@test.com", "key-1")).thenReturn(Optional.of(claim));
+        when(idempotencyRecordRepository.reclaim(eq(7L), any(), any())).thenReturn(0);
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> response));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+
+        when(idempotencyRecordRepository.reclaim(eq(7L), any(), any())).thenReturn(1);
+        AtomicInteger calls = new AtomicInteger();
+        TransactionResponseDTO result = idempotencyService.execute("key-1", "user@test.com", "deposit", request, () -> countedResponse(calls));
+
+        assertEquals(response, result);
+        assertEquals(1, calls.get());
+        assertTrue(claim.isCompleted());
+        verify(idempotencyRecordRepository).save(claim);
+        verify(idempotencyRecordRepository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    void execute_TooLongKey_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("k".repeat(256), "user@test.com", "deposit", request, () -> response));
+    }
+
+    private TransactionResponseDTO countedResponse(AtomicInteger calls) {
+        calls.incrementAndGet();
+        return response;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
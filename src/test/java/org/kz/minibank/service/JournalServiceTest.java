@@ -0,0 +1,149 @@
+package org.kz.minibank.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.BalanceSnapshot;
+import org.kz.minibank.model.EntryDirection;
+import org.kz.minibank.model.LedgerEntry;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountBalanceStripeRepository;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.BalanceSnapshotRepository;
+import org.kz.minibank.repository.LedgerEntryRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JournalServiceTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private AccountBalanceStripeRepository stripeRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private JournalService journalService;
+
+    @BeforeEach
+    void setUp() {
+        journalService = new JournalService(ledgerEntryRepository, balanceSnapshotRepository, accountRepository,
+                new BalanceStripeService(accountRepository, stripeRepository, null),
+                new TransactionTemplate(transactionManager), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void transferEntries_RecordsEachLegInItsOwnCurrency() {
+        Account source = account(1L, "USD");
+        Account target = account(2L, "PLN");
+        Transaction transaction = new Transaction(source, target, new BigDecimal("100.00"), "Payment");
+
+        List<LedgerEntry> entries = journalService.transferEntries(transaction, new BigDecimal("400.00"));
+
+        assertEquals(2, entries.size());
+        assertEquals(EntryDirection.DEBIT, entries.get(0).getDirection());
+        assertEquals(1L, entries.get(0).getAccountId());
+        assertEquals(Currency.getInstance("USD"), entries.get(0).getCurrency());
+        assertEquals(new BigDecimal("-100.00"), entries.get(0).signedAmount());
+        assertEquals(EntryDirection.CREDIT, entries.get(1).getDirection());
+        assertEquals(Currency.getInstance("PLN"), entries.get(1).getCurrency());
+        assertEquals(new BigDecimal("400.00"), entries.get(1).signedAmount());
+    }
+
+    @Test
+    void getBalance_AddsEntriesSinceSnapshot() {
+        BalanceSnapshot snapshot = new BalanceSnapshot(1L);
+        LocalDateTime asOf = LocalDateTime.now().minusMinutes(5);
+        snapshot.rollForward(new BigDecimal("250.00"), asOf);
+        when(balanceSnapshotRepository.findById(1L)).thenReturn(Optional.of(snapshot));
+        when(ledgerEntryRepository.sumSince(1L, asOf)).thenReturn(new BigDecimal("-50.00"));
+
+        assertEquals(new BigDecimal("200.00"), journalService.getBalance(1L));
+    }
+
+    @Test
+    void getBalance_WithoutSnapshot_SumsWholeJournal() {
+        when(balanceSnapshotRepository.findById(1L)).thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumSince(1L, BalanceSnapshot.ORIGIN)).thenReturn(new BigDecimal("75.00"));
+
+        assertEquals(new BigDecimal("75.00"), journalService.getBalance(1L));
+    }
+
+    @Test
+    void rollSnapshots_RollsForwardOnlyUpToLag() {
+        when(ledgerEntryRepository.findAccountIdsWithEntriesBetween(eq(BalanceSnapshot.ORIGIN), any())).thenReturn(List.of(1L));
+        when(balanceSnapshotRepository.findById(1L)).thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumBetween(eq(1L), eq(BalanceSnapshot.ORIGIN), any())).thenReturn(new BigDecimal("30.00"));
+
+        LocalDateTime before = LocalDateTime.now().minusMinutes(1);
+        journalService.rollSnapshots();
+
+        ArgumentCaptor<BalanceSnapshot> saved = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        verify(balanceSnapshotRepository).save(saved.capture());
+        assertEquals(new BigDecimal("30.00"), saved.getValue().getBalance());
+        assertFalse(saved.getValue().getAsOf().isBefore(before));
+        assertTrue(saved.getValue().getAsOf().isBefore(LocalDateTime.now().minusSeconds(59)));
+    }
+
+    @Test
+    void rollSnapshots_AfterRestart_ResumesFromLatestSnapshot() {
+        LocalDateTime latest = LocalDateTime.now().minusMinutes(10);
+        when(balanceSnapshotRepository.findLatestAsOf()).thenReturn(latest);
+
+        journalService.rollSnapshots();
+        journalService.rollSnapshots();
+
+        verify(ledgerEntryRepository).findAccountIdsWithEntriesBetween(eq(latest), any());
+        verify(ledgerEntryRepository, never()).findAccountIdsWithEntriesBetween(eq(BalanceSnapshot.ORIGIN), any());
+        verify(balanceSnapshotRepository, times(1)).findLatestAsOf();
+    }
+
+    @Test
+    void openUnjournaledAccounts_BooksBalanceTheJournalIsMissing() {
+        Account account = account(1L, "PLN");
+        account.setBalance(new BigDecimal("500.00"));
+        when(ledgerEntryRepository.findAccountIdsWithoutOpening(LedgerEntry.OPENING_TRANSACTION_ID)).thenReturn(List.of(1L));
+        when(accountRepository.findByIdForUpdate(1L)).thenReturn(account);
+        when(balanceSnapshotRepository.findById(1L)).thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumSince(1L, BalanceSnapshot.ORIGIN)).thenReturn(new BigDecimal("200.00"));
+
+        journalService.openUnjournaledAccounts();
+
+        ArgumentCaptor<LedgerEntry> opening = ArgumentCaptor.forClass(LedgerEntry.class);
+        verify(ledgerEntryRepository).save(opening.capture());
+        assertEquals(LedgerEntry.OPENING_TRANSACTION_ID, opening.getValue().getTransactionId());
+        assertEquals(new BigDecimal("300.00"), opening.getValue().signedAmount());
+    }
+
+    private Account account(Long id, String currency) {
+        Account account = new Account(Currency.getInstance(currency), new User());
+        account.setId(id);
+        return account;
+    }
+}
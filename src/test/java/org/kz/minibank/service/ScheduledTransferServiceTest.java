@@ -0,0 +1,150 @@
+package org.kz.minibank.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.model.Account;
+import org.kz.minibank.model.ScheduledTransfer;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.model.TransferFrequency;
+import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
+import org.kz.minibank.repository.ScheduledTransferRepository;
+import org.kz.minibank.repository.TransactionRepository;
+import org.kz.minibank.scheduling.DueTransfer;
+import org.kz.minibank.scheduling.ScheduledExecution;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ScheduledTransferServiceTest {
+
+    @Mock
+    private ScheduledTransferRepository scheduledTransferRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @InjectMocks
+    private ScheduledTransferService scheduledTransferService;
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 3, 31, 12, 0);
+    private ScheduledTransfer rent;
+
+    @BeforeEach
+    void setUp() {
+        rent = new ScheduledTransfer("user@test.com", "SRC123", "TGT456", new BigDecimal("1500.00"), "Rent",
+                TransferFrequency.MONTHLY, now.minusMonths(2));
+        rent.setId(7L);
+    }
+
+    @Test
+    void executeDue_DueSchedule_CreatesPendingTransferAndAdvances() {
+        stubAccountsAndSave();
+        when(scheduledTransferRepository.findAllByIdInForUpdate(List.of(7L))).thenReturn(List.of(rent));
+
+        ScheduledExecution execution = scheduledTransferService.executeDue(List.of(7L), now);
+
+        assertEquals(1, execution.transactionIds().size());
+        assertEquals(rent.getLastTransactionId(), execution.transactionIds().getFirst());
+        assertEquals(List.of(new DueTransfer(7L, LocalDateTime.of(2026, 2, 28, 12, 0))), execution.rescheduled());
+        verify(transactionRepository).save(argThat(t -> t.getStatus() == TransactionStatus.PENDING
+                && t.getAmount().equals(new BigDecimal("1500.00"))));
+    }
+
+    @Test
+    void executeDue_MissedOccurrences_AreExecutedOnceEach() {
+        stubAccountsAndSave();
+        when(scheduledTransferRepository.findAllByIdInForUpdate(List.of(7L))).thenReturn(List.of(rent));
+
+        int executed = 0;
+        for (int round = 0; round < 5; round++) {
+            executed += scheduledTransferService.executeDue(List.of(7L), now).transactionIds().size();
+        }
+
+        assertEquals(3, executed);
+        assertEquals(LocalDateTime.of(2026, 4, 30, 12, 0), rent.getNextExecution());
+        verify(transactionRepository, times(3)).save(any(Transaction.class));
+    }
+
+    @Test
+    void executeDue_OneOffSchedule_FinishesAfterExecution() {
+        stubAccountsAndSave();
+        ScheduledTransfer once = new ScheduledTransfer("user@test.com", "SRC123", "TGT456", BigDecimal.TEN, "Gift",
+                TransferFrequency.ONCE, now);
+        when(scheduledTransferRepository.findAllByIdInForUpdate(List.of(8L))).thenReturn(List.of(once));
+
+        ScheduledExecution execution = scheduledTransferService.executeDue(List.of(8L), now);
+
+        assertEquals(1, execution.transactionIds().size());
+        assertTrue(execution.rescheduled().isEmpty());
+        assertFalse(once.isActive());
+    }
+
+    @Test
+    void executeDue_MissingAccount_CancelsSchedule() {
+        when(scheduledTransferRepository.findAllByIdInForUpdate(List.of(7L))).thenReturn(List.of(rent));
+
+        ScheduledExecution execution = scheduledTransferService.executeDue(List.of(7L), now);
+
+        assertTrue(execution.transactionIds().isEmpty());
+        assertFalse(rent.isActive());
+        assertEquals("Account not found!", rent.getLastFailureReason());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void createSchedule_FirstExecutionInPast_ThrowsException() {
+        LocalDateTime longAgo = LocalDateTime.of(2000, 1, 1, 8, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> scheduledTransferService.createSchedule("user@test.com",
+                "SRC123", "TGT456", new BigDecimal("10.00"), "Daily", TransferFrequency.DAILY, longAgo));
+        verify(scheduledTransferRepository, never()).save(any());
+    }
+
+    @Test
+    void createSchedule_FirstExecutionNow_IsAccepted() {
+        when(accountRepository.findIdByAccountNumber("TGT456")).thenReturn(2L);
+        when(scheduledTransferRepository.save(any(ScheduledTransfer.class))).thenAnswer(i -> i.getArgument(0));
+        LocalDateTime justNow = LocalDateTime.now().minusSeconds(5);
+
+        ScheduledTransfer schedule = scheduledTransferService.createSchedule("user@test.com", "SRC123", "TGT456",
+                new BigDecimal("10.00"), "Daily", TransferFrequency.DAILY, justNow);
+
+        assertEquals(justNow, schedule.getNextExecution());
+    }
+
+    @Test
+    void cancelSchedule_OtherOwner_ThrowsException() {
+        when(scheduledTransferRepository.findById(7L)).thenReturn(Optional.of(rent));
+
+        assertThrows(IllegalArgumentException.class, () -> scheduledTransferService.cancelSchedule(7L, "other@test.com"));
+        assertTrue(rent.isActive());
+    }
+
+    private void stubAccountsAndSave() {
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(new Account(Currency.getInstance("PLN"), new User()));
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(new Account(Currency.getInstance("PLN"), new User()));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> {
+            Transaction transaction = i.getArgument(0);
+            transaction.setId(UUID.randomUUID());
+            return transaction;
+        });
+    }
+}
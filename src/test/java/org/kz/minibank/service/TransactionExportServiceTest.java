@@ -0,0 +1,104 @@
+package org.kz.minibank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.DTO.TransactionStatusDTO;
+import org.kz.minibank.model.TransactionStatus;
+import org.kz.minibank.repository.TransactionRepository;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceTest {
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private TransactionExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new TransactionExportService(transactionRepository, objectMapper);
+    }
+
+    @Test
+    void export_Csv_MergesBothSidesNewestFirstAndClosesStreams() throws Exception {
+        TransactionStatusDTO selfTransfer = row(3, "To myself");
+        AtomicInteger closed = new AtomicInteger();
+        when(transactionRepository.streamOutgoing(eq(1L), any(), any()))
+                .thenReturn(Stream.of(selfTransfer, row(1, "Rent")).onClose(closed::incrementAndGet));
+        when(transactionRepository.streamIncoming(eq(1L), any(), any()))
+                .thenReturn(Stream.of(row(4, "Salary"), selfTransfer, row(2, "Refund")).onClose(closed::incrementAndGet));
+
+        List<String> lines = export(TransactionExportFormat.CSV).lines().toList();
+
+        assertEquals(TransactionExportService.CSV_HEADER, lines.getFirst());
+        assertEquals(List.of("Salary", "To myself", "Refund", "Rent"),
+                lines.stream().skip(1).map(line -> line.split(",")[6]).toList());
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    void export_Ndjson_WritesOneObjectPerLine() throws Exception {
+        when(transactionRepository.streamOutgoing(eq(1L), any(), any())).thenReturn(Stream.of(row(2, "Rent")));
+        when(transactionRepository.streamIncoming(eq(1L), any(), any())).thenReturn(Stream.of(row(1, "Salary")));
+
+        List<String> lines = export(TransactionExportFormat.NDJSON).lines().toList();
+
+        assertEquals(2, lines.size());
+        TransactionStatusDTO first = objectMapper.readValue(lines.getFirst(), TransactionStatusDTO.class);
+        assertEquals("Rent", first.title());
+        assertEquals(NOON.plusMinutes(2), first.timestamp());
+    }
+
+    @Test
+    void validateRange_FromNotBeforeTo_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> exportService.validateRange(NOON, NOON));
+        assertDoesNotThrow(() -> exportService.validateRange(NOON, null));
+    }
+
+    @Test
+    void csvText_QuotesSeparatorsAndDefusesFormulas() {
+        assertEquals("Rent", TransactionExportService.csvText("Rent"));
+        assertEquals("\"Rent, March\"", TransactionExportService.csvText("Rent, March"));
+        assertEquals("\"Say \"\"hi\"\"\"", TransactionExportService.csvText("Say \"hi\""));
+        assertEquals("'=HYPERLINK(1)", TransactionExportService.csvText("=HYPERLINK(1)"));
+        assertEquals("", TransactionExportService.csvText(null));
+    }
+
+    @Test
+    void format_ParsesCaseInsensitively() {
+        assertEquals(TransactionExportFormat.NDJSON, TransactionExportFormat.of("ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> TransactionExportFormat.of("xlsx"));
+    }
+
+    private String export(TransactionExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(1L, null, null, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static TransactionStatusDTO row(int minute, String title) {
+        return new TransactionStatusDTO(UUID.randomUUID(), BigDecimal.TEN, "PLN", "PL01", "PL02", title,
+                TransactionStatus.SUCCESS, null, NOON.plusMinutes(minute));
+    }
+}
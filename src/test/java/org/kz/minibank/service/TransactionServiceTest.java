@@ -1,29 +1,40 @@
 package org.kz.minibank.service;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.DTO.CreateTransactionRequest;
 import org.kz.minibank.model.Account;
 import org.kz.minibank.model.CurrencyPair;
+import org.kz.minibank.model.FxQuote;
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.Money;
 import org.kz.minibank.model.Transaction;
 import org.kz.minibank.model.TransactionStatus;
 import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountBalanceStripeRepository;
 import org.kz.minibank.repository.AccountRepository;
 import org.kz.minibank.repository.TransactionRepository;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class TransactionServiceTest {
+    private static final Currency PLN = Currency.getInstance("PLN");
 
     @Mock
     private TransactionRepository transactionRepository;
@@ -34,7 +45,18 @@ public class TransactionServiceTest {
     @Mock
     private ExchangeRateService exchangeRateService;
 
-    @InjectMocks
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private AccountBalanceStripeRepository stripeRepository;
+
+    @Mock
+    private JournalService journalService;
+
+    @Mock
+    private FxQuoteService fxQuoteService;
+
     private TransactionService transactionService;
 
     private Account sourceAccount;
@@ -42,6 +64,10 @@ public class TransactionServiceTest {
 
     @BeforeEach
     void setUp() {
+        transactionService = new TransactionService(transactionRepository, accountRepository, exchangeRateService,
+                entityManager, new BalanceStripeService(accountRepository, stripeRepository, null), journalService,
+                fxQuoteService);
+
         sourceAccount = new Account(Currency.getInstance("USD"), new User());
         sourceAccount.setId(1L);
         sourceAccount.setAccountNumber("SRC123");
@@ -65,7 +91,7 @@ public class TransactionServiceTest {
         assertEquals(TransactionStatus.SUCCESS, result.getStatus());
         assertEquals(new BigDecimal("900.00"), sourceAccount.getBalance());
         assertEquals(new BigDecimal("600.00"), targetAccount.getBalance());
-        verify(exchangeRateService, never()).convert(any(), any());
+        verify(exchangeRateService, never()).convert(any(Money.class), any(Currency.class));
     }
 
     @Test
@@ -74,8 +100,7 @@ public class TransactionServiceTest {
 
         when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
         when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
-        when(exchangeRateService.convert(eq(new BigDecimal("100.00")), any(CurrencyPair.class)))
-                .thenReturn(new BigDecimal("400.00"));
+        when(exchangeRateService.convert(usd("100.00"), PLN)).thenReturn(pln("400.00"));
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
 
         Transaction result = transactionService.createTransactionBetweenAccounts("SRC123", "TGT456",
@@ -85,6 +110,53 @@ public class TransactionServiceTest {
         assertEquals(new BigDecimal("900.00"), sourceAccount.getBalance());
         assertEquals(new BigDecimal("900.00"), targetAccount.getBalance()); // 500 + 400
         assertTrue(result.getTitle().contains("[FX: 100.00 USD -> 400.00 PLN]"));
+        verify(journalService).recordTransfer(result, new BigDecimal("400.00"));
+    }
+
+    @Test
+    void createTransactionBetweenAccounts_PreparedRate_ConvertsWithoutLookup() {
+        targetAccount.setCurrency(Currency.getInstance("PLN"));
+        CurrencyPair pair = new CurrencyPair(Currency.getInstance("USD"), Currency.getInstance("PLN"));
+        FxRate rate = new FxRate(40_000, false);
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+        when(exchangeRateService.currentRate(pair)).thenReturn(rate);
+        when(exchangeRateService.convert(usd("100.00"), PLN, rate)).thenReturn(pln("400.00"));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        FxRate prepared = transactionService.prepareTransfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment", null);
+        Transaction result = transactionService.createTransactionBetweenAccounts("SRC123", "TGT456",
+                new BigDecimal("100.00"), "Payment", TransferLockStrategy.OPTIMISTIC, null, prepared);
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(new BigDecimal("900.00"), targetAccount.getBalance());
+        verify(exchangeRateService, times(1)).currentRate(pair);
+        verify(exchangeRateService, never()).convert(any(Money.class), any(Currency.class));
+    }
+
+    @Test
+    void prepareTransfer_SameCurrencyOrQuoted_ResolvesNoRate() {
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+
+        assertNull(transactionService.prepareTransfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment", null));
+        targetAccount.setCurrency(Currency.getInstance("PLN"));
+        assertNull(transactionService.prepareTransfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment", UUID.randomUUID()));
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.prepareTransfer("SRC123", "TGT456", new BigDecimal("-1"), "Payment", null));
+        verify(exchangeRateService, never()).currentRate(any());
+    }
+
+    @Test
+    void createTransactionBetweenAccounts_AmountFinerThanMinorUnit_MovesNoMoney() {
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+
+        assertThrows(IllegalArgumentException.class, () -> transactionService.createTransactionBetweenAccounts("SRC123",
+                "TGT456", new BigDecimal("0.001"), "Payment"));
+
+        assertEquals(new BigDecimal("1000.00"), sourceAccount.getBalance());
+        verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
     @Test
@@ -114,6 +186,172 @@ public class TransactionServiceTest {
         assertEquals("Source and target accounts must be different!", result.getFailureReason());
     }
 
+    @Test
+    void createTransactionBetweenAccounts_Pessimistic_LocksInIdOrder() {
+        when(accountRepository.findIdByAccountNumber("TGT456")).thenReturn(2L);
+        when(accountRepository.findIdByAccountNumber("SRC123")).thenReturn(1L);
+        when(accountRepository.findByIdForUpdate(1L)).thenReturn(sourceAccount);
+        when(accountRepository.findByIdForUpdate(2L)).thenReturn(targetAccount);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.createTransactionBetweenAccounts("TGT456", "SRC123",
+                new BigDecimal("100.00"), "Refund", TransferLockStrategy.PESSIMISTIC);
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(new BigDecimal("400.00"), targetAccount.getBalance());
+        assertEquals(new BigDecimal("1100.00"), sourceAccount.getBalance());
+
+        InOrder lockOrder = inOrder(accountRepository);
+        lockOrder.verify(accountRepository).findByIdForUpdate(1L);
+        lockOrder.verify(accountRepository).findByIdForUpdate(2L);
+    }
+
+    @Test
+    void createTransactionsBatch_ReportsPerItemStatus() {
+        when(accountRepository.findAllByAccountNumberIn(any())).thenReturn(List.of(sourceAccount, targetAccount));
+
+        List<Transaction> results = transactionService.createTransactionsBatch(List.of(
+                new CreateTransactionRequest("SRC123", "TGT456", new BigDecimal("600.00"), "Salary"),
+                new CreateTransactionRequest("SRC123", "TGT456", new BigDecimal("600.00"), "Bonus"),
+                new CreateTransactionRequest("SRC123", "UNKNOWN", new BigDecimal("1.00"), "Lost"),
+                new CreateTransactionRequest("TGT456", "SRC123", new BigDecimal("100.00"), "Refund")
+        ));
+
+        assertEquals(4, results.size());
+        assertEquals(TransactionStatus.SUCCESS, results.get(0).getStatus());
+        assertEquals(TransactionStatus.FAILED, results.get(1).getStatus());
+        assertEquals("Insufficient funds!", results.get(1).getFailureReason());
+        assertEquals(TransactionStatus.FAILED, results.get(2).getStatus());
+        assertEquals("Account not found!", results.get(2).getFailureReason());
+        assertEquals(TransactionStatus.SUCCESS, results.get(3).getStatus());
+
+        assertEquals(new BigDecimal("500.00"), sourceAccount.getBalance());
+        assertEquals(new BigDecimal("1000.00"), targetAccount.getBalance());
+        verify(accountRepository, times(1)).findAllByAccountNumberIn(any());
+        verify(accountRepository, never()).findByAccountNumber(any());
+        verify(transactionRepository, times(1)).saveAll(anyList());
+        verify(entityManager, times(1)).flush();
+    }
+
+    @Test
+    void createTransactionBetweenAccounts_StripedTarget_CreditsStripeInsteadOfBalance() {
+        targetAccount.setBalanceStripes(4);
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+        when(stripeRepository.addToStripe(eq(2L), anyInt(), eq(new BigDecimal("100.00")))).thenReturn(1);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.createTransactionBetweenAccounts("SRC123", "TGT456",
+                new BigDecimal("100.00"), "Payment");
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(new BigDecimal("900.00"), sourceAccount.getBalance());
+        assertEquals(new BigDecimal("500.00"), targetAccount.getBalance());
+    }
+
+    @Test
+    void withdraw_StripedAccount_FoldsStripesWhenBalanceIsShort() {
+        sourceAccount.setBalanceStripes(2);
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(stripeRepository.sumByAccountId(1L)).thenReturn(new BigDecimal("500.00"));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.withdraw("SRC123", new BigDecimal("1400.00"));
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(new BigDecimal("100.00"), sourceAccount.getBalance());
+        InOrder inOrder = inOrder(stripeRepository);
+        inOrder.verify(stripeRepository).findAllByAccountIdForUpdate(1L);
+        inOrder.verify(stripeRepository).resetByAccountId(1L);
+    }
+
+    @Test
+    void completePendingTransfer_Pending_CompletesStoredTransaction() {
+        Transaction pending = new Transaction(sourceAccount, targetAccount, new BigDecimal("100.00"), "Payment");
+        UUID id = UUID.randomUUID();
+        pending.setId(id);
+        when(transactionRepository.findByIdForUpdate(id)).thenReturn(pending);
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.completePendingTransfer(id, TransferLockStrategy.OPTIMISTIC);
+
+        assertSame(pending, result);
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(new BigDecimal("900.00"), sourceAccount.getBalance());
+        assertEquals(new BigDecimal("600.00"), targetAccount.getBalance());
+    }
+
+    @Test
+    void completePendingTransfer_AlreadyCompleted_IsNotExecutedAgain() {
+        Transaction completed = new Transaction(sourceAccount, targetAccount, new BigDecimal("100.00"), "Payment");
+        completed.setStatus(TransactionStatus.SUCCESS);
+        UUID id = UUID.randomUUID();
+        when(transactionRepository.findByIdForUpdate(id)).thenReturn(completed);
+
+        Transaction result = transactionService.completePendingTransfer(id, TransferLockStrategy.OPTIMISTIC);
+
+        assertSame(completed, result);
+        assertEquals(new BigDecimal("1000.00"), sourceAccount.getBalance());
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
+    @Test
+    void createTransactionBetweenAccounts_WithQuote_ConvertsAtLockedRate() {
+        targetAccount.setCurrency(Currency.getInstance("PLN"));
+        CurrencyPair pair = new CurrencyPair(Currency.getInstance("USD"), Currency.getInstance("PLN"));
+        UUID quoteId = UUID.randomUUID();
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+        when(fxQuoteService.getQuote(quoteId, pair))
+                .thenReturn(new FxQuote(quoteId, pair, FxRate.of(new BigDecimal("3.9"), false), LocalDateTime.now().plusSeconds(30)));
+        when(exchangeRateService.convert(usd("100.00"), PLN, FxRate.of(new BigDecimal("3.9"), false))).thenReturn(pln("390.00"));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.createTransactionBetweenAccounts("SRC123", "TGT456",
+                new BigDecimal("100.00"), "Payment", TransferLockStrategy.OPTIMISTIC, quoteId);
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(FxRate.of(new BigDecimal("3.9"), false), result.getLockedRate());
+        assertEquals(new BigDecimal("890.00"), targetAccount.getBalance());
+        verify(exchangeRateService, never()).convert(any(Money.class), any(Currency.class));
+    }
+
+    @Test
+    void createTransactionBetweenAccounts_InvalidQuote_MovesNoMoney() {
+        UUID quoteId = UUID.randomUUID();
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+        when(fxQuoteService.getQuote(eq(quoteId), any())).thenThrow(new IllegalArgumentException("Quote not found or expired!"));
+
+        assertThrows(IllegalArgumentException.class, () -> transactionService.createTransactionBetweenAccounts("SRC123",
+                "TGT456", new BigDecimal("100.00"), "Payment", TransferLockStrategy.OPTIMISTIC, quoteId));
+
+        assertEquals(new BigDecimal("1000.00"), sourceAccount.getBalance());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void completePendingTransfer_LockedRate_DoesNotLookUpLiveRate() {
+        targetAccount.setCurrency(Currency.getInstance("PLN"));
+        Transaction pending = new Transaction(sourceAccount, targetAccount, new BigDecimal("100.00"), "Payment");
+        pending.setLockedRate(FxRate.of(new BigDecimal("3.9"), false));
+        UUID id = UUID.randomUUID();
+        when(transactionRepository.findByIdForUpdate(id)).thenReturn(pending);
+        when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
+        when(accountRepository.findByAccountNumber("TGT456")).thenReturn(targetAccount);
+        when(exchangeRateService.convert(usd("100.00"), PLN, FxRate.of(new BigDecimal("3.9"), false))).thenReturn(pln("390.00"));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Transaction result = transactionService.completePendingTransfer(id, TransferLockStrategy.OPTIMISTIC);
+
+        assertEquals(TransactionStatus.SUCCESS, result.getStatus());
+        assertEquals(new BigDecimal("890.00"), targetAccount.getBalance());
+        verify(exchangeRateService, never()).convert(any(Money.class), any(Currency.class));
+        verifyNoInteractions(fxQuoteService);
+    }
+
     @Test
     void deposit_Success() {
         when(accountRepository.findByAccountNumber("SRC123")).thenReturn(sourceAccount);
@@ -160,4 +398,12 @@ public class TransactionServiceTest {
         verify(accountRepository, never()).save(any(Account.class));
         verify(transactionRepository, times(1)).save(any(Transaction.class));
     }
+
+    private static Money usd(String amount) {
+        return Money.of(new BigDecimal(amount), Currency.getInstance("USD"));
+    }
+
+    private static Money pln(String amount) {
+        return Money.of(new BigDecimal(amount), PLN);
+    }
 }
@@ -0,0 +1,106 @@
+package org.kz.minibank.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.kz.minibank.config.InternalThreadFactory;
+import org.kz.minibank.model.FxRate;
+import org.kz.minibank.model.Transaction;
+import org.kz.minibank.model.TransactionStatus;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferRetryExecutorTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferRetryExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        GroupCommitExecutor directExecutor = new GroupCommitExecutor(null, meterRegistry, new InternalThreadFactory(false), false, 2, 64, 100);
+        executor = new TransferRetryExecutor(transactionService, null, directExecutor, meterRegistry,
+                TransferLockStrategy.PESSIMISTIC, 3, 0, 0);
+    }
+
+    @Test
+    void transfer_RetriesAfterOptimisticLockFailure() {
+        Transaction success = new Transaction();
+        success.setStatus(TransactionStatus.SUCCESS);
+        when(transactionService.createTransactionBetweenAccounts(eq("SRC123"), eq("TGT456"), any(), eq("Payment"),
+                eq(TransferLockStrategy.PESSIMISTIC), isNull(), isNull()))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Account", 1L))
+                .thenReturn(success);
+
+        Transaction result = executor.transfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment");
+
+        assertSame(success, result);
+        assertEquals(1.0, meterRegistry.counter("minibank.transfer.retries").count());
+        assertEquals(0.0, meterRegistry.counter("minibank.transfer.aborts").count());
+    }
+
+    @Test
+    void transfer_GivesUpAfterMaxAttempts() {
+        when(transactionService.createTransactionBetweenAccounts(any(), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Account", 1L));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> executor.transfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment"));
+
+        verify(transactionService, times(3)).createTransactionBetweenAccounts(any(), any(), any(), any(), any(), any(), any());
+        assertEquals(2.0, meterRegistry.counter("minibank.transfer.retries").count());
+        assertEquals(1.0, meterRegistry.counter("minibank.transfer.aborts").count());
+    }
+
+    @Test
+    void deposit_DoesNotRetryBusinessErrors() {
+        when(transactionService.deposit("SRC123", new BigDecimal("-1")))
+                .thenThrow(new IllegalArgumentException("Amount must be positive!"));
+
+        assertThrows(IllegalArgumentException.class, () -> executor.deposit("SRC123", new BigDecimal("-1")));
+
+        verify(transactionService, times(1)).deposit(any(), any());
+        assertEquals(0.0, meterRegistry.counter("minibank.transfer.retries").count());
+    }
+
+    @Test
+    void transfer_ResolvesRateBeforeQueueingAndRetriesWithIt() {
+        FxRate rate = new FxRate(43_000, false);
+        Transaction success = new Transaction();
+        when(transactionService.prepareTransfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment", null))
+                .thenReturn(rate);
+        when(transactionService.createTransactionBetweenAccounts(eq("SRC123"), eq("TGT456"), any(), eq("Payment"),
+                eq(TransferLockStrategy.PESSIMISTIC), isNull(), eq(rate)))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Account", 1L))
+                .thenReturn(success);
+
+        assertSame(success, executor.transfer("SRC123", "TGT456", new BigDecimal("100.00"), "Payment"));
+
+        verify(transactionService, times(1)).prepareTransfer(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void transfer_InvalidRequest_RejectedBeforeQueueing() {
+        when(transactionService.prepareTransfer(any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Account not found!"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> executor.transfer("SRC123", "MISSING", new BigDecimal("100.00"), "Payment"));
+
+        verify(transactionService, never()).createTransactionBetweenAccounts(any(), any(), any(), any(), any(), any(), any());
+    }
+}
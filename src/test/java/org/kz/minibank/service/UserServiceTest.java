@@ -3,8 +3,8 @@ package org.kz.minibank.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.kz.minibank.model.Account;
 import org.kz.minibank.model.User;
+import org.kz.minibank.repository.AccountRepository;
 import org.kz.minibank.repository.UserRepository;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -24,6 +24,9 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private AccountRepository accountRepository;
+
     @InjectMocks
     private UserService userService;
 
@@ -97,7 +100,8 @@ public class UserServiceTest {
 
     @Test
     void deleteUser_Success() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(accountRepository.existsByUserId(1L)).thenReturn(false);
 
         userService.deleteUser(1L);
 
@@ -106,8 +110,8 @@ public class UserServiceTest {
 
     @Test
     void deleteUser_HasAccounts_ThrowsException() {
-        user.addAccount(new Account());
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(accountRepository.existsByUserId(1L)).thenReturn(true);
 
         assertThrows(IllegalArgumentException.class, () -> userService.deleteUser(1L));
         verify(userRepository, never()).deleteById(anyLong());